@@ -0,0 +1,133 @@
+package ru.effectivemobile.bankcards.service.encryption;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+// Сравнение прежней реализации шифрования (legacy*) с текущей EncryptionService.
+// Запуск: ./gradlew jmh — профилировщик gc выводит gc.alloc.rate.norm (байт на операцию)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class EncryptionServiceBenchmark {
+
+    private static final String KEY = "dGVzdC1zZWNyZXQta2V5LTI1Ni1iaXRzLTEyMzQ1Njc=";
+    private static final String PAN = "4556737586899855";
+
+    private EncryptionService encryptionService;
+    private LegacyEncryption legacyEncryption;
+    private String encryptedPan;
+    private ByteBuffer plainBuffer;
+    private ByteBuffer encryptedBuffer;
+    private ByteBuffer outBuffer;
+
+    @Setup
+    public void setUp() {
+        encryptionService = new EncryptionService(KEY, null);
+        encryptionService.init();
+        legacyEncryption = new LegacyEncryption(KEY);
+        encryptedPan = encryptionService.encrypt(PAN);
+
+        plainBuffer = ByteBuffer.wrap(PAN.getBytes(StandardCharsets.UTF_8));
+        encryptedBuffer = ByteBuffer.wrap(Base64.getDecoder().decode(encryptedPan));
+        outBuffer = ByteBuffer.allocate(encryptionService.encryptedLength(PAN.length()));
+    }
+
+    @Benchmark
+    public String legacyEncrypt() throws Exception {
+        return legacyEncryption.encrypt(PAN);
+    }
+
+    @Benchmark
+    public String legacyDecrypt() throws Exception {
+        return legacyEncryption.decrypt(encryptedPan);
+    }
+
+    @Benchmark
+    public String encrypt() {
+        return encryptionService.encrypt(PAN);
+    }
+
+    @Benchmark
+    public String decrypt() {
+        return encryptionService.decrypt(encryptedPan);
+    }
+
+    @Benchmark
+    public int encryptByteBuffer() {
+        plainBuffer.rewind();
+        outBuffer.clear();
+        return encryptionService.encrypt(plainBuffer, outBuffer);
+    }
+
+    @Benchmark
+    public int decryptByteBuffer() {
+        encryptedBuffer.rewind();
+        outBuffer.clear();
+        return encryptionService.decrypt(encryptedBuffer, outBuffer);
+    }
+
+    @Benchmark
+    public String hashPan() {
+        return encryptionService.hashPan(PAN);
+    }
+
+    // Копия реализации EncryptionService до переиспользования Cipher и SecureRandom
+    static class LegacyEncryption {
+
+        private final SecretKey secretKey;
+
+        LegacyEncryption(String keyBase64) {
+            byte[] key = Base64.getDecoder().decode(keyBase64);
+            this.secretKey = new SecretKeySpec(key, 0, key.length, "AES");
+        }
+
+        String encrypt(String plainText) throws Exception {
+            if (!plainText.matches("\\d{16}")) {
+                throw new IllegalArgumentException("PAN must be exactly 16 digits");
+            }
+            byte[] iv = new byte[12];
+            SecureRandom secureRandom = new SecureRandom();
+            secureRandom.nextBytes(iv);
+
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, secretKey, new GCMParameterSpec(128, iv));
+            byte[] encryptedBytes = cipher.doFinal(plainText.getBytes(StandardCharsets.UTF_8));
+
+            byte[] combined = new byte[iv.length + encryptedBytes.length];
+            System.arraycopy(iv, 0, combined, 0, iv.length);
+            System.arraycopy(encryptedBytes, 0, combined, iv.length, encryptedBytes.length);
+            return Base64.getEncoder().encodeToString(combined);
+        }
+
+        String decrypt(String encryptedTextBase64) throws Exception {
+            byte[] combined = Base64.getDecoder().decode(encryptedTextBase64);
+            byte[] iv = new byte[12];
+            System.arraycopy(combined, 0, iv, 0, iv.length);
+            byte[] encryptedBytes = new byte[combined.length - 12];
+            System.arraycopy(combined, 12, encryptedBytes, 0, encryptedBytes.length);
+
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.DECRYPT_MODE, secretKey, new GCMParameterSpec(128, iv));
+            String result = new String(cipher.doFinal(encryptedBytes), StandardCharsets.UTF_8);
+            if (!result.matches("\\d{16}")) {
+                throw new IllegalArgumentException("PAN must be exactly 16 digits");
+            }
+            return result;
+        }
+    }
+}
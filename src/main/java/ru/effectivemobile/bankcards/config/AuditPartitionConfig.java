@@ -0,0 +1,73 @@
+package ru.effectivemobile.bankcards.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "audit.partitioning")
+@Validated
+public class AuditPartitionConfig {
+
+    private boolean enabled = true;
+
+    // На сколько месяцев вперёд держать готовые партиции
+    @Min(1)
+    private int premakeMonths = 3;
+
+    // Партиции, целиком старше этого числа месяцев, отсоединяются и переносятся в архивную схему
+    @Min(1)
+    private int retentionMonths = 24;
+
+    @NotBlank
+    private String archiveSchema = "audit_archive";
+
+    // Сколько ждать блокировку card_audit при отсоединении, чтобы не задерживать запись аудита
+    @NotNull
+    private Duration lockTimeout = Duration.ofSeconds(5);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getPremakeMonths() {
+        return premakeMonths;
+    }
+
+    public void setPremakeMonths(int premakeMonths) {
+        this.premakeMonths = premakeMonths;
+    }
+
+    public int getRetentionMonths() {
+        return retentionMonths;
+    }
+
+    public void setRetentionMonths(int retentionMonths) {
+        this.retentionMonths = retentionMonths;
+    }
+
+    public String getArchiveSchema() {
+        return archiveSchema;
+    }
+
+    public void setArchiveSchema(String archiveSchema) {
+        this.archiveSchema = archiveSchema;
+    }
+
+    public Duration getLockTimeout() {
+        return lockTimeout;
+    }
+
+    public void setLockTimeout(Duration lockTimeout) {
+        this.lockTimeout = lockTimeout;
+    }
+}
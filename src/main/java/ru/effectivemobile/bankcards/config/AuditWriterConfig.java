@@ -0,0 +1,88 @@
+package ru.effectivemobile.bankcards.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "audit.writer")
+@Validated
+public class AuditWriterConfig {
+
+    // Что делать, если очередь аудита заполнена
+    public enum BackpressurePolicy {
+        BLOCK,       // ждём место в очереди не дольше offerTimeout, затем пишем в потоке вызывающего
+        CALLER_RUNS, // сразу пишем запись в потоке вызывающего
+        DROP         // отбрасываем запись и увеличиваем счётчик потерь
+    }
+
+    @Min(1)
+    private int queueCapacity = 10_000;
+
+    @Min(1)
+    private int batchSize = 500;
+
+    @NotNull
+    private Duration flushInterval = Duration.ofMillis(50);
+
+    @NotNull
+    private BackpressurePolicy backpressurePolicy = BackpressurePolicy.BLOCK;
+
+    @NotNull
+    private Duration offerTimeout = Duration.ofSeconds(1);
+
+    @NotNull
+    private Duration shutdownTimeout = Duration.ofSeconds(10);
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public Duration getFlushInterval() {
+        return flushInterval;
+    }
+
+    public void setFlushInterval(Duration flushInterval) {
+        this.flushInterval = flushInterval;
+    }
+
+    public BackpressurePolicy getBackpressurePolicy() {
+        return backpressurePolicy;
+    }
+
+    public void setBackpressurePolicy(BackpressurePolicy backpressurePolicy) {
+        this.backpressurePolicy = backpressurePolicy;
+    }
+
+    public Duration getOfferTimeout() {
+        return offerTimeout;
+    }
+
+    public void setOfferTimeout(Duration offerTimeout) {
+        this.offerTimeout = offerTimeout;
+    }
+
+    public Duration getShutdownTimeout() {
+        return shutdownTimeout;
+    }
+
+    public void setShutdownTimeout(Duration shutdownTimeout) {
+        this.shutdownTimeout = shutdownTimeout;
+    }
+}
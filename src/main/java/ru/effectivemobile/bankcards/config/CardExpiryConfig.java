@@ -0,0 +1,25 @@
+package ru.effectivemobile.bankcards.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+import jakarta.validation.constraints.Min;
+
+@Configuration
+@ConfigurationProperties(prefix = "card.expiry")
+@Validated
+public class CardExpiryConfig {
+
+    // Диапазон id карт на одну транзакцию
+    @Min(1)
+    private int chunkSize = 5_000;
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+}
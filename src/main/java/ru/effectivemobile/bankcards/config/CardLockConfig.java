@@ -0,0 +1,60 @@
+package ru.effectivemobile.bankcards.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "card.lock")
+@Validated
+public class CardLockConfig {
+
+    private boolean enabled = true;
+
+    // Число полос; округляется вверх до степени двойки
+    @Min(1)
+    private int stripes = 1024;
+
+    // Справедливая очередь: ожидающие получают блокировку в порядке прихода
+    private boolean fair = true;
+
+    // Сколько ждать блокировки всех карт операции
+    @NotNull
+    private Duration timeout = Duration.ofSeconds(2);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getStripes() {
+        return stripes;
+    }
+
+    public void setStripes(int stripes) {
+        this.stripes = stripes;
+    }
+
+    public boolean isFair() {
+        return fair;
+    }
+
+    public void setFair(boolean fair) {
+        this.fair = fair;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(Duration timeout) {
+        this.timeout = timeout;
+    }
+}
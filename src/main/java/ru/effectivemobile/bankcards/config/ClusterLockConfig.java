@@ -0,0 +1,59 @@
+package ru.effectivemobile.bankcards.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+import jakarta.validation.constraints.NotNull;
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "cluster-lock")
+@Validated
+public class ClusterLockConfig {
+
+    private boolean enabled = true;
+
+    // Если узел упал, задача освободится не позже чем через lease (по часам БД)
+    @NotNull
+    private Duration lease = Duration.ofMinutes(5);
+
+    // Пока задача выполняется, аренда продлевается с этим интервалом
+    @NotNull
+    private Duration heartbeatInterval = Duration.ofMinutes(1);
+
+    // Пусто — pid@hostname
+    private String nodeId;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Duration getLease() {
+        return lease;
+    }
+
+    public void setLease(Duration lease) {
+        this.lease = lease;
+    }
+
+    public Duration getHeartbeatInterval() {
+        return heartbeatInterval;
+    }
+
+    public void setHeartbeatInterval(Duration heartbeatInterval) {
+        this.heartbeatInterval = heartbeatInterval;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public void setNodeId(String nodeId) {
+        this.nodeId = nodeId;
+    }
+}
@@ -0,0 +1,37 @@
+package ru.effectivemobile.bankcards.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+import jakarta.validation.constraints.Min;
+
+@Configuration
+@ConfigurationProperties(prefix = "export")
+@Validated
+public class ExportConfig {
+
+    // Строк за один запрос к серверному курсору
+    @Min(1)
+    private int fetchSize = 1_000;
+
+    // Размер буфера между курсором и сокетом
+    @Min(1024)
+    private int bufferSize = 64 * 1024;
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+}
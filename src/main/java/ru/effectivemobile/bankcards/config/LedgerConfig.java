@@ -0,0 +1,63 @@
+package ru.effectivemobile.bankcards.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "ledger")
+@Validated
+public class LedgerConfig {
+
+    // Проводки моложе этого возраста в снимок не попадают: их транзакции с меньшими id могут быть ещё не закоммичены.
+    // Лаг только уменьшает число пропусков; закоммиченные позже проводки досчитываются по ledger_snapshot_gap
+    @NotNull
+    private Duration snapshotSafetyLag = Duration.ofMinutes(1);
+
+    // Сколько хранится пропущенный id: дольше не живёт ни одна транзакция, остальные пропуски — откаты
+    @NotNull
+    private Duration snapshotGapRetention = Duration.ofDays(1);
+
+    // Сколько id проводок обрабатывается в одной транзакции снимка
+    @Min(1)
+    private int snapshotChunkSize = 10_000;
+
+    @Min(1)
+    private int backfillBatchSize = 500;
+
+    public Duration getSnapshotSafetyLag() {
+        return snapshotSafetyLag;
+    }
+
+    public void setSnapshotSafetyLag(Duration snapshotSafetyLag) {
+        this.snapshotSafetyLag = snapshotSafetyLag;
+    }
+
+    public Duration getSnapshotGapRetention() {
+        return snapshotGapRetention;
+    }
+
+    public void setSnapshotGapRetention(Duration snapshotGapRetention) {
+        this.snapshotGapRetention = snapshotGapRetention;
+    }
+
+    public int getSnapshotChunkSize() {
+        return snapshotChunkSize;
+    }
+
+    public void setSnapshotChunkSize(int snapshotChunkSize) {
+        this.snapshotChunkSize = snapshotChunkSize;
+    }
+
+    public int getBackfillBatchSize() {
+        return backfillBatchSize;
+    }
+
+    public void setBackfillBatchSize(int backfillBatchSize) {
+        this.backfillBatchSize = backfillBatchSize;
+    }
+}
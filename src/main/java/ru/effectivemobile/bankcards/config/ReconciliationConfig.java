@@ -0,0 +1,64 @@
+package ru.effectivemobile.bankcards.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "reconciliation")
+@Validated
+public class ReconciliationConfig {
+
+    // Диапазон id карт на один чекпоинт
+    @Min(1)
+    private int chunkSize = 10_000;
+
+    // Каждый поток держит одно соединение на время чанка, остальной пул остаётся запросам API
+    @Min(1)
+    @Max(8)
+    private int parallelism = 2;
+
+    @Min(1)
+    private int fetchSize = 1_000;
+
+    // Пауза перед перепроверкой расхождений: за это время асинхронный аудит успевает записаться
+    @NotNull
+    private Duration recheckDelay = Duration.ofSeconds(5);
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    public Duration getRecheckDelay() {
+        return recheckDelay;
+    }
+
+    public void setRecheckDelay(Duration recheckDelay) {
+        this.recheckDelay = recheckDelay;
+    }
+}
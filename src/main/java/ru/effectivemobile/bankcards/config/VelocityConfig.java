@@ -0,0 +1,161 @@
+package ru.effectivemobile.bankcards.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+// Накопительные лимиты исходящих переводов: скользящие сутки, 30 дней и число переводов за час.
+// Лимит null — ограничения нет
+@Configuration
+@ConfigurationProperties(prefix = "velocity")
+@Validated
+public class VelocityConfig {
+
+    private boolean enabled = true;
+
+    // Как часто узел записывает свои счётчики в БД и подтягивает счётчики других узлов
+    @NotNull
+    private Duration flushInterval = Duration.ofSeconds(30);
+
+    @Min(1)
+    private int stripes = 64;
+
+    @Valid
+    @NotNull
+    private Limits card = new Limits(new BigDecimal("300000.00"), new BigDecimal("3000000.00"), 20);
+
+    @Valid
+    @NotNull
+    private Limits user = new Limits(new BigDecimal("500000.00"), new BigDecimal("5000000.00"), 30);
+
+    // userId -> лимиты пользователя и его карт; незаданные поля берутся из card/user
+    @Valid
+    private Map<Long, UserOverride> userOverrides = new HashMap<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Duration getFlushInterval() {
+        return flushInterval;
+    }
+
+    public void setFlushInterval(Duration flushInterval) {
+        this.flushInterval = flushInterval;
+    }
+
+    public int getStripes() {
+        return stripes;
+    }
+
+    public void setStripes(int stripes) {
+        this.stripes = stripes;
+    }
+
+    public Limits getCard() {
+        return card;
+    }
+
+    public void setCard(Limits card) {
+        this.card = card;
+    }
+
+    public Limits getUser() {
+        return user;
+    }
+
+    public void setUser(Limits user) {
+        this.user = user;
+    }
+
+    public Map<Long, UserOverride> getUserOverrides() {
+        return userOverrides;
+    }
+
+    public void setUserOverrides(Map<Long, UserOverride> userOverrides) {
+        this.userOverrides = userOverrides;
+    }
+
+    public static class Limits {
+
+        @DecimalMin("0.00")
+        private BigDecimal dailyAmount;
+
+        @DecimalMin("0.00")
+        private BigDecimal monthlyAmount;
+
+        @Min(0)
+        private Integer hourlyCount;
+
+        public Limits() {
+        }
+
+        public Limits(BigDecimal dailyAmount, BigDecimal monthlyAmount, Integer hourlyCount) {
+            this.dailyAmount = dailyAmount;
+            this.monthlyAmount = monthlyAmount;
+            this.hourlyCount = hourlyCount;
+        }
+
+        public BigDecimal getDailyAmount() {
+            return dailyAmount;
+        }
+
+        public void setDailyAmount(BigDecimal dailyAmount) {
+            this.dailyAmount = dailyAmount;
+        }
+
+        public BigDecimal getMonthlyAmount() {
+            return monthlyAmount;
+        }
+
+        public void setMonthlyAmount(BigDecimal monthlyAmount) {
+            this.monthlyAmount = monthlyAmount;
+        }
+
+        public Integer getHourlyCount() {
+            return hourlyCount;
+        }
+
+        public void setHourlyCount(Integer hourlyCount) {
+            this.hourlyCount = hourlyCount;
+        }
+    }
+
+    public static class UserOverride {
+
+        @Valid
+        private Limits card;
+
+        @Valid
+        private Limits user;
+
+        public Limits getCard() {
+            return card;
+        }
+
+        public void setCard(Limits card) {
+            this.card = card;
+        }
+
+        public Limits getUser() {
+            return user;
+        }
+
+        public void setUser(Limits user) {
+            this.user = user;
+        }
+    }
+}
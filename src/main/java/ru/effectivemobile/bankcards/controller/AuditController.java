@@ -3,6 +3,7 @@ package ru.effectivemobile.bankcards.controller;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -12,8 +13,15 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.effectivemobile.bankcards.dto.AuditExportRequest;
+import ru.effectivemobile.bankcards.dto.AuditCursorRequest;
+import ru.effectivemobile.bankcards.dto.CursorPage;
 import ru.effectivemobile.bankcards.entity.CardAudit;
 import ru.effectivemobile.bankcards.repository.CardAuditRepository;
+import ru.effectivemobile.bankcards.service.audit.AuditQueryService;
+import ru.effectivemobile.bankcards.service.export.AuditExportService;
+import ru.effectivemobile.bankcards.service.export.ExportResponses;
 
 @Tag(name = "Audit", description = "Card audit logs")
 @RestController
@@ -22,6 +30,8 @@ import ru.effectivemobile.bankcards.repository.CardAuditRepository;
 public class AuditController {
 
     private final CardAuditRepository cardAuditRepository;
+    private final AuditQueryService auditQueryService;
+    private final AuditExportService auditExportService;
 
     @Operation(summary = "Get audit logs for a card (ADMIN or card owner)")
     @ApiResponse(responseCode = "200", description = "Audit logs retrieved")
@@ -43,4 +53,35 @@ public class AuditController {
         Page<CardAudit> auditLogs = cardAuditRepository.findByUserId(userId, pageable);
         return ResponseEntity.ok(auditLogs);
     }
-}
\ No newline at end of file
+
+    @Operation(summary = "Get audit logs for a card with cursor pagination (ADMIN or card owner)")
+    @ApiResponse(responseCode = "200", description = "Audit logs retrieved")
+    @ApiResponse(responseCode = "400", description = "Invalid cursor or time range")
+    @ApiResponse(responseCode = "404", description = "Card not found")
+    @GetMapping("/cards/{cardId}/cursor")
+    public ResponseEntity<CursorPage<CardAudit>> getCardAuditAfter(
+            @PathVariable Long cardId,
+            @Valid AuditCursorRequest request) {
+        return ResponseEntity.ok(auditQueryService.getCardAuditAfter(cardId, request));
+    }
+
+    @Operation(summary = "Get audit logs for user's cards with cursor pagination (ADMIN only for other users)")
+    @ApiResponse(responseCode = "200", description = "Audit logs retrieved")
+    @ApiResponse(responseCode = "400", description = "Invalid cursor or time range")
+    @GetMapping("/users/{userId}/cursor")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<CursorPage<CardAudit>> getUserCardAuditAfter(
+            @PathVariable Long userId,
+            @Valid AuditCursorRequest request) {
+        return ResponseEntity.ok(auditQueryService.getUserCardAuditAfter(userId, request));
+    }
+
+    @Operation(summary = "Stream audit logs as NDJSON or CSV (ADMIN only)")
+    @ApiResponse(responseCode = "200", description = "Audit logs streamed")
+    @ApiResponse(responseCode = "400", description = "Invalid time range")
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportAudit(AuditExportRequest request) {
+        return ExportResponses.attachment("card-audit", request.format(), request.gzip(), auditExportService.export(request));
+    }
+}
@@ -4,7 +4,6 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -14,8 +13,10 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import ru.effectivemobile.bankcards.dto.LoginRequest;
 import ru.effectivemobile.bankcards.dto.LoginResponse;
+import ru.effectivemobile.bankcards.entity.User;
+import ru.effectivemobile.bankcards.exception.UserNotFoundException;
+import ru.effectivemobile.bankcards.repository.UserRepository;
 import ru.effectivemobile.bankcards.security.JwtUtil;
-import ru.effectivemobile.bankcards.security.UserDetailsServiceImpl;
 
 @Tag(name = "Authentication", description = "Endpoints for user authentication")
 @RestController
@@ -25,7 +26,7 @@ public class AuthController {
 
     private final AuthenticationManager authenticationManager;
     private final JwtUtil jwtUtil;
-    private final UserDetailsServiceImpl userDetailsService;
+    private final UserRepository userRepository;
 
     @Operation(summary = "User login")
     @ApiResponse(responseCode = "200", description = "Successful login")
@@ -36,8 +37,10 @@ public class AuthController {
                 new UsernamePasswordAuthenticationToken(request.email(), request.password())
         );
 
-        final UserDetails userDetails = userDetailsService.loadUserByUsername(request.email());
-        final String jwt = jwtUtil.generateToken(request.email());
+        // id и роль кладутся в токен, чтобы последующие запросы не ходили в БД
+        final User user = userRepository.findByEmail(request.email())
+                .orElseThrow(() -> new UserNotFoundException("User not found: " + request.email()));
+        final String jwt = jwtUtil.generateToken(user);
 
         return ResponseEntity.ok(new LoginResponse(jwt));
     }
@@ -0,0 +1,72 @@
+package ru.effectivemobile.bankcards.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.effectivemobile.bankcards.dto.BusinessRuleDto;
+import ru.effectivemobile.bankcards.dto.BusinessRuleRequest;
+import ru.effectivemobile.bankcards.dto.BusinessRuleSetDto;
+import ru.effectivemobile.bankcards.service.rules.BusinessRuleService;
+
+import java.util.List;
+
+@Tag(name = "Business rules", description = "Runtime overrides of business limits")
+@RestController
+@RequestMapping("/admin/business-rules")
+@RequiredArgsConstructor
+public class BusinessRuleController {
+
+    private final BusinessRuleService businessRuleService;
+
+    @Operation(summary = "Get business rule overrides (ADMIN only)")
+    @ApiResponse(responseCode = "200", description = "Rules retrieved")
+    @ApiResponse(responseCode = "403", description = "Access denied")
+    @GetMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<BusinessRuleDto>> getRules() {
+        return ResponseEntity.ok(businessRuleService.getRules());
+    }
+
+    @Operation(summary = "Create or replace a business rule override (ADMIN only)")
+    @ApiResponse(responseCode = "200", description = "Rule saved and applied on this node")
+    @ApiResponse(responseCode = "400", description = "Invalid rule value or scope")
+    @ApiResponse(responseCode = "403", description = "Access denied")
+    @PutMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<BusinessRuleDto> saveRule(@Valid @RequestBody BusinessRuleRequest request) {
+        return ResponseEntity.ok(businessRuleService.saveRule(request));
+    }
+
+    @Operation(summary = "Delete a business rule override (ADMIN only)")
+    @ApiResponse(responseCode = "204", description = "Rule deleted")
+    @ApiResponse(responseCode = "404", description = "Rule not found")
+    @ApiResponse(responseCode = "403", description = "Access denied")
+    @DeleteMapping("/{id}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Void> deleteRule(@PathVariable Long id) {
+        businessRuleService.deleteRule(id);
+        return ResponseEntity.noContent().build();
+    }
+
+    @Operation(summary = "Reload business rules from the database on this node (ADMIN only)")
+    @ApiResponse(responseCode = "200", description = "Rules reloaded")
+    @ApiResponse(responseCode = "400", description = "Stored rules are invalid, previous rules are kept")
+    @ApiResponse(responseCode = "403", description = "Access denied")
+    @PostMapping("/reload")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<BusinessRuleSetDto> reload() {
+        return ResponseEntity.ok(businessRuleService.reload());
+    }
+}
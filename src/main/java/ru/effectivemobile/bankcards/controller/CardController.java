@@ -6,14 +6,21 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import ru.effectivemobile.bankcards.dto.*;
+import ru.effectivemobile.bankcards.service.BatchTransferService;
 import ru.effectivemobile.bankcards.service.CardService;
+import ru.effectivemobile.bankcards.service.export.CardExportService;
+import ru.effectivemobile.bankcards.service.export.ExportResponses;
+import ru.effectivemobile.bankcards.service.idempotency.IdempotencyService;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Tag(name = "Bank Cards", description = "Manage bank cards")
@@ -23,6 +30,8 @@ import java.util.List;
 public class CardController {
 
     private final CardService cardService;
+    private final BatchTransferService batchTransferService;
+    private final CardExportService cardExportService;
 
     @Operation(summary = "Create a new card (ADMIN only)")
     @ApiResponse(responseCode = "201", description = "Card created")
@@ -43,12 +52,31 @@ public class CardController {
 
     @Operation(summary = "Transfer money between own cards")
     @ApiResponse(responseCode = "200", description = "Transfer successful")
+    @ApiResponse(responseCode = "409", description = "Idempotency-Key reused with another request or still in progress")
     @PostMapping("/transfers")
-    public ResponseEntity<Void> transfer(@Valid @RequestBody TransferRequest request) {
-        cardService.transfer(request);
+    public ResponseEntity<Void> transfer(
+            @RequestHeader(name = IdempotencyService.HEADER, required = false) String idempotencyKey,
+            @Valid @RequestBody TransferRequest request) {
+        boolean applied = cardService.transfer(request, idempotencyKey);
+        if (!applied) {
+            // Повтор уже выполненного перевода: возвращаем сохранённый результат
+            return ResponseEntity.ok().header(IdempotencyService.REPLAYED_HEADER, "true").build();
+        }
         return ResponseEntity.ok().build();
     }
 
+    @Operation(summary = "Execute a batch of transfers between own cards")
+    @ApiResponse(responseCode = "200", description = "Batch processed, per-item results returned")
+    @ApiResponse(responseCode = "400", description = "ATOMIC batch rejected, no transfers applied")
+    @PostMapping("/transfers/batch")
+    public ResponseEntity<BatchTransferResponse> transferBatch(@Valid @RequestBody BatchTransferRequest request) {
+        BatchTransferResponse response = batchTransferService.transfer(request);
+        if (!response.applied()) {
+            return ResponseEntity.badRequest().body(response);
+        }
+        return ResponseEntity.ok(response);
+    }
+
     @Operation(summary = "Get card by ID")
     @ApiResponse(responseCode = "200", description = "Card retrieved")
     @ApiResponse(responseCode = "404", description = "Card not found")
@@ -58,6 +86,17 @@ public class CardController {
         return ResponseEntity.ok(card);
     }
 
+    @Operation(summary = "Get card balance, optionally at a point in time")
+    @ApiResponse(responseCode = "200", description = "Balance retrieved")
+    @ApiResponse(responseCode = "400", description = "No balance history at the requested time")
+    @ApiResponse(responseCode = "404", description = "Card not found")
+    @GetMapping("/{id}/balance")
+    public ResponseEntity<CardBalanceDto> getBalance(
+            @PathVariable Long id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime asOf) {
+        return ResponseEntity.ok(cardService.getBalanceAsOf(id, asOf));
+    }
+
     @Operation(summary = "Get user's cards with pagination and filtering")
     @ApiResponse(responseCode = "200", description = "Cards retrieved")
     @GetMapping("/my/filtered")
@@ -76,6 +115,43 @@ public class CardController {
         return ResponseEntity.ok(cards);
     }
 
+    @Operation(summary = "Stream all cards as NDJSON or CSV (ADMIN only)")
+    @ApiResponse(responseCode = "200", description = "Cards streamed")
+    @ApiResponse(responseCode = "403", description = "Access denied")
+    @GetMapping("/admin/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportCards(CardExportRequest request) {
+        return ExportResponses.attachment("cards", request.format(), request.gzip(), cardExportService.export(request));
+    }
+
+    @Operation(summary = "Get user's cards with cursor pagination")
+    @ApiResponse(responseCode = "200", description = "Cards retrieved")
+    @ApiResponse(responseCode = "400", description = "Invalid cursor or unsupported sort")
+    @GetMapping("/my/filtered/cursor")
+    public ResponseEntity<CursorPage<CardDto>> getMyCardsAfter(@Valid CardCursorRequest request) {
+        return ResponseEntity.ok(cardService.getMyCardsAfter(request));
+    }
+
+    @Operation(summary = "Get all cards with filtering and cursor pagination (ADMIN only)")
+    @ApiResponse(responseCode = "200", description = "Cards retrieved")
+    @ApiResponse(responseCode = "400", description = "Invalid cursor or unsupported sort")
+    @ApiResponse(responseCode = "403", description = "Access denied")
+    @GetMapping("/admin/all/cursor")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<CursorPage<CardDto>> getAllCardsAfter(@Valid CardCursorRequest request) {
+        return ResponseEntity.ok(cardService.getAllCardsAfter(request));
+    }
+
+    @Operation(summary = "Find card by PAN (ADMIN only)")
+    @ApiResponse(responseCode = "200", description = "Card retrieved")
+    @ApiResponse(responseCode = "404", description = "Card not found")
+    @PostMapping("/admin/search-by-pan")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<CardDto> findCardByPan(@Valid @RequestBody PanLookupRequest request) {
+        CardDto card = cardService.getCardByPan(request.pan());
+        return ResponseEntity.ok(card);
+    }
+
     @Operation(summary = "Update card status (ADMIN only)")
     @ApiResponse(responseCode = "200", description = "Card status updated")
     @ApiResponse(responseCode = "404", description = "Card not found")
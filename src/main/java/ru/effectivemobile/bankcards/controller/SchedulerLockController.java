@@ -0,0 +1,33 @@
+package ru.effectivemobile.bankcards.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.effectivemobile.bankcards.dto.SchedulerLockDto;
+import ru.effectivemobile.bankcards.service.clusterlock.ClusterLockService;
+
+import java.util.List;
+
+@Tag(name = "Scheduler locks", description = "Cluster locks of scheduled jobs")
+@RestController
+@RequestMapping("/admin/scheduler-locks")
+@RequiredArgsConstructor
+public class SchedulerLockController {
+
+    private final ClusterLockService clusterLockService;
+
+    @Operation(summary = "Get scheduled job locks and their owners (ADMIN only)")
+    @ApiResponse(responseCode = "200", description = "Locks retrieved")
+    @ApiResponse(responseCode = "403", description = "Access denied")
+    @GetMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<SchedulerLockDto>> getLocks() {
+        return ResponseEntity.ok(clusterLockService.getLocks());
+    }
+}
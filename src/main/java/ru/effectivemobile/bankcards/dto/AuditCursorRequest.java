@@ -0,0 +1,24 @@
+package ru.effectivemobile.bankcards.dto;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+import ru.effectivemobile.bankcards.entity.AuditAction;
+
+import java.time.LocalDateTime;
+
+// from включительно, to исключительно; after — nextCursor предыдущей страницы
+public record AuditCursorRequest(
+        AuditAction action,
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+        @Min(1) @Max(500) Integer size,
+        Sort.Direction direction,
+        String after
+) {
+    public AuditCursorRequest {
+        if (size == null) size = 50;
+        if (direction == null) direction = Sort.Direction.DESC;
+    }
+}
@@ -0,0 +1,22 @@
+package ru.effectivemobile.bankcards.dto;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import ru.effectivemobile.bankcards.entity.AuditAction;
+import ru.effectivemobile.bankcards.service.export.ExportFormat;
+
+import java.time.LocalDateTime;
+
+// Все фильтры необязательны; from включительно, to исключительно
+public record AuditExportRequest(
+        Long userId,
+        Long cardId,
+        AuditAction action,
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+        ExportFormat format,
+        boolean gzip
+) {
+    public AuditExportRequest {
+        if (format == null) format = ExportFormat.NDJSON;
+    }
+}
@@ -0,0 +1,13 @@
+package ru.effectivemobile.bankcards.dto;
+
+public record BatchTransferItemResult(
+        int index,
+        Status status,
+        String error
+) {
+    public enum Status {
+        APPLIED,     // перевод выполнен
+        REJECTED,    // перевод не прошёл проверку
+        NOT_APPLIED  // перевод не выполнен, потому что пакет ATOMIC отклонён
+    }
+}
@@ -0,0 +1,25 @@
+package ru.effectivemobile.bankcards.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record BatchTransferRequest(
+        // ATOMIC — все переводы или ни одного; BEST_EFFORT — применяются только прошедшие проверку
+        Mode mode,
+
+        @NotEmpty(message = "Transfers list is required")
+        @Size(max = 1000, message = "Batch cannot contain more than 1000 transfers")
+        List<@Valid TransferRequest> transfers
+) {
+    public enum Mode {
+        ATOMIC,
+        BEST_EFFORT
+    }
+
+    public BatchTransferRequest {
+        if (mode == null) mode = Mode.ATOMIC;
+    }
+}
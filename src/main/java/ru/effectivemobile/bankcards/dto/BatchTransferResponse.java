@@ -0,0 +1,11 @@
+package ru.effectivemobile.bankcards.dto;
+
+import java.util.List;
+
+public record BatchTransferResponse(
+        BatchTransferRequest.Mode mode,
+        boolean applied,
+        int succeeded,
+        int failed,
+        List<BatchTransferItemResult> results
+) {}
@@ -0,0 +1,16 @@
+package ru.effectivemobile.bankcards.dto;
+
+import ru.effectivemobile.bankcards.entity.BusinessRuleKey;
+import ru.effectivemobile.bankcards.entity.BusinessRuleScope;
+
+import java.time.LocalDateTime;
+
+public record BusinessRuleDto(
+        Long id,
+        BusinessRuleKey key,
+        BusinessRuleScope scope,
+        String scopeValue,
+        String value,
+        LocalDateTime updatedAt,
+        String updatedBy
+) {}
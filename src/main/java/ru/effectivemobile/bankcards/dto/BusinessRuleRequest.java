@@ -0,0 +1,23 @@
+package ru.effectivemobile.bankcards.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import ru.effectivemobile.bankcards.entity.BusinessRuleKey;
+import ru.effectivemobile.bankcards.entity.BusinessRuleScope;
+
+// scopeValue: для ROLE — имя роли, для USER — id пользователя, для GLOBAL не задаётся
+public record BusinessRuleRequest(
+        @NotNull
+        BusinessRuleKey key,
+
+        @NotNull
+        BusinessRuleScope scope,
+
+        @Size(max = 64)
+        String scopeValue,
+
+        @NotBlank
+        @Size(max = 64)
+        String value
+) {}
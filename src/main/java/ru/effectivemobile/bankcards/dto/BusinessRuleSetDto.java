@@ -0,0 +1,9 @@
+package ru.effectivemobile.bankcards.dto;
+
+import java.time.LocalDateTime;
+
+public record BusinessRuleSetDto(
+        long version,
+        LocalDateTime loadedAt,
+        int ruleCount
+) {}
@@ -0,0 +1,20 @@
+package ru.effectivemobile.bankcards.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public record CardBalanceDto(
+        Long cardId,
+        BigDecimal balance,
+        LocalDateTime asOf,
+        Source source
+) {
+    public enum Source {
+        // Текущий баланс карты
+        CURRENT,
+        // Снимок баланса и проводки после него
+        LEDGER,
+        // Последняя запись аудита до asOf — для периода до заведения карты в книгу проводок
+        AUDIT
+    }
+}
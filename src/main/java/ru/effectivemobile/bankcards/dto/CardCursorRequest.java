@@ -0,0 +1,21 @@
+package ru.effectivemobile.bankcards.dto;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import org.springframework.data.domain.Sort;
+import ru.effectivemobile.bankcards.entity.CardStatus;
+
+// after — nextCursor предыдущей страницы; без него возвращается первая страница
+public record CardCursorRequest(
+        CardStatus status,
+        Long userId,
+        @Min(1) @Max(100) Integer size,
+        String sortBy,
+        Sort.Direction direction,
+        String after
+) {
+    public CardCursorRequest {
+        if (size == null) size = 20;
+        if (direction == null) direction = Sort.Direction.DESC;
+    }
+}
@@ -0,0 +1,16 @@
+package ru.effectivemobile.bankcards.dto;
+
+import ru.effectivemobile.bankcards.entity.CardStatus;
+import ru.effectivemobile.bankcards.service.export.ExportFormat;
+
+// Без фильтров выгружаются все карты
+public record CardExportRequest(
+        CardStatus status,
+        Long userId,
+        ExportFormat format,
+        boolean gzip
+) {
+    public CardExportRequest {
+        if (format == null) format = ExportFormat.NDJSON;
+    }
+}
@@ -0,0 +1,22 @@
+package ru.effectivemobile.bankcards.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+// Строка выгрузки карт: те же поля, что у CardDto, плюс владелец. PAN только в маске
+public record CardExportRow(
+        Long id,
+        Long userId,
+        String maskedPan,
+        String ownerName,
+        String expiryDate,
+        String status,
+        BigDecimal balance
+) {
+    public static final List<String> COLUMNS =
+            List.of("id", "userId", "maskedPan", "ownerName", "expiryDate", "status", "balance");
+
+    public Object[] toValues() {
+        return new Object[]{id, userId, maskedPan, ownerName, expiryDate, status, balance};
+    }
+}
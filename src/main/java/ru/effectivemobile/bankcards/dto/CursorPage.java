@@ -0,0 +1,22 @@
+package ru.effectivemobile.bankcards.dto;
+
+import java.util.List;
+import java.util.function.Function;
+
+// Страница keyset-пагинации: nextCursor передаётся в параметре after следующего запроса; null — страниц больше нет
+public record CursorPage<T>(
+        List<T> items,
+        String nextCursor,
+        boolean hasNext
+) {
+
+    // rows выбраны с лимитом size + 1: лишняя строка показывает, есть ли следующая страница.
+    // Курсор строится по последней строке страницы до преобразования в DTO
+    public static <R, T> CursorPage<T> of(List<R> rows, int size,
+                                         Function<R, String> cursor, Function<R, T> mapper) {
+        boolean hasNext = rows.size() > size;
+        List<R> page = hasNext ? rows.subList(0, size) : rows;
+        String nextCursor = hasNext ? cursor.apply(page.get(page.size() - 1)) : null;
+        return new CursorPage<>(page.stream().map(mapper).toList(), nextCursor, hasNext);
+    }
+}
@@ -0,0 +1,10 @@
+package ru.effectivemobile.bankcards.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+
+public record PanLookupRequest(
+        @NotBlank(message = "PAN is required")
+        @Pattern(regexp = "\\d{16}", message = "PAN must be exactly 16 digits")
+        String pan
+) {}
@@ -0,0 +1,13 @@
+package ru.effectivemobile.bankcards.dto;
+
+import java.time.LocalDateTime;
+
+public record SchedulerLockDto(
+        String name,
+        String owner,
+        LocalDateTime lockedAt,
+        LocalDateTime leaseUntil,
+        LocalDateTime heartbeatAt,
+        boolean held,
+        boolean heldByThisNode
+) {}
@@ -0,0 +1,44 @@
+package ru.effectivemobile.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+// Переопределение лимита из business.rules. Значение хранится строкой и проверяется при компиляции набора правил;
+// для GLOBAL scopeValue = "*", чтобы уникальный ключ работал без NULL
+@Entity
+@Table(name = "business_rule",
+        uniqueConstraints = @UniqueConstraint(name = "uk_business_rule_key_scope",
+                columnNames = {"rule_key", "scope", "scope_value"}))
+@Getter
+@Setter
+public class BusinessRule {
+
+    public static final String GLOBAL_SCOPE_VALUE = "*";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "rule_key", nullable = false, length = 32)
+    private BusinessRuleKey ruleKey;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 8)
+    private BusinessRuleScope scope;
+
+    @Column(name = "scope_value", nullable = false, length = 64)
+    private String scopeValue;
+
+    @Column(name = "rule_value", nullable = false, length = 64)
+    private String value;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @Column(name = "updated_by", length = 100)
+    private String updatedBy;
+}
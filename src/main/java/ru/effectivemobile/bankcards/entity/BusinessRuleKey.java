@@ -0,0 +1,9 @@
+package ru.effectivemobile.bankcards.entity;
+
+public enum BusinessRuleKey {
+    MIN_CARD_BALANCE,
+    MAX_TRANSFER_AMOUNT,
+    MIN_TRANSFER_AMOUNT,
+    MAX_CARDS_PER_USER,
+    MIN_INITIAL_BALANCE
+}
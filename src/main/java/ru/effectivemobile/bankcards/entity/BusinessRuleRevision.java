@@ -0,0 +1,18 @@
+package ru.effectivemobile.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+
+// Ревизия набора правил: увеличивается в транзакции каждого изменения business_rule.
+// Строка одна (id = 1); её блокировка упорядочивает изменения, поэтому ревизии коммитятся по возрастанию
+@Entity
+@Table(name = "business_rule_revision")
+@Getter
+public class BusinessRuleRevision {
+
+    @Id
+    private Integer id;
+
+    @Column(nullable = false)
+    private Long revision;
+}
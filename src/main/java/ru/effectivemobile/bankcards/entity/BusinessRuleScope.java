@@ -0,0 +1,8 @@
+package ru.effectivemobile.bankcards.entity;
+
+// GLOBAL — для всех, ROLE — scopeValue содержит имя роли, USER — id пользователя
+public enum BusinessRuleScope {
+    GLOBAL,
+    ROLE,
+    USER
+}
@@ -10,7 +10,13 @@ import java.math.BigDecimal;
 import java.time.YearMonth;
 
 @Entity
-@Table(name = "card")
+@Table(name = "card",
+        indexes = {
+                @Index(name = "idx_card_status_expiry_date", columnList = "status, expiry_date"),
+                @Index(name = "idx_card_user_id_id", columnList = "user_id, id"),
+                @Index(name = "idx_card_status_id", columnList = "status, id"),
+                @Index(name = "idx_card_expiry_date_id", columnList = "expiry_date, id")
+        })
 public class Card {
 
     @Id
@@ -25,9 +31,16 @@ public class Card {
     @Column(name = "encrypted_pan", nullable = false)
     private String encryptedPan;
 
+    @Column(name = "pan_hash", unique = true, length = 64)
+    private String panHash;
+
+    @Column(name = "pan_last4", length = 4)
+    private String panLast4;
+
     @Column(name = "owner_name", nullable = false)
     private String ownerName;
 
+    @Convert(converter = YearMonthDateConverter.class)
     @Column(name = "expiry_date", nullable = false)
     private YearMonth expiryDate;
 
@@ -37,6 +50,12 @@ public class Card {
 
     @Column(nullable = false, precision = 19, scale = 2)
     private BigDecimal balance = BigDecimal.ZERO;
+
+    // Оптимистическая блокировка: параллельные изменения карты не перезаписывают друг друга
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
 
@@ -46,6 +65,12 @@ public class Card {
     public String getEncryptedPan() { return encryptedPan; }
     public void setEncryptedPan(String encryptedPan) { this.encryptedPan = encryptedPan; }
 
+    public String getPanHash() { return panHash; }
+    public void setPanHash(String panHash) { this.panHash = panHash; }
+
+    public String getPanLast4() { return panLast4; }
+    public void setPanLast4(String panLast4) { this.panLast4 = panLast4; }
+
     public String getOwnerName() { return ownerName; }
     public void setOwnerName(String ownerName) { this.ownerName = ownerName; }
 
@@ -57,4 +82,7 @@ public class Card {
 
     public BigDecimal getBalance() { return balance; }
     public void setBalance(BigDecimal balance) { this.balance = balance; }
-}
\ No newline at end of file
+
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+}
@@ -8,7 +8,11 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "card_audit")
+@Table(name = "card_audit",
+        indexes = {
+                @Index(name = "idx_card_audit_card_id_created_at_id", columnList = "card_id, created_at, id"),
+                @Index(name = "idx_card_audit_user_id_created_at_id", columnList = "user_id, created_at, id")
+        })
 @Getter
 @Setter
 public class CardAudit {
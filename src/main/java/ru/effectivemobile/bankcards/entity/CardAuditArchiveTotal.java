@@ -0,0 +1,30 @@
+package ru.effectivemobile.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Итог по балансовым записям аудита из архивированных партиций: сверка прибавляет его к сумме по card_audit,
+// поэтому отсоединение старых партиций не меняет ожидаемый баланс карты
+@Entity
+@Table(name = "card_audit_archive_total")
+@Getter
+@Setter
+public class CardAuditArchiveTotal {
+
+    @Id
+    @Column(name = "card_id")
+    private Long cardId;
+
+    @Column(name = "expected_delta", nullable = false, precision = 19, scale = 2)
+    private BigDecimal expectedDelta;
+
+    @Column(name = "audit_rows", nullable = false)
+    private long auditRows;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,36 @@
+package ru.effectivemobile.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import org.hibernate.annotations.Immutable;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Баланс карты по всем проводкам с id <= lastEntryId
+@Entity
+@Table(name = "card_balance_snapshot",
+        indexes = {
+                @Index(name = "idx_card_balance_snapshot_card_entry", columnList = "card_id, last_entry_id"),
+                @Index(name = "idx_card_balance_snapshot_last_entry", columnList = "last_entry_id")
+        })
+@Immutable
+@Getter
+public class CardBalanceSnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "card_id", nullable = false)
+    private Long cardId;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal balance;
+
+    @Column(name = "last_entry_id", nullable = false)
+    private Long lastEntryId;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,6 @@
+package ru.effectivemobile.bankcards.entity;
+
+public enum LedgerDirection {
+    DEBIT,
+    CREDIT
+}
@@ -0,0 +1,49 @@
+package ru.effectivemobile.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import org.hibernate.annotations.Immutable;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Неизменяемая проводка. Проводки одной операции имеют общий transactionId и в сумме дают ноль.
+// Вставляются только через LedgerService (JDBC batch); вторичные индексы только по карте, чтобы вставка оставалась дешёвой
+@Entity
+@Table(name = "ledger_entry",
+        indexes = {
+                @Index(name = "idx_ledger_entry_card_id_id", columnList = "card_id, id"),
+                @Index(name = "idx_ledger_entry_card_id_created_at", columnList = "card_id, created_at")
+        })
+@Immutable
+@Getter
+public class LedgerEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "transaction_id", nullable = false, length = 36)
+    private String transactionId;
+
+    // null — внешний счёт банка (источник начального баланса карты)
+    @Column(name = "card_id")
+    private Long cardId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private LedgerDirection direction;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "entry_type", nullable = false, length = 20)
+    private LedgerEntryType entryType;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal amount;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
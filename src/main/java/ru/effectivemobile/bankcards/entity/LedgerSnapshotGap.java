@@ -0,0 +1,23 @@
+package ru.effectivemobile.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import org.hibernate.annotations.Immutable;
+
+import java.time.LocalDateTime;
+
+// Пропущенный id в диапазоне, уже вошедшем в снимки. Если проводка с этим id закоммитится позже,
+// она досчитывается в снимки карты при следующем запуске
+@Entity
+@Table(name = "ledger_snapshot_gap")
+@Immutable
+@Getter
+public class LedgerSnapshotGap {
+
+    @Id
+    @Column(name = "entry_id")
+    private Long entryId;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
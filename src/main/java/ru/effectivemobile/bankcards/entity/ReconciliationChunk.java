@@ -0,0 +1,39 @@
+package ru.effectivemobile.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+// Чекпоинт сверки: диапазон id карт (fromCardId, toCardId]. completedAt = null — диапазон ещё не сверен
+@Entity
+@Table(name = "reconciliation_chunk",
+        uniqueConstraints = @UniqueConstraint(name = "uk_reconciliation_chunk_run_from",
+                columnNames = {"run_id", "from_card_id"}))
+@Getter
+@Setter
+public class ReconciliationChunk {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "run_id", nullable = false)
+    private Long runId;
+
+    @Column(name = "from_card_id", nullable = false)
+    private Long fromCardId;
+
+    @Column(name = "to_card_id", nullable = false)
+    private Long toCardId;
+
+    @Column(name = "cards_checked", nullable = false)
+    private long cardsChecked;
+
+    @Column(name = "audit_rows", nullable = false)
+    private long auditRows;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+}
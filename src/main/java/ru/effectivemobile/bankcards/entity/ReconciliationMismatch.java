@@ -0,0 +1,40 @@
+package ru.effectivemobile.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Расхождение card.balance с балансом по аудиту. Неподтверждённое перепроверяется в конце запуска:
+// аудит пишется асинхронно и может отставать от баланса карты
+@Entity
+@Table(name = "reconciliation_mismatch",
+        indexes = @Index(name = "idx_reconciliation_mismatch_run_id", columnList = "run_id"))
+@Getter
+@Setter
+public class ReconciliationMismatch {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "run_id", nullable = false)
+    private Long runId;
+
+    @Column(name = "card_id", nullable = false)
+    private Long cardId;
+
+    @Column(name = "card_balance", nullable = false, precision = 19, scale = 2)
+    private BigDecimal cardBalance;
+
+    @Column(name = "audit_balance", nullable = false, precision = 19, scale = 2)
+    private BigDecimal auditBalance;
+
+    @Column(nullable = false)
+    private boolean confirmed;
+
+    @Column(name = "detected_at", nullable = false)
+    private LocalDateTime detectedAt;
+}
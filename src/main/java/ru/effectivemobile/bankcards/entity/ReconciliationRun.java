@@ -0,0 +1,42 @@
+package ru.effectivemobile.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+// Запуск сверки балансов карт с аудитом. Незавершённый запуск продолжается при следующем старте job
+@Entity
+@Table(name = "reconciliation_run")
+@Getter
+@Setter
+public class ReconciliationRun {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private ReconciliationStatus status;
+
+    // Карты с id больше maxCardId появились после старта и в этот запуск не входят
+    @Column(name = "max_card_id", nullable = false)
+    private Long maxCardId;
+
+    @Column(name = "cards_checked", nullable = false)
+    private long cardsChecked;
+
+    @Column(name = "audit_rows", nullable = false)
+    private long auditRows;
+
+    @Column(nullable = false)
+    private int mismatches;
+
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+}
@@ -0,0 +1,46 @@
+package ru.effectivemobile.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Часовой агрегат исходящих переводов карты или пользователя. Узлы прибавляют к строке
+// свои приращения; updatedAt позволяет другим узлам забирать только изменившиеся строки
+@Entity
+@Table(name = "velocity_bucket",
+        uniqueConstraints = @UniqueConstraint(name = "uk_velocity_bucket_subject_start",
+                columnNames = {"subject_type", "subject_id", "bucket_start"}),
+        indexes = {
+                @Index(name = "idx_velocity_bucket_updated_at", columnList = "updated_at"),
+                @Index(name = "idx_velocity_bucket_start", columnList = "bucket_start")
+        })
+@Getter
+@Setter
+public class VelocityBucket {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "subject_type", nullable = false, length = 8)
+    private VelocitySubject subjectType;
+
+    @Column(name = "subject_id", nullable = false)
+    private Long subjectId;
+
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal amount;
+
+    @Column(name = "transfer_count", nullable = false)
+    private int transferCount;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,22 @@
+package ru.effectivemobile.bankcards.entity;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.sql.Date;
+import java.time.YearMonth;
+
+// Срок действия хранится как DATE первого дня месяца (см. V001), чтобы его можно было сравнивать в SQL
+@Converter
+public class YearMonthDateConverter implements AttributeConverter<YearMonth, Date> {
+
+    @Override
+    public Date convertToDatabaseColumn(YearMonth yearMonth) {
+        return yearMonth == null ? null : Date.valueOf(yearMonth.atDay(1));
+    }
+
+    @Override
+    public YearMonth convertToEntityAttribute(Date date) {
+        return date == null ? null : YearMonth.from(date.toLocalDate());
+    }
+}
@@ -0,0 +1,7 @@
+package ru.effectivemobile.bankcards.exception;
+
+public class BusinessRuleNotFoundException extends RuntimeException {
+    public BusinessRuleNotFoundException(Long ruleId) {
+        super("Business rule not found with id: " + ruleId);
+    }
+}
@@ -0,0 +1,7 @@
+package ru.effectivemobile.bankcards.exception;
+
+public class CardLockTimeoutException extends RuntimeException {
+    public CardLockTimeoutException(String message) {
+        super(message);
+    }
+}
@@ -1,5 +1,6 @@
 package ru.effectivemobile.bankcards.exception;
 
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ProblemDetail;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -26,6 +27,13 @@ public class GlobalExceptionHandler {
         return problemDetail;
     }
 
+    @ExceptionHandler(BusinessRuleNotFoundException.class)
+    ProblemDetail handleBusinessRuleNotFound(BusinessRuleNotFoundException ex) {
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(HttpStatus.NOT_FOUND, ex.getMessage());
+        problemDetail.setTitle("Business Rule Not Found");
+        return problemDetail;
+    }
+
     @ExceptionHandler(InsufficientFundsException.class)
     ProblemDetail handleInsufficientFunds(InsufficientFundsException ex) {
         ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, ex.getMessage());
@@ -33,6 +41,13 @@ public class GlobalExceptionHandler {
         return problemDetail;
     }
 
+    @ExceptionHandler(VelocityLimitExceededException.class)
+    ProblemDetail handleVelocityLimitExceeded(VelocityLimitExceededException ex) {
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, ex.getMessage());
+        problemDetail.setTitle("Transfer Limit Exceeded");
+        return problemDetail;
+    }
+
     @ExceptionHandler(CardNotActiveException.class)
     ProblemDetail handleCardNotActive(CardNotActiveException ex) {
         ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, ex.getMessage());
@@ -47,6 +62,29 @@ public class GlobalExceptionHandler {
         return problemDetail;
     }
 
+    // Конфликт конкурентного изменения, не устранённый повторами
+    @ExceptionHandler(ConcurrencyFailureException.class)
+    ProblemDetail handleConcurrencyFailure(ConcurrencyFailureException ex) {
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(
+                HttpStatus.CONFLICT, "Card was modified concurrently, please retry");
+        problemDetail.setTitle("Concurrent Modification");
+        return problemDetail;
+    }
+
+    @ExceptionHandler(CardLockTimeoutException.class)
+    ProblemDetail handleCardLockTimeout(CardLockTimeoutException ex) {
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage());
+        problemDetail.setTitle("Card Busy");
+        return problemDetail;
+    }
+
+    @ExceptionHandler(IdempotencyConflictException.class)
+    ProblemDetail handleIdempotencyConflict(IdempotencyConflictException ex) {
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(HttpStatus.CONFLICT, ex.getMessage());
+        problemDetail.setTitle("Idempotency Conflict");
+        return problemDetail;
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     ProblemDetail handleValidationExceptions(MethodArgumentNotValidException ex) {
         Map<String, String> errors = new HashMap<>();
@@ -0,0 +1,7 @@
+package ru.effectivemobile.bankcards.exception;
+
+public class VelocityLimitExceededException extends RuntimeException {
+    public VelocityLimitExceededException(String message) {
+        super(message);
+    }
+}
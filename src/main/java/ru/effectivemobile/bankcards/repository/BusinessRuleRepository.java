@@ -0,0 +1,19 @@
+package ru.effectivemobile.bankcards.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import ru.effectivemobile.bankcards.entity.BusinessRule;
+import ru.effectivemobile.bankcards.entity.BusinessRuleKey;
+import ru.effectivemobile.bankcards.entity.BusinessRuleScope;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface BusinessRuleRepository extends JpaRepository<BusinessRule, Long> {
+
+    Optional<BusinessRule> findByRuleKeyAndScopeAndScopeValue(BusinessRuleKey ruleKey, BusinessRuleScope scope,
+                                                              String scopeValue);
+
+    List<BusinessRule> findAllByOrderByRuleKeyAscScopeAscScopeValueAsc();
+}
@@ -6,10 +6,12 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 import ru.effectivemobile.bankcards.entity.CardAudit;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface CardAuditRepository extends JpaRepository<CardAudit, Long> {
+public interface CardAuditRepository extends JpaRepository<CardAudit, Long>, CardAuditRepositoryCustom {
 
     List<CardAudit> findByCardId(Long cardId);
 
@@ -18,4 +20,8 @@ public interface CardAuditRepository extends JpaRepository<CardAudit, Long> {
     List<CardAudit> findByUserId(Long userId);
 
     Page<CardAudit> findByUserId(Long userId, Pageable pageable);
+
+    // Последнее изменение баланса не позже asOf: один проход по индексу (card_id, created_at)
+    Optional<CardAudit> findFirstByCardIdAndCreatedAtLessThanEqualAndNewBalanceIsNotNullOrderByCreatedAtDescIdDesc(
+            Long cardId, LocalDateTime asOf);
 }
\ No newline at end of file
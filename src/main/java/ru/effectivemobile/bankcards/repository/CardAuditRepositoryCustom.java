@@ -0,0 +1,17 @@
+package ru.effectivemobile.bankcards.repository;
+
+import org.springframework.data.domain.Sort;
+import ru.effectivemobile.bankcards.entity.AuditAction;
+import ru.effectivemobile.bankcards.entity.CardAudit;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface CardAuditRepositoryCustom {
+
+    // Keyset-страница аудита по (created_at, id) строго после (afterCreatedAt, afterId).
+    // Задаётся ровно один из cardId/userId; action, from (включительно) и to (исключительно) необязательны
+    List<CardAudit> findPageAfter(Long cardId, Long userId, AuditAction action,
+                                  LocalDateTime from, LocalDateTime to, Sort.Direction direction,
+                                  LocalDateTime afterCreatedAt, Long afterId, int limit);
+}
@@ -0,0 +1,65 @@
+package ru.effectivemobile.bankcards.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import org.springframework.data.domain.Sort;
+import ru.effectivemobile.bankcards.entity.AuditAction;
+import ru.effectivemobile.bankcards.entity.CardAudit;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+public class CardAuditRepositoryCustomImpl implements CardAuditRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<CardAudit> findPageAfter(Long cardId, Long userId, AuditAction action,
+                                         LocalDateTime from, LocalDateTime to, Sort.Direction direction,
+                                         LocalDateTime afterCreatedAt, Long afterId, int limit) {
+        String comparison = direction.isAscending() ? ">" : "<";
+        String order = direction.isAscending() ? "ASC" : "DESC";
+
+        List<String> conditions = new ArrayList<>();
+        List<Object> params = new ArrayList<>();
+        // Префикс индекса (card_id|user_id, created_at, id): фильтр по владельцу и диапазону времени
+        // читает только нужный участок индекса
+        if (cardId != null) {
+            conditions.add("card_id = ?");
+            params.add(cardId);
+        } else {
+            conditions.add("user_id = ?");
+            params.add(userId);
+        }
+        if (from != null) {
+            conditions.add("created_at >= ?");
+            params.add(from);
+        }
+        if (to != null) {
+            conditions.add("created_at < ?");
+            params.add(to);
+        }
+        if (afterId != null) {
+            conditions.add("(created_at, id) " + comparison + " (?, ?)");
+            params.add(afterCreatedAt);
+            params.add(afterId);
+        }
+        if (action != null) {
+            conditions.add("action = ?");
+            params.add(action.name());
+        }
+
+        String sql = "SELECT * FROM card_audit WHERE " + String.join(" AND ", conditions)
+                + " ORDER BY created_at " + order + ", id " + order;
+
+        Query query = entityManager.createNativeQuery(sql, CardAudit.class);
+        for (int i = 0; i < params.size(); i++) {
+            query.setParameter(i + 1, params.get(i));
+        }
+        return query.setMaxResults(limit).getResultList();
+    }
+}
@@ -3,25 +3,71 @@ package ru.effectivemobile.bankcards.repository;
 import ru.effectivemobile.bankcards.entity.Card;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.effectivemobile.bankcards.entity.CardStatus;
 
+import java.math.BigDecimal;
 import java.time.YearMonth;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface CardRepository extends JpaRepository<Card, Long> {
+public interface CardRepository extends JpaRepository<Card, Long>, CardRepositoryCustom {
     List<Card> findByUserId(Long userId);
 
+    long countByUserId(Long userId);
+
     Page<Card> findByUserId(Long userId, Pageable pageable);
 
     Page<Card> findByStatus(CardStatus status, Pageable pageable);
 
     Page<Card> findByUserIdAndStatus(Long userId, CardStatus status, Pageable pageable);
 
-    @Query("SELECT c FROM Card c WHERE c.expiryDate < :currentDate AND c.status = 'ACTIVE'")
-    List<Card> findExpiredCards(@Param("currentDate") YearMonth currentDate);
-}
\ No newline at end of file
+    boolean existsByPanHash(String panHash);
+
+    Optional<Card> findByPanHash(String panHash);
+
+    @Query("SELECT c FROM Card c WHERE c.id > :afterId AND (c.panHash IS NULL OR c.panLast4 IS NULL) ORDER BY c.id")
+    List<Card> findCardsToBackfill(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Блокировка строк в порядке id одним запросом
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Card c WHERE c.id IN :ids ORDER BY c.id")
+    List<Card> findAllByIdForUpdate(@Param("ids") Collection<Long> ids);
+
+    // Карты без начального баланса в книге, по возрастанию id
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Card c WHERE c.id > :afterId AND NOT EXISTS (" +
+            "SELECT l.id FROM LedgerEntry l WHERE l.cardId = c.id " +
+            "AND l.entryType = ru.effectivemobile.bankcards.entity.LedgerEntryType.OPENING_BALANCE) ORDER BY c.id")
+    List<Card> findWithoutOpeningBalanceForUpdate(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Списание одним UPDATE: строка меняется, только если карта принадлежит пользователю,
+    // активна, не просрочена и после списания баланс не ниже минимального. Возвращает число изменённых строк
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Card c SET c.balance = c.balance - :amount, c.version = c.version + 1 " +
+            "WHERE c.id = :cardId AND c.userId = :userId AND c.status = 'ACTIVE' " +
+            "AND c.expiryDate >= :currentMonth AND c.balance - :amount >= :minBalance")
+    int debit(@Param("cardId") Long cardId,
+              @Param("userId") Long userId,
+              @Param("amount") BigDecimal amount,
+              @Param("minBalance") BigDecimal minBalance,
+              @Param("currentMonth") YearMonth currentMonth);
+
+    // Зачисление одним UPDATE на активную непросроченную карту пользователя
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Card c SET c.balance = c.balance + :amount, c.version = c.version + 1 " +
+            "WHERE c.id = :cardId AND c.userId = :userId AND c.status = 'ACTIVE' " +
+            "AND c.expiryDate >= :currentMonth")
+    int credit(@Param("cardId") Long cardId,
+               @Param("userId") Long userId,
+               @Param("amount") BigDecimal amount,
+               @Param("currentMonth") YearMonth currentMonth);
+}
@@ -0,0 +1,21 @@
+package ru.effectivemobile.bankcards.repository;
+
+import org.springframework.data.domain.Sort;
+import ru.effectivemobile.bankcards.entity.Card;
+import ru.effectivemobile.bankcards.entity.CardStatus;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+
+public interface CardRepositoryCustom {
+
+    // Применяет суммарные изменения балансов одним JDBC-пакетом; карты должны быть заблокированы вызывающим
+    void applyBalanceDeltas(Map<Long, BigDecimal> deltas);
+
+    // Keyset-страница: карты строго после (afterExpiryDate, afterId) в заданном порядке, без OFFSET и COUNT.
+    // userId и status необязательны; afterId == null — первая страница
+    List<Card> findPageAfter(Long userId, CardStatus status, CardSortKey sortKey, Sort.Direction direction,
+                             YearMonth afterExpiryDate, Long afterId, int limit);
+}
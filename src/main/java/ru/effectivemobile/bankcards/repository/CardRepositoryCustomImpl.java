@@ -0,0 +1,95 @@
+package ru.effectivemobile.bankcards.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.effectivemobile.bankcards.entity.Card;
+import ru.effectivemobile.bankcards.entity.CardStatus;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@RequiredArgsConstructor
+public class CardRepositoryCustomImpl implements CardRepositoryCustom {
+
+    private static final String APPLY_DELTA_SQL =
+            "UPDATE card SET balance = balance + ?, version = version + 1 WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public void applyBalanceDeltas(Map<Long, BigDecimal> deltas) {
+        // Порядок по id карты, как и у одиночных переводов
+        List<Object[]> args = new ArrayList<>(deltas.size());
+        new TreeMap<>(deltas).forEach((cardId, delta) -> {
+            if (delta.signum() != 0) {
+                args.add(new Object[]{delta, cardId});
+            }
+        });
+
+        if (args.isEmpty()) {
+            return;
+        }
+
+        // Как у @Modifying(flushAutomatically, clearAutomatically): загруженные карты после UPDATE устаревают
+        entityManager.flush();
+        jdbcTemplate.batchUpdate(APPLY_DELTA_SQL, args);
+        entityManager.clear();
+    }
+
+    // Нативный SQL ради сравнения строк (expiry_date, id) > (?, ?): в таком виде условие
+    // становится границей диапазона индекса, и цена страницы не зависит от её номера
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Card> findPageAfter(Long userId, CardStatus status, CardSortKey sortKey, Sort.Direction direction,
+                                    YearMonth afterExpiryDate, Long afterId, int limit) {
+        String comparison = direction.isAscending() ? ">" : "<";
+        String order = direction.isAscending() ? "ASC" : "DESC";
+
+        List<String> conditions = new ArrayList<>();
+        List<Object> params = new ArrayList<>();
+        if (userId != null) {
+            conditions.add("user_id = ?");
+            params.add(userId);
+        }
+        if (status != null) {
+            conditions.add("status = ?");
+            params.add(status.name());
+        }
+        if (afterId != null) {
+            if (sortKey == CardSortKey.ID) {
+                conditions.add("id " + comparison + " ?");
+            } else {
+                conditions.add("(" + sortKey.getColumn() + ", id) " + comparison + " (?, ?)");
+                params.add(afterExpiryDate.atDay(1));
+            }
+            params.add(afterId);
+        }
+
+        StringBuilder sql = new StringBuilder("SELECT * FROM card");
+        if (!conditions.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        sql.append(" ORDER BY ");
+        if (sortKey != CardSortKey.ID) {
+            sql.append(sortKey.getColumn()).append(' ').append(order).append(", ");
+        }
+        sql.append("id ").append(order);
+
+        Query query = entityManager.createNativeQuery(sql.toString(), Card.class);
+        for (int i = 0; i < params.size(); i++) {
+            query.setParameter(i + 1, params.get(i));
+        }
+        return query.setMaxResults(limit).getResultList();
+    }
+}
@@ -0,0 +1,33 @@
+package ru.effectivemobile.bankcards.repository;
+
+// Порядки, доступные для keyset-пагинации карт: для каждого есть индекс, оканчивающийся на id.
+// Сортировки по балансу нет намеренно: индекс по balance обновлялся бы при каждом переводе
+public enum CardSortKey {
+    ID("id", "id"),
+    EXPIRY_DATE("expiryDate", "expiry_date");
+
+    private final String property;
+    private final String column;
+
+    CardSortKey(String property, String column) {
+        this.property = property;
+        this.column = column;
+    }
+
+    public String getColumn() {
+        return column;
+    }
+
+    // sortBy == null — сортировка по id
+    public static CardSortKey fromProperty(String sortBy) {
+        if (sortBy == null || sortBy.isBlank()) {
+            return ID;
+        }
+        for (CardSortKey key : values()) {
+            if (key.property.equals(sortBy)) {
+                return key;
+            }
+        }
+        throw new IllegalArgumentException("Cursor pagination supports sorting only by id or expiryDate");
+    }
+}
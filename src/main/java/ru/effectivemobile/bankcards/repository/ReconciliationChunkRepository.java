@@ -0,0 +1,21 @@
+package ru.effectivemobile.bankcards.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import ru.effectivemobile.bankcards.entity.ReconciliationChunk;
+
+import java.util.List;
+
+@Repository
+public interface ReconciliationChunkRepository extends JpaRepository<ReconciliationChunk, Long> {
+
+    List<ReconciliationChunk> findByRunIdAndCompletedAtIsNullOrderByFromCardId(Long runId);
+
+    @Query("SELECT COALESCE(SUM(c.cardsChecked), 0) FROM ReconciliationChunk c WHERE c.runId = :runId")
+    long sumCardsChecked(@Param("runId") Long runId);
+
+    @Query("SELECT COALESCE(SUM(c.auditRows), 0) FROM ReconciliationChunk c WHERE c.runId = :runId")
+    long sumAuditRows(@Param("runId") Long runId);
+}
@@ -0,0 +1,17 @@
+package ru.effectivemobile.bankcards.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import ru.effectivemobile.bankcards.entity.ReconciliationMismatch;
+
+import java.util.List;
+
+@Repository
+public interface ReconciliationMismatchRepository extends JpaRepository<ReconciliationMismatch, Long> {
+
+    List<ReconciliationMismatch> findByRunId(Long runId);
+
+    List<ReconciliationMismatch> findByRunIdAndConfirmedFalse(Long runId);
+
+    long countByRunIdAndConfirmedTrue(Long runId);
+}
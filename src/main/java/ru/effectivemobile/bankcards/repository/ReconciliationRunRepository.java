@@ -0,0 +1,14 @@
+package ru.effectivemobile.bankcards.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import ru.effectivemobile.bankcards.entity.ReconciliationRun;
+import ru.effectivemobile.bankcards.entity.ReconciliationStatus;
+
+import java.util.Optional;
+
+@Repository
+public interface ReconciliationRunRepository extends JpaRepository<ReconciliationRun, Long> {
+
+    Optional<ReconciliationRun> findFirstByStatusOrderByIdDesc(ReconciliationStatus status);
+}
@@ -0,0 +1,13 @@
+package ru.effectivemobile.bankcards.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import ru.effectivemobile.bankcards.entity.SchedulerLock;
+
+import java.util.List;
+
+@Repository
+public interface SchedulerLockRepository extends JpaRepository<SchedulerLock, String> {
+
+    List<SchedulerLock> findAllByOrderByName();
+}
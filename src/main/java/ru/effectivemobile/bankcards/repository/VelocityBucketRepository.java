@@ -0,0 +1,18 @@
+package ru.effectivemobile.bankcards.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import ru.effectivemobile.bankcards.entity.VelocityBucket;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface VelocityBucketRepository extends JpaRepository<VelocityBucket, Long> {
+
+    @Modifying
+    @Query("DELETE FROM VelocityBucket b WHERE b.bucketStart < :before")
+    int deleteOlderThan(@Param("before") LocalDateTime before);
+}
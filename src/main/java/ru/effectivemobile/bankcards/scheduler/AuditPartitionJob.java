@@ -0,0 +1,45 @@
+package ru.effectivemobile.bankcards.scheduler;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.effectivemobile.bankcards.service.audit.AuditPartitionService;
+import ru.effectivemobile.bankcards.service.clusterlock.ClusterLocked;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AuditPartitionJob {
+
+    private final AuditPartitionService auditPartitionService;
+
+    // Партиции создаются с запасом premakeMonths, поэтому пропуск нескольких запусков не останавливает запись аудита
+    @Scheduled(cron = "${audit.partitioning.cron:0 45 3 * * *}")
+    @ClusterLocked(value = "audit-partitions", lockAtLeastFor = "1m")
+    public void maintainPartitions() {
+        try {
+            int created = auditPartitionService.ensureFuturePartitions();
+            int archived = auditPartitionService.archiveExpired();
+            if (created > 0 || archived > 0) {
+                log.info("Audit partitions: {} created, {} archived", created, archived);
+            }
+        } catch (Exception e) {
+            log.error("Error maintaining audit partitions", e);
+        }
+    }
+
+    // После долгого простоя партиции текущего месяца может не быть — создаём сразу при старте.
+    // DDL выполняет один узел; остальные при одновременном старте пропускают шаг
+    @EventListener(ApplicationReadyEvent.class)
+    @ClusterLocked("audit-partitions")
+    public void ensurePartitionsOnStartup() {
+        try {
+            auditPartitionService.ensureFuturePartitions();
+        } catch (Exception e) {
+            log.error("Error creating audit partitions on startup", e);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package ru.effectivemobile.bankcards.scheduler;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.effectivemobile.bankcards.service.rules.BusinessRuleEngine;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class BusinessRuleReloadJob {
+
+    private final BusinessRuleEngine businessRuleEngine;
+
+    // Выполняется на каждом узле: у каждого своя копия набора правил
+    @Scheduled(fixedDelayString = "${business.rules.poll-interval:PT30S}")
+    public void reloadIfChanged() {
+        try {
+            businessRuleEngine.reloadIfChanged();
+        } catch (Exception e) {
+            log.error("Error polling business rules", e);
+        }
+    }
+}
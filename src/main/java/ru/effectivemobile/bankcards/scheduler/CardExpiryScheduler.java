@@ -4,23 +4,39 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import ru.effectivemobile.bankcards.service.CardService;
+import ru.effectivemobile.bankcards.service.clusterlock.ClusterLocked;
+import ru.effectivemobile.bankcards.service.expiry.CardExpiryService;
 
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class CardExpiryScheduler {
 
-    private final CardService cardService;
+    private final CardExpiryService cardExpiryService;
 
-    @Scheduled(cron = "0 0 0 * * *")
+    // Первый момент месяца: истекают карты прошлых месяцев, найденные по индексу сроков
+    @Scheduled(cron = "${card.expiry.cron:0 0 0 1 * *}")
+    @ClusterLocked(value = "card-expiry", lockAtLeastFor = "1m")
+    public void expireDueCards() {
+        log.info("Expiring cards at month boundary...");
+        try {
+            int expired = cardExpiryService.expireDueMonths();
+            log.info("Month boundary expiry completed, {} cards expired", expired);
+        } catch (Exception e) {
+            log.error("Error expiring cards at month boundary", e);
+        }
+    }
+
+    // Страховочный проход для карт, пропущенных месячным запуском (например, узел был недоступен)
+    @Scheduled(cron = "${card.expiry.fallback-cron:0 30 3 * * *}")
+    @ClusterLocked(value = "card-expiry", lockAtLeastFor = "1m")
     public void checkExpiredCards() {
         log.info("Checking for expired cards...");
         try {
-            cardService.checkAndUpdateExpiredCards();
-            log.info("Expired cards check completed");
+            int expired = cardExpiryService.expireCards();
+            log.info("Expired cards check completed, {} cards expired", expired);
         } catch (Exception e) {
             log.error("Error checking expired cards", e);
         }
     }
-}
\ No newline at end of file
+}
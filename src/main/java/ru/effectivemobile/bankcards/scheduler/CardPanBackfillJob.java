@@ -0,0 +1,43 @@
+package ru.effectivemobile.bankcards.scheduler;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.effectivemobile.bankcards.service.clusterlock.ClusterLocked;
+import ru.effectivemobile.bankcards.service.encryption.PanBackfillService;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CardPanBackfillJob {
+
+    private final PanBackfillService panBackfillService;
+
+    @Value("${encryption.backfill.enabled:true}")
+    private boolean enabled;
+
+    @Value("${encryption.backfill.batch-size:500}")
+    private int batchSize;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @ClusterLocked("pan-backfill")
+    public void backfillPanColumns() {
+        if (!enabled) {
+            return;
+        }
+        log.info("Backfilling derived PAN columns (hash, last 4 digits)...");
+        try {
+            long processed = 0;
+            Long lastId = 0L;
+            while ((lastId = panBackfillService.backfillBatch(lastId, batchSize)) != null) {
+                processed++;
+            }
+            log.info("PAN columns backfill completed, {} batches processed", processed);
+        } catch (Exception e) {
+            log.error("Error backfilling PAN columns", e);
+        }
+    }
+}
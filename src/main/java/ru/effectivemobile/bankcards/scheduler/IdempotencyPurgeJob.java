@@ -0,0 +1,29 @@
+package ru.effectivemobile.bankcards.scheduler;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.effectivemobile.bankcards.service.clusterlock.ClusterLocked;
+import ru.effectivemobile.bankcards.service.idempotency.IdempotencyService;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class IdempotencyPurgeJob {
+
+    private final IdempotencyService idempotencyService;
+
+    @Scheduled(fixedDelayString = "${idempotency.purge-interval:PT1H}")
+    @ClusterLocked("idempotency-purge")
+    public void purgeExpiredKeys() {
+        try {
+            int purged = idempotencyService.purgeExpired();
+            if (purged > 0) {
+                log.info("Purged {} expired idempotency keys", purged);
+            }
+        } catch (Exception e) {
+            log.error("Error purging expired idempotency keys", e);
+        }
+    }
+}
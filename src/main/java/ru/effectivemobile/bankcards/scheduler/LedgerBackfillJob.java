@@ -0,0 +1,42 @@
+package ru.effectivemobile.bankcards.scheduler;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.effectivemobile.bankcards.service.clusterlock.ClusterLocked;
+import ru.effectivemobile.bankcards.config.LedgerConfig;
+import ru.effectivemobile.bankcards.service.ledger.LedgerService;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LedgerBackfillJob {
+
+    private final LedgerService ledgerService;
+    private final LedgerConfig config;
+
+    @Value("${ledger.backfill.enabled:true}")
+    private boolean enabled;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @ClusterLocked("ledger-backfill")
+    public void backfillOpeningBalances() {
+        if (!enabled) {
+            return;
+        }
+        log.info("Backfilling opening balances into the ledger...");
+        try {
+            long processed = 0;
+            Long lastId = 0L;
+            while ((lastId = ledgerService.backfillOpeningBalances(lastId, config.getBackfillBatchSize())) != null) {
+                processed++;
+            }
+            log.info("Ledger opening balances backfill completed, {} batches processed", processed);
+        } catch (Exception e) {
+            log.error("Error backfilling ledger opening balances", e);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package ru.effectivemobile.bankcards.scheduler;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.effectivemobile.bankcards.service.clusterlock.ClusterLocked;
+import ru.effectivemobile.bankcards.config.LedgerConfig;
+import ru.effectivemobile.bankcards.service.ledger.LedgerService;
+
+import java.time.LocalDateTime;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LedgerSnapshotJob {
+
+    private final LedgerService ledgerService;
+    private final LedgerConfig config;
+
+    @Scheduled(fixedDelayString = "${ledger.snapshot-interval:PT5M}")
+    @ClusterLocked("ledger-snapshot")
+    public void takeSnapshots() {
+        try {
+            int written = ledgerService.takeSnapshots(LocalDateTime.now().minus(config.getSnapshotSafetyLag()));
+            if (written > 0) {
+                log.info("Written {} card balance snapshots", written);
+            }
+        } catch (Exception e) {
+            log.error("Error taking card balance snapshots", e);
+        }
+    }
+}
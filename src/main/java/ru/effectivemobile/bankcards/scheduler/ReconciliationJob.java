@@ -0,0 +1,43 @@
+package ru.effectivemobile.bankcards.scheduler;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.effectivemobile.bankcards.service.reconciliation.ReconciliationService;
+
+import java.time.Instant;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ReconciliationJob {
+
+    private final ReconciliationService reconciliationService;
+    private final TaskScheduler taskScheduler;
+
+    @Scheduled(cron = "${reconciliation.cron:0 30 2 * * *}")
+    public void reconcileBalances() {
+        log.info("Reconciling card balances against audit history...");
+        try {
+            reconciliationService.reconcile();
+        } catch (Exception e) {
+            log.error("Error reconciling card balances", e);
+        }
+    }
+
+    // Запуск, прерванный рестартом, продолжается сразу, а не в следующее окно cron
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeUnfinishedRun() {
+        try {
+            if (reconciliationService.hasUnfinishedRun()) {
+                taskScheduler.schedule(this::reconcileBalances, Instant.now());
+            }
+        } catch (Exception e) {
+            log.error("Error checking for unfinished reconciliation run", e);
+        }
+    }
+}
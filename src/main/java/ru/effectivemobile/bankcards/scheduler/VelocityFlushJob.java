@@ -0,0 +1,39 @@
+package ru.effectivemobile.bankcards.scheduler;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.effectivemobile.bankcards.service.clusterlock.ClusterLocked;
+import ru.effectivemobile.bankcards.service.velocity.VelocityLimiter;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class VelocityFlushJob {
+
+    private final VelocityLimiter velocityLimiter;
+
+    // Выполняется на каждом узле: у каждого свои незаписанные счётчики
+    @Scheduled(fixedDelayString = "${velocity.flush-interval:PT30S}")
+    public void flush() {
+        try {
+            velocityLimiter.flush();
+        } catch (Exception e) {
+            log.error("Error flushing transfer velocity counters", e);
+        }
+    }
+
+    @Scheduled(cron = "${velocity.purge-cron:0 15 4 * * *}")
+    @ClusterLocked(value = "velocity-purge", lockAtLeastFor = "1m")
+    public void purgeExpired() {
+        try {
+            int purged = velocityLimiter.purgeExpired();
+            if (purged > 0) {
+                log.info("Purged {} expired transfer velocity buckets", purged);
+            }
+        } catch (Exception e) {
+            log.error("Error purging transfer velocity buckets", e);
+        }
+    }
+}
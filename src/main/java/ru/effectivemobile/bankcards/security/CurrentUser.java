@@ -0,0 +1,18 @@
+package ru.effectivemobile.bankcards.security;
+
+import org.springframework.security.core.AuthenticatedPrincipal;
+import ru.effectivemobile.bankcards.entity.Role;
+import ru.effectivemobile.bankcards.entity.User;
+
+// Principal аутентифицированного запроса: заполняется из claims JWT один раз в JwtAuthFilter
+public record CurrentUser(Long id, String email, Role role) implements AuthenticatedPrincipal {
+
+    public static CurrentUser of(User user) {
+        return new CurrentUser(user.getId(), user.getEmail(), user.getRole());
+    }
+
+    @Override
+    public String getName() {
+        return email;
+    }
+}
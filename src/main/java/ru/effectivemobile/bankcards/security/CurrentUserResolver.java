@@ -0,0 +1,66 @@
+package ru.effectivemobile.bankcards.security;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.authentication.AuthenticationCredentialsNotFoundException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import ru.effectivemobile.bankcards.entity.Role;
+import ru.effectivemobile.bankcards.entity.User;
+import ru.effectivemobile.bankcards.exception.UserNotFoundException;
+import ru.effectivemobile.bankcards.repository.UserRepository;
+
+@Component
+@RequiredArgsConstructor
+public class CurrentUserResolver {
+
+    private static final String SYSTEM_USER = "system";
+
+    private final UserRepository userRepository;
+
+    // Для запросов с JWT берётся готовый CurrentUser без обращения к БД.
+    // Поиск по email остаётся только для других типов principal (например, @WithMockUser)
+    public CurrentUser getCurrentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null) {
+            throw new AuthenticationCredentialsNotFoundException("User is not authenticated");
+        }
+
+        if (authentication.getPrincipal() instanceof CurrentUser currentUser) {
+            return currentUser;
+        }
+
+        String email = authentication.getName();
+        return userRepository.findByEmail(email)
+                .map(CurrentUser::of)
+                .orElseThrow(() -> new UserNotFoundException("User not found: " + email));
+    }
+
+    public Long getCurrentUserId() {
+        return getCurrentUser().id();
+    }
+
+    public boolean isAdmin() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.getAuthorities().stream()
+                .anyMatch(authority -> authority.getAuthority().equals("ROLE_ADMIN"));
+    }
+
+    // Роль пользователя: для текущего берётся из JWT, для остальных — из БД
+    public Role getRoleOf(Long userId) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof CurrentUser currentUser
+                && currentUser.id().equals(userId)) {
+            return currentUser.role();
+        }
+        return userRepository.findById(userId)
+                .map(User::getRole)
+                .orElseThrow(() -> new UserNotFoundException("User not found with id: " + userId));
+    }
+
+    // Автор записи аудита; для фоновых задач без аутентификации — "system"
+    public String getPerformedBy() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null ? authentication.getName() : SYSTEM_USER;
+    }
+}
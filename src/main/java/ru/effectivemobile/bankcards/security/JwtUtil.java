@@ -1,29 +1,40 @@
 package ru.effectivemobile.bankcards.security;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import ru.effectivemobile.bankcards.entity.User;
 
 import javax.crypto.SecretKey;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.function.Function;
 
 @Component
 public class JwtUtil {
 
+    public static final String USER_ID_CLAIM = "uid";
+    public static final String ROLE_CLAIM = "role";
+
     @Value("${spring.security.jwt.secret}")
     private String jwtSecret;
 
     @Value("${spring.security.jwt.expiration}")
     private Long jwtExpirationMs;
 
-    public String generateToken(String email) {
-        return generateToken(new HashMap<>(), email);
+    // Ключ и парсер создаются один раз при первом обращении
+    private volatile SecretKey signInKey;
+    private volatile JwtParser parser;
+
+    public String generateToken(User user) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(USER_ID_CLAIM, user.getId());
+        claims.put(ROLE_CLAIM, user.getRole().name());
+        return generateToken(claims, user.getEmail());
     }
 
     public String generateToken(Map<String, Object> extraClaims, String email) {
@@ -36,38 +47,29 @@ public class JwtUtil {
                 .compact();
     }
 
-    public boolean isTokenValid(String token, String email) {
-        final String username = extractUsername(token);
-        return (username.equals(email)) && !isTokenExpired(token);
-    }
-
-    public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
-    }
-
-    private <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.apply(claims);
+    // Одна проверка подписи и срока действия; при невалидном токене бросает JwtException
+    public Claims parseToken(String token) {
+        return getParser().parseSignedClaims(token).getPayload();
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(getSignInKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+    private JwtParser getParser() {
+        JwtParser result = parser;
+        if (result == null) {
+            result = Jwts.parser()
+                    .verifyWith(getSignInKey())
+                    .build();
+            parser = result;
+        }
+        return result;
     }
 
     private SecretKey getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(jwtSecret);
-        return Keys.hmacShaKeyFor(keyBytes);
-    }
-
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
-    }
-
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+        SecretKey result = signInKey;
+        if (result == null) {
+            byte[] keyBytes = Decoders.BASE64.decode(jwtSecret);
+            result = Keys.hmacShaKeyFor(keyBytes);
+            signInKey = result;
+        }
+        return result;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,130 @@
+package ru.effectivemobile.bankcards.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import ru.effectivemobile.bankcards.dto.BatchTransferItemResult;
+import ru.effectivemobile.bankcards.dto.BatchTransferRequest;
+import ru.effectivemobile.bankcards.dto.BatchTransferResponse;
+import ru.effectivemobile.bankcards.dto.TransferRequest;
+import ru.effectivemobile.bankcards.entity.Card;
+import ru.effectivemobile.bankcards.exception.CardNotFoundException;
+import ru.effectivemobile.bankcards.repository.CardRepository;
+import ru.effectivemobile.bankcards.security.CurrentUserResolver;
+import ru.effectivemobile.bankcards.service.audit.AuditService;
+import ru.effectivemobile.bankcards.service.ledger.LedgerService;
+import ru.effectivemobile.bankcards.service.retry.RetryOnConflict;
+import ru.effectivemobile.bankcards.service.validation.ValidationService;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+// Пакетные переводы между своими картами: все карты читаются и блокируются одним запросом,
+// проверки идут в памяти на копиях, изменения балансов и аудит пишутся пакетами
+@Service
+@RequiredArgsConstructor
+public class BatchTransferService {
+
+    private final CardRepository cardRepository;
+    private final ValidationService validationService;
+    private final AuditService auditService;
+    private final CurrentUserResolver currentUserResolver;
+    private final LedgerService ledgerService;
+
+    @RetryOnConflict("batch-transfer")
+    @Transactional
+    public BatchTransferResponse transfer(BatchTransferRequest request) {
+        Long userId = currentUserResolver.getCurrentUserId();
+        List<TransferRequest> transfers = request.transfers();
+        boolean atomic = request.mode() == BatchTransferRequest.Mode.ATOMIC;
+
+        TreeSet<Long> cardIds = new TreeSet<>();
+        for (TransferRequest transfer : transfers) {
+            cardIds.add(transfer.fromCardId());
+            cardIds.add(transfer.toCardId());
+        }
+
+        // Рабочие копии: проверки меняют их, а не управляемые сущности
+        Map<Long, Card> cards = new HashMap<>();
+        Map<Long, BigDecimal> oldBalances = new HashMap<>();
+        for (Card card : cardRepository.findAllByIdForUpdate(cardIds)) {
+            cards.put(card.getId(), copyOf(card));
+            oldBalances.put(card.getId(), card.getBalance());
+        }
+
+        List<BatchTransferItemResult> results = new ArrayList<>(transfers.size());
+        List<TransferRequest> applied = new ArrayList<>(transfers.size());
+        boolean rejected = false;
+
+        for (int i = 0; i < transfers.size(); i++) {
+            TransferRequest transfer = transfers.get(i);
+            if (rejected && atomic) {
+                results.add(new BatchTransferItemResult(i, BatchTransferItemResult.Status.NOT_APPLIED, null));
+                continue;
+            }
+
+            try {
+                Card fromCard = getOwnedCard(cards, transfer.fromCardId(), userId, "Source");
+                Card toCard = getOwnedCard(cards, transfer.toCardId(), userId, "Target");
+                validationService.validateTransfer(fromCard, toCard, transfer.amount());
+
+                fromCard.setBalance(fromCard.getBalance().subtract(transfer.amount()));
+                toCard.setBalance(toCard.getBalance().add(transfer.amount()));
+                applied.add(transfer);
+                results.add(new BatchTransferItemResult(i, BatchTransferItemResult.Status.APPLIED, null));
+            } catch (RuntimeException e) {
+                rejected = true;
+                results.add(new BatchTransferItemResult(i, BatchTransferItemResult.Status.REJECTED, e.getMessage()));
+            }
+        }
+
+        if (rejected && atomic) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            // Ранее прошедшие проверку переводы пакета тоже не выполняются
+            results.replaceAll(result -> result.status() == BatchTransferItemResult.Status.APPLIED
+                    ? new BatchTransferItemResult(result.index(), BatchTransferItemResult.Status.NOT_APPLIED, null)
+                    : result);
+            return new BatchTransferResponse(request.mode(), false, 0, transfers.size(), results);
+        }
+
+        Map<Long, BigDecimal> newBalances = new HashMap<>();
+        Map<Long, BigDecimal> deltas = new HashMap<>();
+        cards.forEach((cardId, card) -> {
+            newBalances.put(cardId, card.getBalance());
+            deltas.put(cardId, card.getBalance().subtract(oldBalances.get(cardId)));
+        });
+
+        cardRepository.applyBalanceDeltas(deltas);
+        ledgerService.postTransfers(userId, applied);
+        auditService.logBatchTransfer(userId, applied, oldBalances, newBalances);
+
+        return new BatchTransferResponse(request.mode(), true, applied.size(),
+                transfers.size() - applied.size(), results);
+    }
+
+    private Card getOwnedCard(Map<Long, Card> cards, Long cardId, Long userId, String side) {
+        Card card = cards.get(cardId);
+        if (card == null) {
+            throw new CardNotFoundException(cardId);
+        }
+        if (!card.getUserId().equals(userId)) {
+            throw new IllegalArgumentException(side + " card does not belong to you");
+        }
+        return card;
+    }
+
+    private static Card copyOf(Card card) {
+        Card copy = new Card();
+        copy.setId(card.getId());
+        copy.setUserId(card.getUserId());
+        copy.setStatus(card.getStatus());
+        copy.setExpiryDate(card.getExpiryDate());
+        copy.setBalance(card.getBalance());
+        return copy;
+    }
+}
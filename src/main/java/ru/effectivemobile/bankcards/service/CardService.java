@@ -2,6 +2,7 @@ package ru.effectivemobile.bankcards.service;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -11,18 +12,31 @@ import ru.effectivemobile.bankcards.dto.*;
 import ru.effectivemobile.bankcards.entity.Card;
 import ru.effectivemobile.bankcards.entity.CardStatus;
 import ru.effectivemobile.bankcards.entity.User;
+import ru.effectivemobile.bankcards.exception.BusinessValidationException;
 import ru.effectivemobile.bankcards.exception.CardNotFoundException;
 import ru.effectivemobile.bankcards.exception.CardNotActiveException;
 import ru.effectivemobile.bankcards.exception.InsufficientFundsException;
 import ru.effectivemobile.bankcards.exception.UserNotFoundException;
+import ru.effectivemobile.bankcards.repository.CardAuditRepository;
 import ru.effectivemobile.bankcards.repository.CardRepository;
+import ru.effectivemobile.bankcards.repository.CardSortKey;
 import ru.effectivemobile.bankcards.repository.UserRepository;
+import ru.effectivemobile.bankcards.security.CurrentUser;
+import ru.effectivemobile.bankcards.security.CurrentUserResolver;
 import ru.effectivemobile.bankcards.service.encryption.EncryptionService;
 import ru.effectivemobile.bankcards.service.audit.AuditService;
+import ru.effectivemobile.bankcards.service.expiry.CardExpiryIndex;
+import ru.effectivemobile.bankcards.service.idempotency.IdempotencyService;
+import ru.effectivemobile.bankcards.service.ledger.LedgerService;
+import ru.effectivemobile.bankcards.service.lock.LockCards;
+import ru.effectivemobile.bankcards.service.pagination.CardCursor;
+import ru.effectivemobile.bankcards.service.retry.RetryOnConflict;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.time.YearMonth;
 import java.util.List;
 import java.util.stream.Collectors;
+import ru.effectivemobile.bankcards.service.validation.CardCountCache;
 import ru.effectivemobile.bankcards.service.validation.ValidationService;
 
 @Service
@@ -36,6 +50,12 @@ public class CardService {
     private final CardMapper cardMapper;
     private final AuditService auditService;
     private final ValidationService validationService;
+    private final CurrentUserResolver currentUserResolver;
+    private final IdempotencyService idempotencyService;
+    private final LedgerService ledgerService;
+    private final CardAuditRepository cardAuditRepository;
+    private final CardExpiryIndex cardExpiryIndex;
+    private final CardCountCache cardCountCache;
 
     public CardDto createCard(CreateCardRequest request) {
         // Валидация бизнес-правил
@@ -46,11 +66,18 @@ public class CardService {
         User user = userRepository.findById(request.userId())
                 .orElseThrow(() -> new UserNotFoundException("User not found with id: " + request.userId()));
 
+        String panHash = encryptionService.hashPan(request.pan());
+        if (cardRepository.existsByPanHash(panHash)) {
+            throw new BusinessValidationException("Card with this PAN already exists");
+        }
+
         Card card = new Card();
         card.setUserId(user.getId());
 
         String encryptedPan = encryptionService.encrypt(request.pan());
         card.setEncryptedPan(encryptedPan);
+        card.setPanHash(panHash);
+        card.setPanLast4(request.pan().substring(request.pan().length() - 4));
 
         card.setOwnerName(request.ownerName());
         card.setExpiryDate(YearMonth.parse(request.expiryDate(), java.time.format.DateTimeFormatter.ofPattern("MM/yy")));
@@ -58,49 +85,83 @@ public class CardService {
         card.setBalance(request.initialBalance());
 
         Card savedCard = cardRepository.save(card);
+        ledgerService.postOpeningBalance(savedCard);
+        cardExpiryIndex.onStatusChange(savedCard.getExpiryDate(), null, savedCard.getStatus());
+        cardCountCache.onCardCreated(savedCard.getUserId());
 
         auditService.logCardCreation(savedCard);
         return cardMapper.toDto(savedCard);
     }
 
     public List<CardDto> getMyCards() {
-        String currentEmail = SecurityContextHolder.getContext().getAuthentication().getName();
-        User user = userRepository.findByEmail(currentEmail)
-                .orElseThrow(() -> new UserNotFoundException("User not found: " + currentEmail));
+        Long userId = currentUserResolver.getCurrentUserId();
 
-        List<Card> cards = cardRepository.findByUserId(user.getId());
+        List<Card> cards = cardRepository.findByUserId(userId);
         return cards.stream()
                 .map(cardMapper::toDto)
                 .collect(Collectors.toList());
     }
 
     public CardDto getCardById(Long cardId) {
-        String currentEmail = SecurityContextHolder.getContext().getAuthentication().getName();
-        User user = userRepository.findByEmail(currentEmail)
-                .orElseThrow(() -> new UserNotFoundException("User not found: " + currentEmail));
+        Long userId = currentUserResolver.getCurrentUserId();
 
         Card card = cardRepository.findById(cardId)
                 .orElseThrow(() -> new CardNotFoundException(cardId));
 
-        if (!card.getUserId().equals(user.getId()) && !isAdmin()) {
+        if (!card.getUserId().equals(userId) && !isAdmin()) {
             throw new CardNotFoundException(cardId);
         }
 
         return cardMapper.toDto(card);
     }
 
+    // Без asOf — текущий баланс. Иначе баланс по книге проводок, а для периода до заведения карты в книгу — по аудиту
+    @Transactional(readOnly = true)
+    public CardBalanceDto getBalanceAsOf(Long cardId, LocalDateTime asOf) {
+        Long userId = currentUserResolver.getCurrentUserId();
+
+        Card card = cardRepository.findById(cardId)
+                .orElseThrow(() -> new CardNotFoundException(cardId));
+
+        if (!card.getUserId().equals(userId) && !isAdmin()) {
+            throw new CardNotFoundException(cardId);
+        }
+
+        if (asOf == null) {
+            return new CardBalanceDto(cardId, card.getBalance(), LocalDateTime.now(), CardBalanceDto.Source.CURRENT);
+        }
+
+        return ledgerService.getBalanceAsOf(cardId, asOf)
+                .map(balance -> new CardBalanceDto(cardId, balance, asOf, CardBalanceDto.Source.LEDGER))
+                .or(() -> cardAuditRepository
+                        .findFirstByCardIdAndCreatedAtLessThanEqualAndNewBalanceIsNotNullOrderByCreatedAtDescIdDesc(cardId, asOf)
+                        .map(audit -> new CardBalanceDto(cardId, audit.getNewBalance(), asOf, CardBalanceDto.Source.AUDIT)))
+                .orElseThrow(() -> new BusinessValidationException("No balance history for card " + cardId + " at " + asOf));
+    }
+
+    public CardDto getCardByPan(String pan) {
+        if (!isAdmin()) {
+            throw new IllegalArgumentException("Access denied");
+        }
+
+        validationService.validatePan(pan);
+
+        Card card = cardRepository.findByPanHash(encryptionService.hashPan(pan))
+                .orElseThrow(() -> new CardNotFoundException("Card not found with given PAN"));
+
+        return cardMapper.toDto(card);
+    }
+
     public Page<CardDto> getMyCardsWithFilter(CardFilterRequest filter) {
-        String currentEmail = SecurityContextHolder.getContext().getAuthentication().getName();
-        User user = userRepository.findByEmail(currentEmail)
-                .orElseThrow(() -> new UserNotFoundException("User not found: " + currentEmail));
+        Long userId = currentUserResolver.getCurrentUserId();
 
         Page<Card> cards;
         Pageable pageable = filter.toPageable();
 
         if (filter.status() != null) {
-            cards = cardRepository.findByUserIdAndStatus(user.getId(), filter.status(), pageable);
+            cards = cardRepository.findByUserIdAndStatus(userId, filter.status(), pageable);
         } else {
-            cards = cardRepository.findByUserId(user.getId(), pageable);
+            cards = cardRepository.findByUserId(userId, pageable);
         }
 
         return cards.map(cardMapper::toDto);
@@ -129,6 +190,33 @@ public class CardService {
         return cards.map(cardMapper::toDto);
     }
 
+    // Keyset-пагинация собственных карт: без OFFSET и подсчёта общего числа строк
+    @Transactional(readOnly = true)
+    public CursorPage<CardDto> getMyCardsAfter(CardCursorRequest request) {
+        return findCardsAfter(currentUserResolver.getCurrentUserId(), request);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<CardDto> getAllCardsAfter(CardCursorRequest request) {
+        if (!isAdmin()) {
+            throw new IllegalArgumentException("Access denied");
+        }
+        return findCardsAfter(request.userId(), request);
+    }
+
+    private CursorPage<CardDto> findCardsAfter(Long userId, CardCursorRequest request) {
+        CardSortKey sortKey = CardSortKey.fromProperty(request.sortBy());
+        CardCursor after = request.after() == null ? null
+                : CardCursor.decode(request.after(), sortKey, request.direction());
+
+        List<Card> cards = cardRepository.findPageAfter(userId, request.status(), sortKey, request.direction(),
+                after == null ? null : after.expiryDate(), after == null ? null : after.id(), request.size() + 1);
+        return CursorPage.of(cards, request.size(),
+                card -> CardCursor.after(card, sortKey, request.direction()).encode(), cardMapper::toDto);
+    }
+
+    @LockCards("#cardId")
+    @RetryOnConflict("update-status")
     public CardDto updateCardStatus(Long cardId, UpdateCardStatusRequest request) {
         if (!isAdmin()) {
             throw new IllegalArgumentException("Access denied");
@@ -146,26 +234,29 @@ public class CardService {
 
         if (!oldStatus.equals(request.status())) {
             auditService.logStatusChange(updatedCard, oldStatus);
+            cardExpiryIndex.onStatusChange(updatedCard.getExpiryDate(), oldStatus, updatedCard.getStatus());
         }
 
         return cardMapper.toDto(updatedCard);
     }
 
+    @LockCards("#cardId")
+    @RetryOnConflict("block-request")
     public void requestCardBlock(Long cardId) {
-        String currentEmail = SecurityContextHolder.getContext().getAuthentication().getName();
-        User user = userRepository.findByEmail(currentEmail)
-                .orElseThrow(() -> new UserNotFoundException("User not found: " + currentEmail));
+        CurrentUser currentUser = currentUserResolver.getCurrentUser();
 
         Card card = cardRepository.findById(cardId)
                 .orElseThrow(() -> new CardNotFoundException(cardId));
 
-        if (!card.getUserId().equals(user.getId())) {
+        if (!card.getUserId().equals(currentUser.id())) {
             throw new CardNotFoundException(cardId);
         }
 
-        System.out.println("User " + user.getEmail() + " requested block for card " + cardId);
+        System.out.println("User " + currentUser.email() + " requested block for card " + cardId);
+        CardStatus oldStatus = card.getStatus();
         card.setStatus(CardStatus.BLOCKED);
         cardRepository.save(card);
+        cardExpiryIndex.onStatusChange(card.getExpiryDate(), oldStatus, CardStatus.BLOCKED);
         // Логируем запрос на блокировку
         auditService.logBlockRequest(card);
     }
@@ -182,16 +273,59 @@ public class CardService {
         validationService.validateCardDeletion(card);
 
         cardRepository.delete(card);
+        cardExpiryIndex.onStatusChange(card.getExpiryDate(), card.getStatus(), null);
+        cardCountCache.onCardDeleted(card.getUserId());
     }
 
+    // Перевод без read-modify-write: по одному условному UPDATE на каждую сторону.
+    // UPDATE выполняются в порядке id карт, чтобы встречные переводы не взаимоблокировались
+    @LockCards({"#request.fromCardId()", "#request.toCardId()"})
+    @RetryOnConflict("transfer")
+    // idempotencyKey необязателен. Возвращает false, если запрос с этим ключом уже выполнен и карты не менялись
     @Transactional
-    public void transfer(TransferRequest request) {
-        String currentEmail = SecurityContextHolder.getContext().getAuthentication().getName();
-        User user = userRepository.findByEmail(currentEmail)
-                .orElseThrow(() -> new UserNotFoundException("User not found: " + currentEmail));
+    public boolean transfer(TransferRequest request, String idempotencyKey) {
+        Long userId = currentUserResolver.getCurrentUserId();
+        BigDecimal amount = request.amount();
 
-        Long userId = user.getId();
+        if (idempotencyKey != null && !idempotencyService.acquire(userId, idempotencyKey, request)) {
+            return false;
+        }
+
+        validationService.validateTransferAmount(userId, request.fromCardId(), request.toCardId(), amount);
+        validationService.validateTransferVelocity(userId, request.fromCardId(), amount);
 
+        YearMonth currentMonth = YearMonth.now();
+        BigDecimal minBalance = validationService.getMinCardBalance(userId);
+
+        boolean applied;
+        if (request.fromCardId() < request.toCardId()) {
+            applied = cardRepository.debit(request.fromCardId(), userId, amount, minBalance, currentMonth) == 1
+                    && cardRepository.credit(request.toCardId(), userId, amount, currentMonth) == 1;
+        } else {
+            applied = cardRepository.credit(request.toCardId(), userId, amount, currentMonth) == 1
+                    && cardRepository.debit(request.fromCardId(), userId, amount, minBalance, currentMonth) == 1;
+        }
+
+        if (!applied) {
+            // Исключение откатывает уже выполненный UPDATE второй стороны
+            throw diagnoseTransferFailure(userId, request);
+        }
+        ledgerService.postTransfer(userId, request.fromCardId(), request.toCardId(), amount);
+
+        // Балансы после UPDATE читаются из БД для аудита
+        Card fromCard = cardRepository.findById(request.fromCardId())
+                .orElseThrow(() -> new CardNotFoundException(request.fromCardId()));
+        Card toCard = cardRepository.findById(request.toCardId())
+                .orElseThrow(() -> new CardNotFoundException(request.toCardId()));
+
+        auditService.logTransfer(fromCard, toCard, amount);
+        auditService.logBalanceChange(fromCard, fromCard.getBalance().add(amount));
+        auditService.logBalanceChange(toCard, toCard.getBalance().subtract(amount));
+        return true;
+    }
+
+    // UPDATE не изменил строку: загружаем карты только на этом редком пути, чтобы вернуть понятную ошибку
+    private RuntimeException diagnoseTransferFailure(Long userId, TransferRequest request) {
         Card fromCard = cardRepository.findById(request.fromCardId())
                 .orElseThrow(() -> new CardNotFoundException(request.fromCardId()));
 
@@ -200,42 +334,15 @@ public class CardService {
 
         // Проверяем принадлежность карт
         if (!fromCard.getUserId().equals(userId)) {
-            throw new IllegalArgumentException("Source card does not belong to you");
+            return new IllegalArgumentException("Source card does not belong to you");
         }
         if (!toCard.getUserId().equals(userId)) {
-            throw new IllegalArgumentException("Target card does not belong to you");
-        }
-        // Используем ValidationService для проверки
-        validationService.validateTransfer(fromCard, toCard, request.amount());
-
-        BigDecimal fromOldBalance = fromCard.getBalance();
-        BigDecimal toOldBalance = toCard.getBalance();
-
-        fromCard.setBalance(fromCard.getBalance().subtract(request.amount()));
-        toCard.setBalance(toCard.getBalance().add(request.amount()));
-
-        cardRepository.save(fromCard);
-        cardRepository.save(toCard);
-
-        auditService.logTransfer(fromCard, toCard, request.amount());
-        auditService.logBalanceChange(fromCard, fromOldBalance);
-        auditService.logBalanceChange(toCard, toOldBalance);
-    }
-
-        // ОБНОВЛЕННЫЙ метод проверки просроченных карт
-    @Transactional
-    public void checkAndUpdateExpiredCards() {
-        YearMonth currentDate = YearMonth.now();
-        List<Card> expiredCards = cardRepository.findExpiredCards(currentDate);
-
-        for (Card card : expiredCards) {
-            card.setStatus(CardStatus.EXPIRED);
+            return new IllegalArgumentException("Target card does not belong to you");
         }
+        validationService.validateTransferState(fromCard, toCard, request.amount());
 
-        if (!expiredCards.isEmpty()) {
-            cardRepository.saveAll(expiredCards);
-            System.out.println("Updated " + expiredCards.size() + " expired cards");
-        }
+        // Все проверки прошли — состояние карты изменилось между UPDATE и чтением, перевод можно повторить
+        return new OptimisticLockingFailureException("Card state changed concurrently during transfer");
     }
 
     private boolean isAdmin() {
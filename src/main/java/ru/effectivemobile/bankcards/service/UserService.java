@@ -14,6 +14,8 @@ import ru.effectivemobile.bankcards.dto.UserDto;
 import ru.effectivemobile.bankcards.entity.User;
 import ru.effectivemobile.bankcards.exception.UserNotFoundException;
 import ru.effectivemobile.bankcards.repository.UserRepository;
+import ru.effectivemobile.bankcards.security.CurrentUser;
+import ru.effectivemobile.bankcards.security.CurrentUserResolver;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -24,6 +26,7 @@ public class UserService {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final CurrentUserResolver currentUserResolver;
 
     public User createUser(CreateUserRequest request) {
         if (userRepository.findByEmail(request.email()).isPresent()) {
@@ -106,8 +109,7 @@ public class UserService {
                 .orElseThrow(() -> new UserNotFoundException("User not found with id: " + userId));
 
         // Проверяем, что пользователь не удаляет сам себя
-        String currentEmail = SecurityContextHolder.getContext().getAuthentication().getName();
-        if (user.getEmail().equals(currentEmail)) {
+        if (user.getId().equals(currentUserResolver.getCurrentUserId())) {
             throw new IllegalArgumentException("Cannot delete your own account");
         }
 
@@ -116,11 +118,8 @@ public class UserService {
 
     // Получить текущего пользователя
     public UserDto getCurrentUser() {
-        String currentEmail = SecurityContextHolder.getContext().getAuthentication().getName();
-        User user = userRepository.findByEmail(currentEmail)
-                .orElseThrow(() -> new UserNotFoundException("User not found: " + currentEmail));
-
-        return toDto(user);
+        CurrentUser currentUser = currentUserResolver.getCurrentUser();
+        return new UserDto(currentUser.id(), currentUser.email(), currentUser.role().name());
     }
 
     // Вспомогательные методы
@@ -140,11 +139,7 @@ public class UserService {
         }
 
         // USER может доступ только к своему профилю
-        String currentEmail = SecurityContextHolder.getContext().getAuthentication().getName();
-        User currentUser = userRepository.findByEmail(currentEmail)
-                .orElseThrow(() -> new UserNotFoundException("User not found: " + currentEmail));
-
-        if (!currentUser.getId().equals(userId)) {
+        if (!currentUserResolver.getCurrentUserId().equals(userId)) {
             throw new AccessDeniedException("Access denied to user with id: " + userId);
         }
     }
@@ -0,0 +1,176 @@
+package ru.effectivemobile.bankcards.service.audit;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.effectivemobile.bankcards.config.AuditPartitionConfig;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Помесячные партиции card_audit по created_at (PostgreSQL, V017): создаёт партиции наперёд
+// и переносит в архивную схему те, что целиком старше горизонта хранения.
+// Если таблица не партиционирована (H2, схема от Hibernate), ничего не делает
+@Slf4j
+@Service
+public class AuditPartitionService {
+
+    private static final String PARENT_TABLE = "card_audit";
+
+    private static final String PARTITIONED_SQL = """
+            SELECT COUNT(*) FROM pg_partitioned_table pt
+            JOIN pg_class c ON c.oid = pt.partrelid
+            WHERE c.relname = ? AND c.relnamespace = to_regnamespace(current_schema())
+            """;
+
+    private static final String PARTITIONS_SQL = """
+            SELECT c.relname, pg_get_expr(c.relpartbound, c.oid)
+            FROM pg_inherits i
+            JOIN pg_class c ON c.oid = i.inhrelid
+            JOIN pg_class p ON p.oid = i.inhparent
+            WHERE p.relname = ? AND p.relnamespace = to_regnamespace(current_schema())
+            """;
+
+    // Тот же расчёт ожидаемого баланса, что и в сверке, только по одной партиции
+    private static final String FOLD_TOTALS_SQL = """
+            INSERT INTO card_audit_archive_total (card_id, expected_delta, audit_rows, updated_at)
+            SELECT card_id,
+                   SUM(CASE WHEN action = 'CREATE' THEN new_balance
+                            ELSE new_balance - COALESCE(old_balance, 0) END),
+                   COUNT(*), now()
+            FROM %s
+            WHERE action IN ('CREATE', 'UPDATE_BALANCE') AND new_balance IS NOT NULL
+            GROUP BY card_id
+            ON CONFLICT (card_id) DO UPDATE
+            SET expected_delta = card_audit_archive_total.expected_delta + EXCLUDED.expected_delta,
+                audit_rows = card_audit_archive_total.audit_rows + EXCLUDED.audit_rows,
+                updated_at = EXCLUDED.updated_at
+            """;
+
+    private static final Pattern BOUND_PATTERN = Pattern.compile("FROM \\((.+?)\\) TO \\((.+?)\\)");
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AuditPartitionConfig config;
+
+    private volatile Boolean partitioned;
+
+    public AuditPartitionService(JdbcTemplate jdbcTemplate,
+                                 PlatformTransactionManager transactionManager,
+                                 AuditPartitionConfig config) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.config = config;
+    }
+
+    // Границы партиции; from == null — MINVALUE (исторические данные до перехода на партиции)
+    record Partition(String name, LocalDateTime from, LocalDateTime to) {
+
+        boolean overlaps(LocalDateTime start, LocalDateTime end) {
+            return (from == null || from.isBefore(end)) && to.isAfter(start);
+        }
+    }
+
+    public boolean isPartitioned() {
+        if (partitioned == null) {
+            String product = jdbcTemplate.execute(
+                    (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+            partitioned = "PostgreSQL".equals(product)
+                    && jdbcTemplate.queryForObject(PARTITIONED_SQL, Long.class, PARENT_TABLE) > 0;
+        }
+        return partitioned;
+    }
+
+    // Создаёт недостающие партиции с текущего месяца по текущий + premakeMonths. Возвращает число созданных
+    public int ensureFuturePartitions() {
+        if (!config.isEnabled() || !isPartitioned()) {
+            return 0;
+        }
+        List<Partition> existing = partitions();
+        YearMonth current = YearMonth.now();
+        int created = 0;
+        for (int i = 0; i <= config.getPremakeMonths(); i++) {
+            YearMonth month = current.plusMonths(i);
+            LocalDateTime start = month.atDay(1).atStartOfDay();
+            LocalDateTime end = month.plusMonths(1).atDay(1).atStartOfDay();
+            if (existing.stream().anyMatch(partition -> partition.overlaps(start, end))) {
+                continue;
+            }
+            jdbcTemplate.execute(createPartitionSql(month));
+            log.info("Created audit partition {} [{}, {})", partitionName(month), start, end);
+            created++;
+        }
+        return created;
+    }
+
+    // Архивирует партиции, целиком лежащие до начала месяца (текущий - retentionMonths). Возвращает их число
+    public int archiveExpired() {
+        if (!config.isEnabled() || !isPartitioned()) {
+            return 0;
+        }
+        LocalDateTime horizon = YearMonth.now().minusMonths(config.getRetentionMonths()).atDay(1).atStartOfDay();
+        int archived = 0;
+        for (Partition partition : partitions()) {
+            if (!partition.to().isAfter(horizon)) {
+                archive(partition);
+                archived++;
+            }
+        }
+        return archived;
+    }
+
+    // Одна транзакция: итоги партиции для сверки, отсоединение и перенос в архивную схему.
+    // При сбое (например, lock_timeout) ничего не меняется, и партиция архивируется при следующем запуске
+    private void archive(Partition partition) {
+        transactionTemplate.executeWithoutResult(status -> archiveStatements(partition).forEach(jdbcTemplate::execute));
+        log.info("Archived audit partition {} (up to {}) to schema {}",
+                partition.name(), partition.to(), config.getArchiveSchema());
+    }
+
+    static String partitionName(YearMonth month) {
+        return PARENT_TABLE + "_p" + month.format(PARTITION_SUFFIX);
+    }
+
+    static String createPartitionSql(YearMonth month) {
+        return String.format("CREATE TABLE IF NOT EXISTS %s PARTITION OF %s FOR VALUES FROM ('%s 00:00:00') TO ('%s 00:00:00')",
+                partitionName(month), PARENT_TABLE, month.atDay(1), month.plusMonths(1).atDay(1));
+    }
+
+    List<String> archiveStatements(Partition partition) {
+        return List.of(
+                "SET LOCAL lock_timeout = '" + config.getLockTimeout().toMillis() + "ms'",
+                String.format(FOLD_TOTALS_SQL, partition.name()),
+                "ALTER TABLE " + PARENT_TABLE + " DETACH PARTITION " + partition.name(),
+                "CREATE SCHEMA IF NOT EXISTS " + config.getArchiveSchema(),
+                "ALTER TABLE " + partition.name() + " SET SCHEMA " + config.getArchiveSchema());
+    }
+
+    List<Partition> partitions() {
+        return jdbcTemplate.query(PARTITIONS_SQL, (rs, rowNum) -> parse(rs.getString(1), rs.getString(2)),
+                PARENT_TABLE);
+    }
+
+    static Partition parse(String name, String bound) {
+        Matcher matcher = BOUND_PATTERN.matcher(bound);
+        if (!matcher.find()) {
+            throw new IllegalStateException("Unsupported partition bound for " + name + ": " + bound);
+        }
+        return new Partition(name, parseBound(matcher.group(1)), parseBound(matcher.group(2)));
+    }
+
+    private static LocalDateTime parseBound(String value) {
+        if ("MINVALUE".equals(value)) {
+            return null;
+        }
+        return Timestamp.valueOf(value.replace("'", "")).toLocalDateTime();
+    }
+}
@@ -0,0 +1,57 @@
+package ru.effectivemobile.bankcards.service.audit;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.effectivemobile.bankcards.dto.AuditCursorRequest;
+import ru.effectivemobile.bankcards.dto.CursorPage;
+import ru.effectivemobile.bankcards.entity.Card;
+import ru.effectivemobile.bankcards.entity.CardAudit;
+import ru.effectivemobile.bankcards.exception.BusinessValidationException;
+import ru.effectivemobile.bankcards.exception.CardNotFoundException;
+import ru.effectivemobile.bankcards.repository.CardAuditRepository;
+import ru.effectivemobile.bankcards.repository.CardRepository;
+import ru.effectivemobile.bankcards.security.CurrentUserResolver;
+import ru.effectivemobile.bankcards.service.pagination.AuditCursor;
+
+import java.util.List;
+import java.util.function.Function;
+
+// Чтение аудита keyset-страницами: стоимость страницы не зависит от её номера и размера таблицы
+@Service
+@RequiredArgsConstructor
+public class AuditQueryService {
+
+    private final CardAuditRepository cardAuditRepository;
+    private final CardRepository cardRepository;
+    private final CurrentUserResolver currentUserResolver;
+
+    @Transactional(readOnly = true)
+    public CursorPage<CardAudit> getCardAuditAfter(Long cardId, AuditCursorRequest request) {
+        // Чужая карта неотличима от несуществующей
+        Card card = cardRepository.findById(cardId)
+                .orElseThrow(() -> new CardNotFoundException(cardId));
+        if (!card.getUserId().equals(currentUserResolver.getCurrentUserId()) && !currentUserResolver.isAdmin()) {
+            throw new CardNotFoundException(cardId);
+        }
+        return findAfter(cardId, null, request);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<CardAudit> getUserCardAuditAfter(Long userId, AuditCursorRequest request) {
+        return findAfter(null, userId, request);
+    }
+
+    private CursorPage<CardAudit> findAfter(Long cardId, Long userId, AuditCursorRequest request) {
+        if (request.from() != null && request.to() != null && !request.from().isBefore(request.to())) {
+            throw new BusinessValidationException("'from' must be before 'to'");
+        }
+        AuditCursor after = request.after() == null ? null : AuditCursor.decode(request.after(), request.direction());
+
+        List<CardAudit> audits = cardAuditRepository.findPageAfter(cardId, userId, request.action(),
+                request.from(), request.to(), request.direction(),
+                after == null ? null : after.createdAt(), after == null ? null : after.id(), request.size() + 1);
+        return CursorPage.of(audits, request.size(),
+                audit -> AuditCursor.after(audit, request.direction()).encode(), Function.identity());
+    }
+}
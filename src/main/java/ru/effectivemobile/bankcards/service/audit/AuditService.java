@@ -1,25 +1,28 @@
 package ru.effectivemobile.bankcards.service.audit;
 
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Propagation;
-import org.springframework.transaction.annotation.Transactional;
 import ru.effectivemobile.bankcards.entity.AuditAction;
 import ru.effectivemobile.bankcards.entity.Card;
 import ru.effectivemobile.bankcards.entity.CardAudit;
 import ru.effectivemobile.bankcards.entity.CardStatus;
-import ru.effectivemobile.bankcards.repository.CardAuditRepository;
+import ru.effectivemobile.bankcards.security.CurrentUserResolver;
+
+import ru.effectivemobile.bankcards.dto.TransferRequest;
+import ru.effectivemobile.bankcards.util.TransactionCallbacks;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
 public class AuditService {
 
-    private final CardAuditRepository cardAuditRepository;
+    private final AuditWriter auditWriter;
+    private final CurrentUserResolver currentUserResolver;
 
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
     public void logCardCreation(Card card) {
         CardAudit audit = new CardAudit();
         audit.setCardId(card.getId());
@@ -28,12 +31,11 @@ public class AuditService {
         audit.setDescription("Card created with initial balance: " + card.getBalance());
         audit.setNewBalance(card.getBalance());
         audit.setNewStatus(card.getStatus());
-        audit.setPerformedBy(getCurrentUserEmail());
+        audit.setPerformedBy(currentUserResolver.getPerformedBy());
 
-        cardAuditRepository.save(audit);
+        submit(List.of(audit));
     }
 
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
     public void logStatusChange(Card card, CardStatus oldStatus) {
         CardAudit audit = new CardAudit();
         audit.setCardId(card.getId());
@@ -42,12 +44,30 @@ public class AuditService {
         audit.setDescription(String.format("Status changed from %s to %s", oldStatus, card.getStatus()));
         audit.setOldStatus(oldStatus);
         audit.setNewStatus(card.getStatus());
-        audit.setPerformedBy(getCurrentUserEmail());
+        audit.setPerformedBy(currentUserResolver.getPerformedBy());
+
+        submit(List.of(audit));
+    }
 
-        cardAuditRepository.save(audit);
+    // Аудит массового истечения срока: cardId -> userId, одна запись UPDATE_STATUS на карту, все одним пакетом
+    public void logCardsExpired(Map<Long, Long> cards) {
+        String performedBy = currentUserResolver.getPerformedBy();
+        List<CardAudit> audits = new ArrayList<>(cards.size());
+        cards.forEach((cardId, userId) -> {
+            CardAudit audit = new CardAudit();
+            audit.setCardId(cardId);
+            audit.setUserId(userId);
+            audit.setAction(AuditAction.UPDATE_STATUS);
+            audit.setDescription(String.format("Status changed from %s to %s", CardStatus.ACTIVE, CardStatus.EXPIRED));
+            audit.setOldStatus(CardStatus.ACTIVE);
+            audit.setNewStatus(CardStatus.EXPIRED);
+            audit.setPerformedBy(performedBy);
+            audits.add(audit);
+        });
+
+        submit(audits);
     }
 
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
     public void logBalanceChange(Card card, BigDecimal oldBalance) {
         CardAudit audit = new CardAudit();
         audit.setCardId(card.getId());
@@ -56,20 +76,21 @@ public class AuditService {
         audit.setDescription(String.format("Balance changed from %s to %s", oldBalance, card.getBalance()));
         audit.setOldBalance(oldBalance);
         audit.setNewBalance(card.getBalance());
-        audit.setPerformedBy(getCurrentUserEmail());
+        audit.setPerformedBy(currentUserResolver.getPerformedBy());
 
-        cardAuditRepository.save(audit);
+        submit(List.of(audit));
     }
 
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
     public void logTransfer(Card fromCard, Card toCard, BigDecimal amount) {
+        String performedBy = currentUserResolver.getPerformedBy();
+
         // Логируем для карты-отправителя
         CardAudit auditFrom = new CardAudit();
         auditFrom.setCardId(fromCard.getId());
         auditFrom.setUserId(fromCard.getUserId());
         auditFrom.setAction(AuditAction.TRANSFER);
         auditFrom.setDescription(String.format("Transfer to card %s: -%s", toCard.getId(), amount));
-        auditFrom.setPerformedBy(getCurrentUserEmail());
+        auditFrom.setPerformedBy(performedBy);
 
         // Логируем для карты-получателя
         CardAudit auditTo = new CardAudit();
@@ -77,25 +98,69 @@ public class AuditService {
         auditTo.setUserId(toCard.getUserId());
         auditTo.setAction(AuditAction.TRANSFER);
         auditTo.setDescription(String.format("Transfer from card %s: +%s", fromCard.getId(), amount));
-        auditTo.setPerformedBy(getCurrentUserEmail());
+        auditTo.setPerformedBy(performedBy);
+
+        submit(List.of(auditFrom, auditTo));
+    }
 
-        cardAuditRepository.save(auditFrom);
-        cardAuditRepository.save(auditTo);
+    // Аудит пакетного перевода: по две записи TRANSFER на перевод и одна UPDATE_BALANCE на карту
+    // с итоговым изменением баланса. Все записи уходят одним пакетом
+    public void logBatchTransfer(Long userId, List<TransferRequest> transfers,
+                                 Map<Long, BigDecimal> oldBalances, Map<Long, BigDecimal> newBalances) {
+        String performedBy = currentUserResolver.getPerformedBy();
+        List<CardAudit> audits = new ArrayList<>(transfers.size() * 2 + newBalances.size());
+
+        for (TransferRequest transfer : transfers) {
+            CardAudit auditFrom = new CardAudit();
+            auditFrom.setCardId(transfer.fromCardId());
+            auditFrom.setUserId(userId);
+            auditFrom.setAction(AuditAction.TRANSFER);
+            auditFrom.setDescription(String.format("Transfer to card %s: -%s", transfer.toCardId(), transfer.amount()));
+            auditFrom.setPerformedBy(performedBy);
+            audits.add(auditFrom);
+
+            CardAudit auditTo = new CardAudit();
+            auditTo.setCardId(transfer.toCardId());
+            auditTo.setUserId(userId);
+            auditTo.setAction(AuditAction.TRANSFER);
+            auditTo.setDescription(String.format("Transfer from card %s: +%s", transfer.fromCardId(), transfer.amount()));
+            auditTo.setPerformedBy(performedBy);
+            audits.add(auditTo);
+        }
+
+        newBalances.forEach((cardId, newBalance) -> {
+            BigDecimal oldBalance = oldBalances.get(cardId);
+            if (oldBalance.compareTo(newBalance) == 0) {
+                return;
+            }
+            CardAudit audit = new CardAudit();
+            audit.setCardId(cardId);
+            audit.setUserId(userId);
+            audit.setAction(AuditAction.UPDATE_BALANCE);
+            audit.setDescription(String.format("Balance changed from %s to %s", oldBalance, newBalance));
+            audit.setOldBalance(oldBalance);
+            audit.setNewBalance(newBalance);
+            audit.setPerformedBy(performedBy);
+            audits.add(audit);
+        });
+
+        submit(audits);
     }
 
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
     public void logBlockRequest(Card card) {
         CardAudit audit = new CardAudit();
         audit.setCardId(card.getId());
         audit.setUserId(card.getUserId());
         audit.setAction(AuditAction.BLOCK_REQUEST);
         audit.setDescription("User requested card block");
-        audit.setPerformedBy(getCurrentUserEmail());
+        audit.setPerformedBy(currentUserResolver.getPerformedBy());
 
-        cardAuditRepository.save(audit);
+        submit(List.of(audit));
     }
 
-    private String getCurrentUserEmail() {
-        return SecurityContextHolder.getContext().getAuthentication().getName();
+    // Записи уходят в очередь только после коммита бизнес-транзакции,
+    // поэтому аудит не расходится с данными при откате
+    private void submit(List<CardAudit> audits) {
+        TransactionCallbacks.afterCommit(() -> auditWriter.enqueueAll(audits));
     }
 }
\ No newline at end of file
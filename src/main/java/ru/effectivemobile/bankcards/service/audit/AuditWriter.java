@@ -0,0 +1,226 @@
+package ru.effectivemobile.bankcards.service.audit;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.effectivemobile.bankcards.config.AuditWriterConfig;
+import ru.effectivemobile.bankcards.entity.CardAudit;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Асинхронная запись аудита: записи копятся в ограниченной очереди,
+// отдельный поток забирает их пачками и вставляет одним JDBC batch в одной транзакции
+@Slf4j
+@Component
+public class AuditWriter {
+
+    private static final String INSERT_SQL = """
+            INSERT INTO card_audit (card_id, user_id, action, description, old_balance, new_balance,
+                                    old_status, new_status, performed_by, created_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AuditWriterConfig config;
+    private final BlockingQueue<CardAudit> queue;
+
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    private volatile boolean running;
+    private Thread worker;
+
+    public AuditWriter(JdbcTemplate jdbcTemplate,
+                       PlatformTransactionManager transactionManager,
+                       AuditWriterConfig config) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.config = config;
+        this.queue = new ArrayBlockingQueue<>(config.getQueueCapacity());
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        worker = new Thread(this::drainLoop, "audit-writer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    public void enqueue(CardAudit audit) {
+        if (audit.getCreatedAt() == null) {
+            audit.setCreatedAt(LocalDateTime.now());
+        }
+
+        // После остановки писателя пишем синхронно, чтобы не потерять записи
+        if (!running) {
+            writeBatch(List.of(audit));
+            return;
+        }
+
+        if (queue.offer(audit)) {
+            flushIfStopped();
+            return;
+        }
+
+        switch (config.getBackpressurePolicy()) {
+            case BLOCK -> {
+                try {
+                    if (queue.offer(audit, config.getOfferTimeout().toNanos(), TimeUnit.NANOSECONDS)) {
+                        flushIfStopped();
+                        return;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                writeBatch(List.of(audit));
+            }
+            case CALLER_RUNS -> writeBatch(List.of(audit));
+            case DROP -> {
+                long total = dropped.incrementAndGet();
+                log.warn("Audit queue is full, record for card {} dropped (total dropped: {})",
+                        audit.getCardId(), total);
+            }
+        }
+    }
+
+    // Писатель мог остановиться между проверкой running и offer: тогда его финальный flush
+    // уже прошёл, и запись из очереди дописываем сами
+    private void flushIfStopped() {
+        if (!running) {
+            flush();
+        }
+    }
+
+    public void enqueueAll(Collection<CardAudit> audits) {
+        for (CardAudit audit : audits) {
+            enqueue(audit);
+        }
+    }
+
+    // Синхронно записывает всё, что сейчас лежит в очереди
+    public void flush() {
+        List<CardAudit> batch = new ArrayList<>(config.getBatchSize());
+        while (queue.drainTo(batch, config.getBatchSize()) > 0) {
+            writeBatch(batch);
+            batch.clear();
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (worker == null) {
+            return;
+        }
+        try {
+            worker.join(config.getShutdownTimeout().toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (worker.isAlive()) {
+            log.warn("Audit writer did not stop in {}, {} records left in queue",
+                    config.getShutdownTimeout(), queue.size());
+            return;
+        }
+        flush();
+        log.info("Audit writer stopped: written={}, dropped={}, failed={}",
+                written.get(), dropped.get(), failed.get());
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    private void drainLoop() {
+        int batchSize = config.getBatchSize();
+        long flushIntervalNanos = config.getFlushInterval().toNanos();
+        List<CardAudit> batch = new ArrayList<>(batchSize);
+
+        while (running || !queue.isEmpty()) {
+            try {
+                CardAudit first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                // Добираем пачку до batchSize, но ждём не дольше flushInterval
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                while (batch.size() < batchSize) {
+                    if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0 || !running) {
+                        break;
+                    }
+                    CardAudit next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeBatch(List<CardAudit> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (ps, audit) -> {
+                        ps.setObject(1, audit.getCardId(), Types.BIGINT);
+                        ps.setObject(2, audit.getUserId(), Types.BIGINT);
+                        ps.setObject(3, audit.getAction().name(), Types.VARCHAR);
+                        ps.setObject(4, audit.getDescription(), Types.VARCHAR);
+                        ps.setObject(5, audit.getOldBalance(), Types.NUMERIC);
+                        ps.setObject(6, audit.getNewBalance(), Types.NUMERIC);
+                        ps.setObject(7, audit.getOldStatus() != null ? audit.getOldStatus().name() : null, Types.VARCHAR);
+                        ps.setObject(8, audit.getNewStatus() != null ? audit.getNewStatus().name() : null, Types.VARCHAR);
+                        ps.setObject(9, audit.getPerformedBy(), Types.VARCHAR);
+                        ps.setTimestamp(10, Timestamp.valueOf(audit.getCreatedAt()));
+                    }));
+            written.addAndGet(batch.size());
+        } catch (RuntimeException e) {
+            failed.addAndGet(batch.size());
+            log.error("Failed to write audit batch of {} records", batch.size(), e);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package ru.effectivemobile.bankcards.service.clusterlock;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.stereotype.Component;
+import ru.effectivemobile.bankcards.config.ClusterLockConfig;
+
+import java.util.Optional;
+
+@Aspect
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ClusterLockAspect {
+
+    private final ClusterLockService clusterLockService;
+    private final ClusterLockConfig config;
+
+    @Around("@annotation(clusterLocked)")
+    public Object runLocked(ProceedingJoinPoint joinPoint, ClusterLocked clusterLocked) throws Throwable {
+        if (!config.isEnabled()) {
+            return joinPoint.proceed();
+        }
+
+        String name = clusterLocked.value();
+        if (!clusterLockService.tryAcquire(name)) {
+            log.debug("Skipping {}: cluster lock is held by another node", name);
+            // Допустимы только void и Optional — проверяет ClusterLockedMethodValidator
+            Class<?> returnType = ((MethodSignature) joinPoint.getSignature()).getReturnType();
+            return returnType == Optional.class ? Optional.empty() : null;
+        }
+
+        try {
+            return joinPoint.proceed();
+        } finally {
+            clusterLockService.release(name, ClusterLockedMethodValidator.lockAtLeastFor(clusterLocked));
+        }
+    }
+}
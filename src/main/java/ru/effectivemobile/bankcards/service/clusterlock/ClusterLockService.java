@@ -0,0 +1,190 @@
+package ru.effectivemobile.bankcards.service.clusterlock;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+import ru.effectivemobile.bankcards.config.ClusterLockConfig;
+import ru.effectivemobile.bankcards.dto.SchedulerLockDto;
+import ru.effectivemobile.bankcards.repository.SchedulerLockRepository;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+// Аренды задач в таблице scheduler_lock. Захват и продление — условные UPDATE,
+// каждый в своей транзакции, чтобы не зависеть от транзакции вызывающего.
+// Время аренды считается по часам БД, поэтому расхождение часов узлов не влияет на владение
+@Slf4j
+@Service
+public class ClusterLockService {
+
+    // Текущее время БД плюс параметр в миллисекундах
+    private static final String DB_NOW_PLUS_MILLIS = "LOCALTIMESTAMP + CAST(? AS BIGINT) * INTERVAL '1' SECOND / 1000";
+
+    private static final String ACQUIRE_SQL = """
+            UPDATE scheduler_lock SET owner = ?, locked_at = LOCALTIMESTAMP, lease_until = %s,
+                                      heartbeat_at = LOCALTIMESTAMP
+            WHERE name = ? AND (lease_until < LOCALTIMESTAMP OR owner = ?)
+            """.formatted(DB_NOW_PLUS_MILLIS);
+
+    private static final String INSERT_SQL = """
+            INSERT INTO scheduler_lock (name, owner, locked_at, lease_until, heartbeat_at)
+            VALUES (?, ?, LOCALTIMESTAMP, %s, LOCALTIMESTAMP)
+            """.formatted(DB_NOW_PLUS_MILLIS);
+
+    private static final String RENEW_SQL = """
+            UPDATE scheduler_lock SET lease_until = %s, heartbeat_at = LOCALTIMESTAMP
+            WHERE name = ? AND owner = ?
+            """.formatted(DB_NOW_PLUS_MILLIS);
+
+    // Аренда держится не меньше lockAtLeastFor от захвата: узел, чей запуск по расписанию
+    // сработал чуть позже, не выполнит ту же короткую задачу второй раз
+    private static final String RELEASE_SQL = """
+            UPDATE scheduler_lock
+            SET lease_until = GREATEST(LOCALTIMESTAMP, locked_at + CAST(? AS BIGINT) * INTERVAL '1' SECOND / 1000),
+                heartbeat_at = LOCALTIMESTAMP
+            WHERE name = ? AND owner = ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SchedulerLockRepository schedulerLockRepository;
+    private final ClusterLockConfig config;
+    private final String nodeId;
+
+    // Аренды, которые этот узел держит или захватывает прямо сейчас
+    private final Set<String> held = ConcurrentHashMap.newKeySet();
+    private final Map<String, ScheduledFuture<?>> heartbeats = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService heartbeatExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cluster-lock-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ClusterLockService(JdbcTemplate jdbcTemplate,
+                              PlatformTransactionManager transactionManager,
+                              SchedulerLockRepository schedulerLockRepository,
+                              ClusterLockConfig config) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.schedulerLockRepository = schedulerLockRepository;
+        this.config = config;
+        this.nodeId = StringUtils.hasText(config.getNodeId()) ? config.getNodeId() : defaultNodeId();
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    // true — аренда захвачена этим узлом; продление запускается до release.
+    // Свою аренду узел может перехватить сразу (например, после рестарта с тем же nodeId)
+    public boolean tryAcquire(String name) {
+        // Место резервируется атомарно до UPDATE: ACQUIRE_SQL пропускает своего владельца,
+        // и без резерва два потока узла захватили бы аренду оба
+        if (!held.add(name)) {
+            return false;
+        }
+        boolean acquired = false;
+        try {
+            acquired = acquire(name);
+            return acquired;
+        } finally {
+            if (!acquired) {
+                held.remove(name);
+            }
+        }
+    }
+
+    private boolean acquire(String name) {
+        long lease = config.getLease().toMillis();
+        Integer updated = transactionTemplate.execute(status -> jdbcTemplate.update(ACQUIRE_SQL,
+                nodeId, lease, name, nodeId));
+        if (updated == null || updated == 0) {
+            // Строки ещё нет — первый захват; при гонке вставку выиграет только один узел
+            try {
+                transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update(INSERT_SQL,
+                        name, nodeId, lease));
+            } catch (DuplicateKeyException e) {
+                return false;
+            }
+        }
+
+        long interval = config.getHeartbeatInterval().toMillis();
+        heartbeats.put(name, heartbeatExecutor.scheduleAtFixedRate(
+                () -> renew(name), interval, interval, TimeUnit.MILLISECONDS));
+        return true;
+    }
+
+    public void release(String name) {
+        release(name, Duration.ZERO);
+    }
+
+    public void release(String name, Duration lockAtLeastFor) {
+        ScheduledFuture<?> heartbeat = heartbeats.remove(name);
+        if (heartbeat != null) {
+            heartbeat.cancel(false);
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update(RELEASE_SQL,
+                    lockAtLeastFor.toMillis(), name, nodeId));
+        } finally {
+            held.remove(name);
+        }
+    }
+
+    public List<SchedulerLockDto> getLocks() {
+        LocalDateTime now = jdbcTemplate.queryForObject("SELECT LOCALTIMESTAMP", Timestamp.class).toLocalDateTime();
+        return schedulerLockRepository.findAllByOrderByName().stream()
+                .map(lock -> {
+                    boolean held = lock.getLeaseUntil().isAfter(now);
+                    return new SchedulerLockDto(lock.getName(), lock.getOwner(), lock.getLockedAt(),
+                            lock.getLeaseUntil(), lock.getHeartbeatAt(), held, held && nodeId.equals(lock.getOwner()));
+                })
+                .toList();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeatExecutor.shutdownNow();
+    }
+
+    private void renew(String name) {
+        try {
+            Integer renewed = transactionTemplate.execute(status -> jdbcTemplate.update(RENEW_SQL,
+                    config.getLease().toMillis(), name, nodeId));
+            if (renewed == null || renewed == 0) {
+                // Аренда истекла и перехвачена другим узлом — задача может выполняться дважды
+                log.error("Lost cluster lock {}: lease was taken over by another node", name);
+            }
+        } catch (Exception e) {
+            log.warn("Failed to renew cluster lock {}", name, e);
+        }
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "unknown";
+        }
+        return ProcessHandle.current().pid() + "@" + host;
+    }
+}
@@ -0,0 +1,20 @@
+package ru.effectivemobile.bankcards.service.clusterlock;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Метод выполняется только на узле, захватившем аренду value в БД; остальные узлы пропускают запуск.
+// Метод должен возвращать void или Optional; пропущенный запуск Optional-метода возвращает Optional.empty()
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ClusterLocked {
+
+    String value();
+
+    // Минимальное время удержания аренды от захвата, даже если метод завершился раньше
+    // (например, "1m" или "PT30S"). Нужно коротким задачам по cron: запуск на узле с отстающими часами
+    // или задержкой планировщика не должен выполнить их повторно. Пусто — аренда освобождается сразу
+    String lockAtLeastFor() default "";
+}
@@ -0,0 +1,43 @@
+package ru.effectivemobile.bankcards.service.clusterlock;
+
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ReflectionUtils;
+
+import java.time.Duration;
+import java.util.Optional;
+
+// Пропущенный запуск @ClusterLocked-метода возвращает null или Optional.empty(),
+// поэтому другие типы результата (в том числе примитивы) отклоняются при старте, а не NPE при пропуске.
+// Некорректный lockAtLeastFor тоже отклоняется при старте, а не при первом освобождении аренды
+@Component
+public class ClusterLockedMethodValidator implements BeanPostProcessor {
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        ReflectionUtils.doWithMethods(AopUtils.getTargetClass(bean), method -> {
+            Class<?> returnType = method.getReturnType();
+            if (returnType != void.class && returnType != Optional.class) {
+                throw new BeanCreationException(beanName, "@ClusterLocked method " + method.getName()
+                        + " must return void or Optional, but returns " + returnType.getName());
+            }
+            ClusterLocked clusterLocked = AnnotatedElementUtils.findMergedAnnotation(method, ClusterLocked.class);
+            try {
+                lockAtLeastFor(clusterLocked);
+            } catch (IllegalArgumentException e) {
+                throw new BeanCreationException(beanName, "@ClusterLocked method " + method.getName()
+                        + " has invalid lockAtLeastFor: " + clusterLocked.lockAtLeastFor(), e);
+            }
+        }, method -> AnnotatedElementUtils.hasAnnotation(method, ClusterLocked.class));
+        return bean;
+    }
+
+    static Duration lockAtLeastFor(ClusterLocked clusterLocked) {
+        String value = clusterLocked.lockAtLeastFor();
+        return value.isEmpty() ? Duration.ZERO : DurationStyle.detectAndParse(value);
+    }
+}
@@ -6,25 +6,55 @@ import org.springframework.util.StringUtils;
 
 import jakarta.annotation.PostConstruct;
 import javax.crypto.Cipher;
+import javax.crypto.Mac;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.security.SecureRandom;
 import java.util.Base64;
+import java.util.HexFormat;
 
 @Service
 public class EncryptionService {
 
     private static final String ALGORITHM = "AES/GCM/NoPadding";
     private static final int TAG_LENGTH_BIT = 128;
+    private static final int TAG_LENGTH_BYTE = TAG_LENGTH_BIT / 8;
     private static final int IV_LENGTH_BYTE = 12;
     private static final int KEY_LENGTH_BIT = 256;
+    private static final int PAN_LENGTH = 16;
+    private static final String INDEX_ALGORITHM = "HmacSHA256";
+    private static final byte[] INDEX_KEY_CONTEXT = "pan-blind-index-v1".getBytes(StandardCharsets.UTF_8);
 
-    @Value("${encryption.secret-key:#{null}}") // Безопасное значение по умолчанию
-    private String secretKeyBase64;
+    // SecureRandom потокобезопасен, создавать его на каждый вызов не нужно
+    private static final SecureRandom SECURE_RANDOM = new SecureRandom();
+
+    // Cipher и Mac не потокобезопасны, поэтому у каждого потока свой экземпляр.
+    // Cipher.init перед каждой операцией сбрасывает состояние, в том числе после ошибки тега
+    private static final ThreadLocal<Cipher> CIPHERS = ThreadLocal.withInitial(() -> {
+        try {
+            return Cipher.getInstance(ALGORITHM);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("AES/GCM is not available", e);
+        }
+    });
+
+    private final String secretKeyBase64;
+    private final String indexKeyBase64;
+    private final ThreadLocal<Mac> indexMacs = ThreadLocal.withInitial(this::newIndexMac);
 
     private SecretKey secretKey;
+    private SecretKey indexKey;
+
+    public EncryptionService(
+            @Value("${encryption.secret-key:#{null}}") String secretKeyBase64, // Безопасное значение по умолчанию
+            @Value("${encryption.index-key:#{null}}") String indexKeyBase64) { // Ключ слепого индекса PAN, по умолчанию выводится из secret-key
+        this.secretKeyBase64 = secretKeyBase64;
+        this.indexKeyBase64 = indexKeyBase64;
+    }
 
     @PostConstruct
     public void init() {
@@ -42,13 +72,30 @@ public class EncryptionService {
                 throw new RuntimeException("Invalid encryption key format. Must be Base64 encoded 256-bit key.", e);
             }
         }
+        initIndexKey();
+    }
+
+    // Отдельный ключ для HMAC, чтобы слепой индекс не совпадал с ключом шифрования
+    private void initIndexKey() {
+        try {
+            byte[] keyBytes;
+            if (StringUtils.hasText(indexKeyBase64)) {
+                keyBytes = Base64.getDecoder().decode(indexKeyBase64);
+            } else {
+                Mac mac = Mac.getInstance(INDEX_ALGORITHM);
+                mac.init(new SecretKeySpec(secretKey.getEncoded(), INDEX_ALGORITHM));
+                keyBytes = mac.doFinal(INDEX_KEY_CONTEXT);
+            }
+            this.indexKey = new SecretKeySpec(keyBytes, INDEX_ALGORITHM);
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new RuntimeException("Invalid PAN index key", e);
+        }
     }
 
     private void generateDevelopmentKey() {
         try {
-            SecureRandom secureRandom = new SecureRandom();
             byte[] key = new byte[KEY_LENGTH_BIT / 8]; // 32 байта для AES-256
-            secureRandom.nextBytes(key);
+            SECURE_RANDOM.nextBytes(key);
             this.secretKey = new SecretKeySpec(key, "AES");
             System.err.println("Development key generated. DO NOT USE IN PRODUCTION!");
         } catch (Exception e) {
@@ -60,20 +107,17 @@ public class EncryptionService {
         validatePlainText(plainText);
 
         try {
-            byte[] iv = new byte[IV_LENGTH_BYTE];
-            SecureRandom secureRandom = new SecureRandom();
-            secureRandom.nextBytes(iv);
-
-            Cipher cipher = Cipher.getInstance(ALGORITHM);
-            GCMParameterSpec gcmParameterSpec = new GCMParameterSpec(TAG_LENGTH_BIT, iv);
-            cipher.init(Cipher.ENCRYPT_MODE, secretKey, gcmParameterSpec);
-
             byte[] plainTextBytes = plainText.getBytes(StandardCharsets.UTF_8);
-            byte[] encryptedBytes = cipher.doFinal(plainTextBytes);
 
-            byte[] combined = new byte[iv.length + encryptedBytes.length];
-            System.arraycopy(iv, 0, combined, 0, iv.length);
-            System.arraycopy(encryptedBytes, 0, combined, iv.length, encryptedBytes.length);
+            // Результат сразу собирается в одном массиве: IV || шифротекст || тег
+            byte[] combined = new byte[encryptedLength(plainTextBytes.length)];
+            byte[] iv = new byte[IV_LENGTH_BYTE];
+            SECURE_RANDOM.nextBytes(iv);
+            System.arraycopy(iv, 0, combined, 0, IV_LENGTH_BYTE);
+
+            Cipher cipher = CIPHERS.get();
+            cipher.init(Cipher.ENCRYPT_MODE, secretKey, new GCMParameterSpec(TAG_LENGTH_BIT, iv));
+            cipher.doFinal(plainTextBytes, 0, plainTextBytes.length, combined, IV_LENGTH_BYTE);
 
             return Base64.getEncoder().encodeToString(combined);
 
@@ -86,21 +130,16 @@ public class EncryptionService {
         try {
             byte[] combined = Base64.getDecoder().decode(encryptedTextBase64);
 
-            if (combined.length < IV_LENGTH_BYTE + 1) {
+            if (combined.length < IV_LENGTH_BYTE + TAG_LENGTH_BYTE) {
                 throw new IllegalArgumentException("Invalid encrypted text length");
             }
 
-            byte[] iv = new byte[IV_LENGTH_BYTE];
-            System.arraycopy(combined, 0, iv, 0, iv.length);
-
-            byte[] encryptedBytes = new byte[combined.length - IV_LENGTH_BYTE];
-            System.arraycopy(combined, IV_LENGTH_BYTE, encryptedBytes, 0, encryptedBytes.length);
+            // IV и шифротекст читаются прямо из combined по смещениям, без промежуточных копий
+            Cipher cipher = CIPHERS.get();
+            cipher.init(Cipher.DECRYPT_MODE, secretKey,
+                    new GCMParameterSpec(TAG_LENGTH_BIT, combined, 0, IV_LENGTH_BYTE));
 
-            Cipher cipher = Cipher.getInstance(ALGORITHM);
-            GCMParameterSpec gcmParameterSpec = new GCMParameterSpec(TAG_LENGTH_BIT, iv);
-            cipher.init(Cipher.DECRYPT_MODE, secretKey, gcmParameterSpec);
-
-            byte[] decryptedBytes = cipher.doFinal(encryptedBytes);
+            byte[] decryptedBytes = cipher.doFinal(combined, IV_LENGTH_BYTE, combined.length - IV_LENGTH_BYTE);
             String result = new String(decryptedBytes, StandardCharsets.UTF_8);
 
             validatePlainText(result); // Проверяем что расшифровали валидный PAN
@@ -112,8 +151,82 @@ public class EncryptionService {
         }
     }
 
+    // Шифрует байты plain (от position до limit) и пишет в out: IV || шифротекст || тег.
+    // Формат содержимого не проверяется. Возвращает число записанных в out байт
+    public int encrypt(ByteBuffer plain, ByteBuffer out) {
+        try {
+            byte[] iv = new byte[IV_LENGTH_BYTE];
+            SECURE_RANDOM.nextBytes(iv);
+
+            Cipher cipher = CIPHERS.get();
+            cipher.init(Cipher.ENCRYPT_MODE, secretKey, new GCMParameterSpec(TAG_LENGTH_BIT, iv));
+
+            out.put(iv);
+            return IV_LENGTH_BYTE + cipher.doFinal(plain, out);
+
+        } catch (Exception e) {
+            throw new EncryptionException("Ошибка при шифровании", e);
+        }
+    }
+
+    // Расшифровывает буфер формата IV || шифротекст || тег в out. Возвращает число записанных байт
+    public int decrypt(ByteBuffer encrypted, ByteBuffer out) {
+        try {
+            if (encrypted.remaining() < IV_LENGTH_BYTE + TAG_LENGTH_BYTE) {
+                throw new IllegalArgumentException("Invalid encrypted text length");
+            }
+
+            GCMParameterSpec gcmParameterSpec;
+            if (encrypted.hasArray()) {
+                gcmParameterSpec = new GCMParameterSpec(TAG_LENGTH_BIT, encrypted.array(),
+                        encrypted.arrayOffset() + encrypted.position(), IV_LENGTH_BYTE);
+                encrypted.position(encrypted.position() + IV_LENGTH_BYTE);
+            } else {
+                byte[] iv = new byte[IV_LENGTH_BYTE];
+                encrypted.get(iv);
+                gcmParameterSpec = new GCMParameterSpec(TAG_LENGTH_BIT, iv);
+            }
+
+            Cipher cipher = CIPHERS.get();
+            cipher.init(Cipher.DECRYPT_MODE, secretKey, gcmParameterSpec);
+            return cipher.doFinal(encrypted, out);
+
+        } catch (Exception e) {
+            throw new EncryptionException("Ошибка при дешифровании", e);
+        }
+    }
+
+    // Размер результата encrypt для открытого текста указанной длины
+    public int encryptedLength(int plainTextLength) {
+        return IV_LENGTH_BYTE + plainTextLength + TAG_LENGTH_BYTE;
+    }
+
+    // Детерминированный слепой индекс PAN (HMAC-SHA256, hex) для поиска и проверки уникальности
+    public String hashPan(String pan) {
+        validatePlainText(pan);
+
+        Mac mac = indexMacs.get();
+        return HexFormat.of().formatHex(mac.doFinal(pan.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private Mac newIndexMac() {
+        try {
+            Mac mac = Mac.getInstance(INDEX_ALGORITHM);
+            mac.init(indexKey);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new EncryptionException("Ошибка при вычислении индекса PAN", e);
+        }
+    }
+
+    // Ровно 16 ASCII-цифр; цикл вместо регулярного выражения на горячем пути
     private void validatePlainText(String plainText) {
-        if (!plainText.matches("\\d{16}")) {
+        boolean valid = plainText != null && plainText.length() == PAN_LENGTH;
+        for (int i = 0; valid && i < PAN_LENGTH; i++) {
+            char c = plainText.charAt(i);
+            valid = c >= '0' && c <= '9';
+        }
+        if (!valid) {
             throw new IllegalArgumentException("PAN must be exactly 16 digits");
         }
     }
@@ -123,4 +236,4 @@ public class EncryptionService {
             super(message, cause);
         }
     }
-}
\ No newline at end of file
+}
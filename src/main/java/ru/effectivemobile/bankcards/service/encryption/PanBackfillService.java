@@ -0,0 +1,42 @@
+package ru.effectivemobile.bankcards.service.encryption;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.effectivemobile.bankcards.entity.Card;
+import ru.effectivemobile.bankcards.repository.CardRepository;
+
+import java.util.List;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PanBackfillService {
+
+    private final CardRepository cardRepository;
+    private final EncryptionService encryptionService;
+
+    // Заполняет производные от PAN колонки для одной пачки карт с id > afterId.
+    // Возвращает id последней обработанной карты или null, если карт не осталось
+    @Transactional
+    public Long backfillBatch(Long afterId, int batchSize) {
+        List<Card> cards = cardRepository.findCardsToBackfill(afterId, PageRequest.of(0, batchSize));
+        if (cards.isEmpty()) {
+            return null;
+        }
+
+        for (Card card : cards) {
+            try {
+                String pan = encryptionService.decrypt(card.getEncryptedPan());
+                card.setPanHash(encryptionService.hashPan(pan));
+                card.setPanLast4(pan.substring(pan.length() - 4));
+            } catch (RuntimeException e) {
+                log.warn("Cannot backfill PAN columns for card {}: {}", card.getId(), e.getMessage());
+            }
+        }
+
+        return cards.get(cards.size() - 1).getId();
+    }
+}
@@ -0,0 +1,89 @@
+package ru.effectivemobile.bankcards.service.expiry;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.effectivemobile.bankcards.entity.CardStatus;
+import ru.effectivemobile.bankcards.util.TransactionCallbacks;
+
+import java.time.YearMonth;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Число активных карт по месяцу окончания срока. Хранятся только счётчики, а не id карт:
+// сами карты месячный запуск находит по индексу (status, expiry_date).
+// Изменения с других узлов сюда не попадают, поэтому перед каждым запуском индекс пересчитывается из БД
+@Slf4j
+@Component
+public class CardExpiryIndex {
+
+    private static final String REBUILD_SQL =
+            "SELECT expiry_date, COUNT(*) FROM card WHERE status = 'ACTIVE' GROUP BY expiry_date";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<YearMonth, Long> activeCards = new ConcurrentHashMap<>();
+
+    public CardExpiryIndex(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        Gauge.builder("card.expiry.index.months", activeCards, Map::size)
+                .description("Expiry months with active cards")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.error("Error building card expiry index", e);
+        }
+    }
+
+    public void rebuild() {
+        Map<YearMonth, Long> counts = new HashMap<>();
+        jdbcTemplate.query(REBUILD_SQL, rs -> {
+            counts.merge(YearMonth.from(rs.getDate(1).toLocalDate()), rs.getLong(2), Long::sum);
+        });
+        activeCards.keySet().retainAll(counts.keySet());
+        activeCards.putAll(counts);
+    }
+
+    // Вызывается при создании (oldStatus = null), удалении (newStatus = null) и смене статуса карты.
+    // Счётчик меняется после коммита, чтобы откат не сдвигал индекс
+    public void onStatusChange(YearMonth expiryDate, CardStatus oldStatus, CardStatus newStatus) {
+        boolean wasActive = oldStatus == CardStatus.ACTIVE;
+        boolean isActive = newStatus == CardStatus.ACTIVE;
+        if (wasActive != isActive) {
+            TransactionCallbacks.afterCommit(() -> adjust(expiryDate, isActive ? 1 : -1));
+        }
+    }
+
+    public void onExpired(YearMonth expiryDate, long count) {
+        TransactionCallbacks.afterCommit(() -> adjust(expiryDate, -count));
+    }
+
+    // Месяцы раньше currentMonth, в которых ещё есть активные карты, по возрастанию
+    public List<YearMonth> dueMonths(YearMonth currentMonth) {
+        return activeCards.keySet().stream()
+                .filter(month -> month.isBefore(currentMonth))
+                .sorted()
+                .toList();
+    }
+
+    public long countActive(YearMonth expiryDate) {
+        return activeCards.getOrDefault(expiryDate, 0L);
+    }
+
+    private void adjust(YearMonth expiryDate, long delta) {
+        activeCards.compute(expiryDate, (month, count) -> {
+            long updated = (count == null ? 0 : count) + delta;
+            return updated > 0 ? updated : null;
+        });
+    }
+}
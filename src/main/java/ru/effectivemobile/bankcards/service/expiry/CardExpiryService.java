@@ -0,0 +1,145 @@
+package ru.effectivemobile.bankcards.service.expiry;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.effectivemobile.bankcards.config.CardExpiryConfig;
+import ru.effectivemobile.bankcards.service.audit.AuditService;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Перевод просроченных карт в EXPIRED множественными UPDATE по диапазонам id.
+// Каждый диапазон — отдельная короткая транзакция, сущности в память не загружаются.
+// Все запросы ограничены статусом и диапазоном expiry_date и идут по индексу (status, expiry_date)
+@Slf4j
+@Service
+public class CardExpiryService {
+
+    // Нижняя граница для прохода по всем просроченным месяцам
+    private static final LocalDate EARLIEST_EXPIRY = LocalDate.of(1970, 1, 1);
+
+    private static final String RANGE_SQL = """
+            SELECT MIN(id), MAX(id) FROM card
+            WHERE status = 'ACTIVE' AND expiry_date >= ? AND expiry_date < ?
+            """;
+
+    // Блокировка строк до UPDATE: аудит пишется ровно по тем картам, которые изменит UPDATE
+    private static final String SELECT_CHUNK_SQL = """
+            SELECT id, user_id, expiry_date FROM card
+            WHERE status = 'ACTIVE' AND expiry_date >= ? AND expiry_date < ? AND id >= ? AND id < ?
+            ORDER BY id
+            FOR UPDATE
+            """;
+
+    // Обновляются только заблокированные выше карты: строки, подошедшие под условие после SELECT,
+    // не меняются без записи аудита и попадут в следующий запуск
+    private static final String EXPIRE_CHUNK_SQL = """
+            UPDATE card SET status = 'EXPIRED', version = version + 1
+            WHERE id = ANY(?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AuditService auditService;
+    private final CardExpiryIndex cardExpiryIndex;
+    private final CardExpiryConfig config;
+
+    public CardExpiryService(JdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager,
+                             AuditService auditService,
+                             CardExpiryIndex cardExpiryIndex,
+                             CardExpiryConfig config) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.auditService = auditService;
+        this.cardExpiryIndex = cardExpiryIndex;
+        this.config = config;
+    }
+
+    // Запуск в начале месяца: обрабатываются только месяцы, в которых по индексу есть активные карты.
+    // Возвращает число карт, переведённых в EXPIRED
+    public int expireDueMonths() {
+        YearMonth currentMonth = YearMonth.now();
+        cardExpiryIndex.rebuild();
+        List<YearMonth> dueMonths = cardExpiryIndex.dueMonths(currentMonth);
+        if (dueMonths.isEmpty()) {
+            log.info("No active cards past their expiry month");
+            return 0;
+        }
+
+        int expired = 0;
+        for (YearMonth month : dueMonths) {
+            expired += expire(month.atDay(1), month.plusMonths(1).atDay(1));
+        }
+        return expired;
+    }
+
+    // Страховочный проход по всем месяцам раньше текущего
+    public int expireCards() {
+        // Срок хранится как первый день месяца: карта просрочена, если её месяц раньше текущего
+        return expire(EARLIEST_EXPIRY, YearMonth.now().atDay(1));
+    }
+
+    // Карты с expiry_date в [fromDate, toDate)
+    private int expire(LocalDate fromDate, LocalDate toDate) {
+        Date from = Date.valueOf(fromDate);
+        Date to = Date.valueOf(toDate);
+        long started = System.nanoTime();
+
+        long[] range = jdbcTemplate.queryForObject(RANGE_SQL,
+                (rs, rowNum) -> new long[]{rs.getLong(1), rs.getLong(2)}, from, to);
+        if (range == null || range[1] == 0) {
+            return 0;
+        }
+
+        int expired = 0;
+        int chunks = 0;
+        for (long start = range[0]; start <= range[1]; start += config.getChunkSize()) {
+            long fromId = start;
+            long toId = start + config.getChunkSize();
+            Integer updated = transactionTemplate.execute(status -> expireChunk(from, to, fromId, toId));
+            expired += updated != null ? updated : 0;
+            chunks++;
+        }
+
+        long elapsedMillis = Math.max(1, (System.nanoTime() - started) / 1_000_000);
+        log.info("Expired {} cards with expiry in [{}, {}) in {} chunks, {} ms ({} rows/s)",
+                expired, fromDate, toDate, chunks, elapsedMillis, expired * 1000L / elapsedMillis);
+        return expired;
+    }
+
+    private int expireChunk(Date from, Date to, long fromId, long toId) {
+        // cardId -> userId
+        Map<Long, Long> cards = new LinkedHashMap<>();
+        Map<YearMonth, Long> expiredByMonth = new HashMap<>();
+        jdbcTemplate.query(SELECT_CHUNK_SQL, rs -> {
+            cards.put(rs.getLong(1), rs.getLong(2));
+            expiredByMonth.merge(YearMonth.from(rs.getDate(3).toLocalDate()), 1L, Long::sum);
+        }, from, to, fromId, toId);
+        if (cards.isEmpty()) {
+            return 0;
+        }
+
+        Long[] ids = cards.keySet().toArray(Long[]::new);
+        int updated = jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(EXPIRE_CHUNK_SQL);
+            statement.setArray(1, connection.createArrayOf("BIGINT", ids));
+            return statement;
+        });
+        if (updated != cards.size()) {
+            throw new IllegalStateException("Expired " + updated + " of " + cards.size() + " locked cards");
+        }
+        auditService.logCardsExpired(cards);
+        expiredByMonth.forEach(cardExpiryIndex::onExpired);
+        return updated;
+    }
+}
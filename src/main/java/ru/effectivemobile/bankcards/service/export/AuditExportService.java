@@ -0,0 +1,67 @@
+package ru.effectivemobile.bankcards.service.export;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.effectivemobile.bankcards.dto.AuditExportRequest;
+import ru.effectivemobile.bankcards.exception.BusinessValidationException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AuditExportService {
+
+    private static final String SELECT_SQL = "SELECT id, card_id, user_id, action, description, old_balance, "
+            + "new_balance, old_status, new_status, performed_by, created_at FROM card_audit";
+
+    private static final List<String> COLUMNS = List.of("id", "cardId", "userId", "action", "description",
+            "oldBalance", "newBalance", "oldStatus", "newStatus", "performedBy", "createdAt");
+
+    private final JdbcExporter jdbcExporter;
+
+    // Фильтры проверяются сразу, до начала ответа: после первой записанной строки статус уже не изменить
+    public StreamingResponseBody export(AuditExportRequest request) {
+        if (request.from() != null && request.to() != null && !request.from().isBefore(request.to())) {
+            throw new BusinessValidationException("'from' must be before 'to'");
+        }
+
+        List<String> conditions = new ArrayList<>();
+        List<Object> params = new ArrayList<>();
+        if (request.userId() != null) {
+            conditions.add("user_id = ?");
+            params.add(request.userId());
+        }
+        if (request.cardId() != null) {
+            conditions.add("card_id = ?");
+            params.add(request.cardId());
+        }
+        if (request.from() != null) {
+            conditions.add("created_at >= ?");
+            params.add(request.from());
+        }
+        if (request.to() != null) {
+            conditions.add("created_at < ?");
+            params.add(request.to());
+        }
+        if (request.action() != null) {
+            conditions.add("action = ?");
+            params.add(request.action().name());
+        }
+
+        String sql = SELECT_SQL
+                + (conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions))
+                + " ORDER BY created_at, id";
+        Object[] args = params.toArray();
+
+        return out -> {
+            long started = System.nanoTime();
+            long rows = jdbcExporter.export(sql, args, COLUMNS, request.format(), request.gzip(), out);
+            log.info("Exported {} audit rows as {} in {} ms", rows, request.format(),
+                    (System.nanoTime() - started) / 1_000_000);
+        };
+    }
+}
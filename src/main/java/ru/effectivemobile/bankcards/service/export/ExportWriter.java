@@ -0,0 +1,24 @@
+package ru.effectivemobile.bankcards.service.export;
+
+import com.fasterxml.jackson.core.JsonFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+// Построчная запись выгрузки; значения строки идут в порядке columns
+interface ExportWriter {
+
+    void writeRow(Object[] values) throws IOException;
+
+    // Дописывает буферы в поток, сам поток не закрывает
+    void finish() throws IOException;
+
+    static ExportWriter open(ExportFormat format, List<String> columns, OutputStream out,
+                             JsonFactory jsonFactory) throws IOException {
+        return switch (format) {
+            case NDJSON -> new NdjsonExportWriter(columns, out, jsonFactory);
+            case CSV -> new CsvExportWriter(columns, out);
+        };
+    }
+}
@@ -0,0 +1,76 @@
+package ru.effectivemobile.bankcards.service.export;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+import ru.effectivemobile.bankcards.config.ExportConfig;
+import ru.effectivemobile.bankcards.service.jdbc.StreamingQueryExecutor;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+// Потоковая выгрузка результата SQL-запроса: строки читаются forward-only курсором порциями по fetchSize
+// и сразу пишутся в ответ. Сущности и persistence context не участвуют, память не зависит от объёма выгрузки
+@Component
+public class JdbcExporter {
+
+    private final StreamingQueryExecutor streamingQueryExecutor;
+    private final JsonFactory jsonFactory;
+    private final ExportConfig config;
+
+    public JdbcExporter(StreamingQueryExecutor streamingQueryExecutor,
+                        ObjectMapper objectMapper,
+                        ExportConfig config) {
+        this.streamingQueryExecutor = streamingQueryExecutor;
+        this.jsonFactory = objectMapper.getFactory();
+        this.config = config;
+    }
+
+    // Колонки берутся из результата по порядку
+    public long export(String sql, Object[] args, List<String> columns,
+                       ExportFormat format, boolean gzip, OutputStream out) throws IOException {
+        return export(sql, args, columns, (rs, rowNum) -> {
+            Object[] values = new Object[columns.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = rs.getObject(i + 1);
+            }
+            return values;
+        }, format, gzip, out);
+    }
+
+    // Возвращает число выгруженных строк
+    public long export(String sql, Object[] args, List<String> columns, RowMapper<Object[]> rowMapper,
+                       ExportFormat format, boolean gzip, OutputStream out) throws IOException {
+        GZIPOutputStream gzipOut = gzip ? new GZIPOutputStream(out, config.getBufferSize()) : null;
+        OutputStream target = new BufferedOutputStream(gzip ? gzipOut : out, config.getBufferSize());
+        ExportWriter writer = ExportWriter.open(format, columns, target, jsonFactory);
+
+        long[] rows = new long[1];
+        try {
+            streamingQueryExecutor.query(sql, config.getFetchSize(), rs -> {
+                try {
+                    writer.writeRow(rowMapper.mapRow(rs, (int) rows[0]));
+                } catch (IOException e) {
+                    // Клиент закрыл соединение
+                    throw new UncheckedIOException(e);
+                }
+                rows[0]++;
+            }, args);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        writer.finish();
+        target.flush();
+        if (gzipOut != null) {
+            gzipOut.finish();
+        }
+        out.flush();
+        return rows[0];
+    }
+}
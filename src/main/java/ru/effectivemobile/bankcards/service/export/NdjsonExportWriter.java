@@ -0,0 +1,56 @@
+package ru.effectivemobile.bankcards.service.export;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.util.List;
+
+// Один JSON-объект на строку. Пишется потоковым JsonGenerator, без промежуточных Map и объектов
+class NdjsonExportWriter implements ExportWriter {
+
+    private final List<String> columns;
+    private final JsonGenerator generator;
+
+    NdjsonExportWriter(List<String> columns, OutputStream out, JsonFactory jsonFactory) throws IOException {
+        this.columns = columns;
+        this.generator = jsonFactory.createGenerator(out);
+        this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    @Override
+    public void writeRow(Object[] values) throws IOException {
+        generator.writeStartObject();
+        for (int i = 0; i < values.length; i++) {
+            generator.writeFieldName(columns.get(i));
+            writeValue(values[i]);
+        }
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+
+    @Override
+    public void finish() throws IOException {
+        generator.close();
+    }
+
+    private void writeValue(Object value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else if (value instanceof BigDecimal decimal) {
+            generator.writeNumber(decimal);
+        } else if (value instanceof Long || value instanceof Integer) {
+            generator.writeNumber(((Number) value).longValue());
+        } else if (value instanceof Timestamp timestamp) {
+            generator.writeString(timestamp.toLocalDateTime().toString());
+        } else if (value instanceof Date date) {
+            generator.writeString(date.toLocalDate().toString());
+        } else {
+            generator.writeString(value.toString());
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package ru.effectivemobile.bankcards.service.idempotency;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.effectivemobile.bankcards.config.IdempotencyConfig;
+import ru.effectivemobile.bankcards.dto.TransferRequest;
+import ru.effectivemobile.bankcards.entity.IdempotencyRecord;
+import ru.effectivemobile.bankcards.exception.IdempotencyConflictException;
+import ru.effectivemobile.bankcards.repository.IdempotencyRecordRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+
+@Service
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final int MAX_KEY_LENGTH = 128;
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final IdempotencyConfig config;
+
+    // "userId:key" -> хэш запроса для уже выполненных ключей
+    private final Cache<String, String> completedKeys;
+
+    public IdempotencyService(IdempotencyRecordRepository idempotencyRecordRepository, IdempotencyConfig config) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.config = config;
+        this.completedKeys = Caffeine.newBuilder()
+                .maximumSize(config.getCacheSize())
+                .expireAfterWrite(config.getTtl())
+                .build();
+    }
+
+    // Вызывается в транзакции перевода до изменения карт.
+    // true — ключ новый и записан в текущей транзакции; false — такой запрос уже выполнен
+    public boolean acquire(Long userId, String key, TransferRequest request) {
+        validateKey(key);
+        String requestHash = hash(request);
+        String cacheKey = userId + ":" + key;
+
+        String storedHash = completedKeys.getIfPresent(cacheKey);
+        if (storedHash == null) {
+            storedHash = findStoredHash(userId, key).orElse(null);
+        }
+
+        if (storedHash != null) {
+            if (!storedHash.equals(requestHash)) {
+                throw new IdempotencyConflictException("Idempotency-Key was already used with a different request");
+            }
+            completedKeys.put(cacheKey, storedHash);
+            return false;
+        }
+
+        register(userId, key, requestHash, cacheKey);
+        return true;
+    }
+
+    // Удаляет просроченные ключи порциями; каждая порция — отдельная транзакция
+    public int purgeExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        int purged = 0;
+        List<Long> ids;
+        do {
+            ids = idempotencyRecordRepository.findExpiredIds(now, PageRequest.of(0, config.getPurgeBatchSize()));
+            if (!ids.isEmpty()) {
+                idempotencyRecordRepository.deleteAllByIdInBatch(ids);
+                purged += ids.size();
+            }
+        } while (ids.size() == config.getPurgeBatchSize());
+        return purged;
+    }
+
+    private Optional<String> findStoredHash(Long userId, String key) {
+        Optional<IdempotencyRecord> record = idempotencyRecordRepository.findByUserIdAndIdempotencyKey(userId, key);
+        if (record.isPresent() && record.get().getExpiresAt().isBefore(LocalDateTime.now())) {
+            // Просроченный ключ ещё не удалён фоновой задачей — освобождаем его для нового запроса
+            idempotencyRecordRepository.delete(record.get());
+            idempotencyRecordRepository.flush();
+            return Optional.empty();
+        }
+        return record.map(IdempotencyRecord::getRequestHash);
+    }
+
+    private void register(Long userId, String key, String requestHash, String cacheKey) {
+        LocalDateTime now = LocalDateTime.now();
+        IdempotencyRecord record = new IdempotencyRecord();
+        record.setUserId(userId);
+        record.setIdempotencyKey(key);
+        record.setRequestHash(requestHash);
+        record.setResponseStatus(HttpStatus.OK.value());
+        record.setCreatedAt(now);
+        record.setExpiresAt(now.plus(config.getTtl()));
+
+        try {
+            // Уникальный индекс (user_id, idempotency_key) отсекает параллельный дубликат
+            idempotencyRecordRepository.saveAndFlush(record);
+        } catch (DataIntegrityViolationException e) {
+            throw new IdempotencyConflictException("Request with this Idempotency-Key is already being processed");
+        }
+
+        // В кэш ключ попадает только после коммита: при откате перевод можно повторить с тем же ключом
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    completedKeys.put(cacheKey, requestHash);
+                }
+            });
+        }
+    }
+
+    private void validateKey(String key) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key must be 1 to " + MAX_KEY_LENGTH + " characters long");
+        }
+    }
+
+    private static String hash(TransferRequest request) {
+        String canonical = request.fromCardId() + "|" + request.toCardId() + "|"
+                + request.amount().stripTrailingZeros().toPlainString();
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(canonical.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package ru.effectivemobile.bankcards.service.jdbc;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+
+// Потоковое чтение больших результатов: forward-only курсор с fetchSize внутри read-only транзакции,
+// так как PostgreSQL отдаёт результат порциями только внутри транзакции. Строки не копятся в памяти
+@Component
+public class StreamingQueryExecutor {
+
+    private final DataSource dataSource;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+
+    public StreamingQueryExecutor(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.dataSource = jdbcTemplate.getDataSource();
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+    }
+
+    // Исключение из handler прерывает чтение: курсор закрывается, транзакция откатывается
+    public void query(String sql, int fetchSize, RowCallbackHandler handler, Object... args) {
+        JdbcTemplate streamingJdbcTemplate = new JdbcTemplate(dataSource);
+        streamingJdbcTemplate.setFetchSize(fetchSize);
+        readOnlyTransactionTemplate.executeWithoutResult(status -> streamingJdbcTemplate.query(sql, handler, args));
+    }
+}
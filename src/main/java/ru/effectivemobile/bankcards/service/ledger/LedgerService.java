@@ -0,0 +1,353 @@
+package ru.effectivemobile.bankcards.service.ledger;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.effectivemobile.bankcards.config.LedgerConfig;
+import ru.effectivemobile.bankcards.dto.TransferRequest;
+import ru.effectivemobile.bankcards.entity.Card;
+import ru.effectivemobile.bankcards.entity.LedgerDirection;
+import ru.effectivemobile.bankcards.entity.LedgerEntryType;
+import ru.effectivemobile.bankcards.repository.CardRepository;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+// Книга проводок: каждая операция с балансом пишется парой DEBIT/CREDIT с общим transactionId.
+// Проводки только добавляются; баланс по книге = последний снимок карты + проводки после него
+@Slf4j
+@Service
+public class LedgerService {
+
+    private static final String INSERT_ENTRY_SQL = """
+            INSERT INTO ledger_entry (transaction_id, card_id, user_id, direction, entry_type, amount, created_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    private static final String INSERT_SNAPSHOT_SQL = """
+            INSERT INTO card_balance_snapshot (card_id, balance, last_entry_id, created_at)
+            VALUES (?, ?, ?, ?)
+            """;
+
+    private static final String INSERT_GAP_SQL = """
+            INSERT INTO ledger_snapshot_gap (entry_id, created_at) VALUES (?, ?)
+            """;
+
+    private static final String SIGNED_AMOUNT = "CASE WHEN direction = 'CREDIT' THEN amount ELSE -amount END";
+
+    // Проводки карты между её последним снимком и началом диапазона: закоммичены после снимка своего диапазона,
+    // а снимка, который бы их покрыл, у карты ещё нет. Обычно пусто — поиск идёт по индексу (card_id, id)
+    private static final String MISSED_ENTRIES_SQL = """
+            SELECT e.id, e.card_id, %1$s FROM card_balance_snapshot s
+            JOIN ledger_entry e ON e.card_id = s.card_id AND e.id > s.last_entry_id AND e.id <= :from
+            WHERE s.card_id IN (:ids)
+              AND s.last_entry_id = (SELECT MAX(p.last_entry_id) FROM card_balance_snapshot p
+                                     WHERE p.card_id = s.card_id)
+            UNION ALL
+            SELECT e.id, e.card_id, %1$s FROM ledger_entry e
+            WHERE e.card_id IN (:ids) AND e.id <= :from
+              AND NOT EXISTS (SELECT 1 FROM card_balance_snapshot p WHERE p.card_id = e.card_id)
+            """.formatted(SIGNED_AMOUNT);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate snapshotTransactionTemplate;
+    private final CardRepository cardRepository;
+    private final LedgerConfig config;
+
+    public LedgerService(JdbcTemplate jdbcTemplate,
+                         PlatformTransactionManager transactionManager,
+                         CardRepository cardRepository,
+                         LedgerConfig config) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Пропуски, суммы диапазона и пропущенные ранее проводки читаются из одного снимка MVCC:
+        // проводка, закоммиченная между запросами, не попадёт одновременно в пропуски и в сумму
+        this.snapshotTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.snapshotTransactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.cardRepository = cardRepository;
+        this.config = config;
+    }
+
+    // Вызывается внутри транзакции операции: проводки фиксируются или откатываются вместе с балансами карт
+    public void postTransfer(Long userId, Long fromCardId, Long toCardId, BigDecimal amount) {
+        postTransfers(userId, List.of(new TransferRequest(fromCardId, toCardId, amount)));
+    }
+
+    public void postTransfers(Long userId, List<TransferRequest> transfers) {
+        List<Posting> postings = new ArrayList<>(transfers.size() * 2);
+        for (TransferRequest transfer : transfers) {
+            String transactionId = UUID.randomUUID().toString();
+            postings.add(new Posting(transactionId, transfer.fromCardId(), userId,
+                    LedgerDirection.DEBIT, LedgerEntryType.TRANSFER, transfer.amount()));
+            postings.add(new Posting(transactionId, transfer.toCardId(), userId,
+                    LedgerDirection.CREDIT, LedgerEntryType.TRANSFER, transfer.amount()));
+        }
+        insert(postings);
+    }
+
+    // Начальный баланс приходит с внешнего счёта банка (card_id = null).
+    // Пишется и для нулевого баланса: наличие OPENING_BALANCE отмечает карту как заведённую в книгу
+    public void postOpeningBalance(Card card) {
+        insert(openingPostings(card.getId(), card.getUserId(), card.getBalance()));
+    }
+
+    @Transactional(readOnly = true)
+    public BigDecimal getBalance(Long cardId) {
+        List<Object[]> snapshot = jdbcTemplate.query("""
+                        SELECT balance, last_entry_id FROM card_balance_snapshot
+                        WHERE card_id = ? ORDER BY last_entry_id DESC LIMIT 1
+                        """,
+                (rs, rowNum) -> new Object[]{rs.getBigDecimal(1), rs.getLong(2)}, cardId);
+
+        BigDecimal base = snapshot.isEmpty() ? BigDecimal.ZERO : (BigDecimal) snapshot.get(0)[0];
+        long afterEntryId = snapshot.isEmpty() ? 0L : (Long) snapshot.get(0)[1];
+
+        BigDecimal delta = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(" + SIGNED_AMOUNT + "), 0) FROM ledger_entry WHERE card_id = ? AND id > ?",
+                BigDecimal.class, cardId, afterEntryId);
+        return base.add(delta);
+    }
+
+    // Баланс на момент asOf или empty, если карта тогда ещё не была заведена в книгу.
+    // Момент asOf переводится в последнюю проводку карты не позже него, дальше — ближайший снимок до неё
+    // и проводки между ними; все запросы — поиск и короткий диапазон по индексам карты
+    @Transactional(readOnly = true)
+    public Optional<BigDecimal> getBalanceAsOf(Long cardId, LocalDateTime asOf) {
+        Timestamp asOfTimestamp = Timestamp.valueOf(asOf);
+
+        List<Timestamp> opened = jdbcTemplate.queryForList("""
+                        SELECT created_at FROM ledger_entry
+                        WHERE card_id = ? AND entry_type = 'OPENING_BALANCE' ORDER BY id LIMIT 1
+                        """, Timestamp.class, cardId);
+        if (opened.isEmpty() || opened.get(0).after(asOfTimestamp)) {
+            return Optional.empty();
+        }
+
+        Long lastEntryId = jdbcTemplate.queryForObject("""
+                        SELECT id FROM ledger_entry
+                        WHERE card_id = ? AND created_at <= ? ORDER BY created_at DESC, id DESC LIMIT 1
+                        """, Long.class, cardId, asOfTimestamp);
+
+        List<Object[]> snapshot = jdbcTemplate.query("""
+                        SELECT balance, last_entry_id FROM card_balance_snapshot
+                        WHERE card_id = ? AND last_entry_id <= ? ORDER BY last_entry_id DESC LIMIT 1
+                        """,
+                (rs, rowNum) -> new Object[]{rs.getBigDecimal(1), rs.getLong(2)}, cardId, lastEntryId);
+
+        BigDecimal base = snapshot.isEmpty() ? BigDecimal.ZERO : (BigDecimal) snapshot.get(0)[0];
+        long afterEntryId = snapshot.isEmpty() ? 0L : (Long) snapshot.get(0)[1];
+
+        BigDecimal delta = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(" + SIGNED_AMOUNT + "), 0) FROM ledger_entry WHERE card_id = ? AND id > ? AND id <= ?",
+                BigDecimal.class, cardId, afterEntryId, lastEntryId);
+        return Optional.of(base.add(delta));
+    }
+
+    // Инкрементальные снимки: сначала досчитываются проводки, закоммиченные уже после снимка своего диапазона,
+    // затем обрабатываются проводки после последнего снимка, созданные раньше createdBefore.
+    // Каждый диапазон из snapshotChunkSize id — отдельная короткая транзакция. Возвращает число записанных снимков
+    public int takeSnapshots(LocalDateTime createdBefore) {
+        transactionTemplate.executeWithoutResult(status -> foldLateEntries());
+
+        Long watermark = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(MAX(last_entry_id), 0) FROM card_balance_snapshot", Long.class);
+        // Поиск идёт по первичному ключу от watermark, а не по всей таблице
+        Long upTo = jdbcTemplate.queryForObject(
+                "SELECT MAX(id) FROM ledger_entry WHERE id > ? AND created_at < ?",
+                Long.class, watermark, Timestamp.valueOf(createdBefore));
+        if (upTo == null) {
+            return 0;
+        }
+
+        int written = 0;
+        long from = watermark;
+        while (from < upTo) {
+            long to = Math.min(upTo, from + config.getSnapshotChunkSize());
+            long chunkFrom = from;
+            Integer count = snapshotTransactionTemplate.execute(status -> snapshotRange(chunkFrom, to));
+            written += count != null ? count : 0;
+            from = to;
+        }
+        return written;
+    }
+
+    // Проставляет начальный баланс картам, созданным до появления книги.
+    // Карты блокируются, поэтому баланс и уже записанные проводки не меняются между чтением и вставкой.
+    // Возвращает id последней обработанной карты или null, если таких карт больше нет
+    @Transactional
+    public Long backfillOpeningBalances(Long afterId, int batchSize) {
+        List<Card> cards = cardRepository.findWithoutOpeningBalanceForUpdate(afterId, PageRequest.of(0, batchSize));
+        if (cards.isEmpty()) {
+            return null;
+        }
+
+        List<Long> cardIds = cards.stream().map(Card::getId).toList();
+        Map<Long, BigDecimal> posted = sumByCard(
+                "SELECT card_id, SUM(" + SIGNED_AMOUNT + ") FROM ledger_entry WHERE card_id IN (:ids) GROUP BY card_id",
+                new MapSqlParameterSource("ids", cardIds));
+
+        List<Posting> postings = new ArrayList<>(cards.size() * 2);
+        for (Card card : cards) {
+            // Переводы, прошедшие до заведения карты в книгу, уже учтены в card.balance
+            BigDecimal opening = card.getBalance().subtract(posted.getOrDefault(card.getId(), BigDecimal.ZERO));
+            postings.addAll(openingPostings(card.getId(), card.getUserId(), opening));
+        }
+        insert(postings);
+        return cards.get(cards.size() - 1).getId();
+    }
+
+    // Проводка с id из ledger_snapshot_gap закоммичена после снимка своего диапазона (долгая транзакция).
+    // Её сумма прибавляется ко всем снимкам карты с last_entry_id >= её id, чтобы снимок снова означал
+    // «все проводки с id <= last_entry_id». Если такого снимка у карты ещё нет, проводку подберёт
+    // следующий снимок карты через MISSED_ENTRIES_SQL. Пропуски старше snapshotGapRetention считаются откатами
+    private void foldLateEntries() {
+        List<LateEntry> late = jdbcTemplate.query("""
+                        SELECT e.id, e.card_id, %s FROM ledger_entry e
+                        JOIN ledger_snapshot_gap g ON g.entry_id = e.id
+                        """.formatted(SIGNED_AMOUNT),
+                (rs, rowNum) -> new LateEntry(rs.getLong(1), rs.getObject(2, Long.class), rs.getBigDecimal(3)));
+
+        if (!late.isEmpty()) {
+            jdbcTemplate.batchUpdate(
+                    "UPDATE card_balance_snapshot SET balance = balance + ? WHERE card_id = ? AND last_entry_id >= ?",
+                    late.stream()
+                            .filter(entry -> entry.cardId() != null)
+                            .map(entry -> new Object[]{entry.amount(), entry.cardId(), entry.id()})
+                            .toList());
+            jdbcTemplate.batchUpdate("DELETE FROM ledger_snapshot_gap WHERE entry_id = ?",
+                    late.stream().map(entry -> new Object[]{entry.id()}).toList());
+            log.warn("Folded {} ledger entries committed after their range was snapshotted", late.size());
+        }
+
+        jdbcTemplate.update("DELETE FROM ledger_snapshot_gap WHERE created_at < ?",
+                Timestamp.valueOf(LocalDateTime.now().minus(config.getSnapshotGapRetention())));
+    }
+
+    private int snapshotRange(long afterEntryId, long upToEntryId) {
+        recordGaps(afterEntryId, upToEntryId);
+
+        Map<Long, BigDecimal> deltas = sumByCard("""
+                        SELECT card_id, SUM(%s) FROM ledger_entry
+                        WHERE id > :from AND id <= :to AND card_id IS NOT NULL
+                        GROUP BY card_id
+                        """.formatted(SIGNED_AMOUNT),
+                new MapSqlParameterSource("from", afterEntryId).addValue("to", upToEntryId));
+        if (deltas.isEmpty()) {
+            return 0;
+        }
+
+        Map<Long, BigDecimal> previous = sumByCard("""
+                        SELECT s.card_id, s.balance FROM card_balance_snapshot s
+                        WHERE s.card_id IN (:ids)
+                          AND s.last_entry_id = (SELECT MAX(p.last_entry_id) FROM card_balance_snapshot p
+                                                 WHERE p.card_id = s.card_id)
+                        """,
+                new MapSqlParameterSource("ids", deltas.keySet()));
+
+        List<LateEntry> missed = namedJdbcTemplate.query(MISSED_ENTRIES_SQL,
+                new MapSqlParameterSource("ids", deltas.keySet()).addValue("from", afterEntryId),
+                (rs, rowNum) -> new LateEntry(rs.getLong(1), rs.getLong(2), rs.getBigDecimal(3)));
+        if (!missed.isEmpty()) {
+            missed.forEach(entry -> previous.merge(entry.cardId(), entry.amount(), BigDecimal::add));
+            // Проводка вошла в новый снимок — пропуск больше не нужен, иначе её досчитали бы повторно
+            jdbcTemplate.batchUpdate("DELETE FROM ledger_snapshot_gap WHERE entry_id = ?",
+                    missed.stream().map(entry -> new Object[]{entry.id()}).toList());
+            log.warn("Added {} late ledger entries to new snapshots", missed.size());
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> args = new ArrayList<>(deltas.size());
+        deltas.forEach((cardId, delta) -> args.add(new Object[]{
+                cardId, previous.getOrDefault(cardId, BigDecimal.ZERO).add(delta), upToEntryId, now}));
+        jdbcTemplate.batchUpdate(INSERT_SNAPSHOT_SQL, args);
+        return args.size();
+    }
+
+    // Пропуски id в диапазоне — откаченные или ещё не закоммиченные проводки.
+    // Сами id читаются, только если в диапазоне не хватает строк
+    private void recordGaps(long afterEntryId, long upToEntryId) {
+        long present = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM ledger_entry WHERE id > ? AND id <= ?", Long.class, afterEntryId, upToEntryId);
+        if (present == upToEntryId - afterEntryId) {
+            return;
+        }
+
+        List<Long> ids = jdbcTemplate.queryForList(
+                "SELECT id FROM ledger_entry WHERE id > ? AND id <= ? ORDER BY id", Long.class, afterEntryId, upToEntryId);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> gaps = new ArrayList<>();
+        long expected = afterEntryId + 1;
+        for (long id : ids) {
+            for (; expected < id; expected++) {
+                gaps.add(new Object[]{expected, now});
+            }
+            expected = id + 1;
+        }
+        for (; expected <= upToEntryId; expected++) {
+            gaps.add(new Object[]{expected, now});
+        }
+        jdbcTemplate.batchUpdate(INSERT_GAP_SQL, gaps);
+    }
+
+    private Map<Long, BigDecimal> sumByCard(String sql, MapSqlParameterSource params) {
+        Map<Long, BigDecimal> result = new HashMap<>();
+        namedJdbcTemplate.query(sql, params, rs -> {
+            result.put(rs.getLong(1), rs.getBigDecimal(2));
+        });
+        return result;
+    }
+
+    private static List<Posting> openingPostings(Long cardId, Long userId, BigDecimal amount) {
+        String transactionId = UUID.randomUUID().toString();
+        // Отрицательная разница при backfill записывается обратными направлениями, сумма проводки всегда >= 0
+        boolean negative = amount.signum() < 0;
+        BigDecimal absolute = amount.abs();
+        return List.of(
+                new Posting(transactionId, null, userId,
+                        negative ? LedgerDirection.CREDIT : LedgerDirection.DEBIT, LedgerEntryType.OPENING_BALANCE, absolute),
+                new Posting(transactionId, cardId, userId,
+                        negative ? LedgerDirection.DEBIT : LedgerDirection.CREDIT, LedgerEntryType.OPENING_BALANCE, absolute));
+    }
+
+    private void insert(List<Posting> postings) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_ENTRY_SQL, postings, postings.size(), (ps, posting) -> {
+            ps.setString(1, posting.transactionId());
+            if (posting.cardId() != null) {
+                ps.setLong(2, posting.cardId());
+            } else {
+                ps.setNull(2, Types.BIGINT);
+            }
+            ps.setLong(3, posting.userId());
+            ps.setString(4, posting.direction().name());
+            ps.setString(5, posting.entryType().name());
+            ps.setBigDecimal(6, posting.amount());
+            ps.setTimestamp(7, now);
+        });
+    }
+
+    private record LateEntry(long id, Long cardId, BigDecimal amount) {
+    }
+
+    private record Posting(String transactionId, Long cardId, Long userId,
+                           LedgerDirection direction, LedgerEntryType entryType, BigDecimal amount) {
+    }
+}
@@ -0,0 +1,78 @@
+package ru.effectivemobile.bankcards.service.lock;
+
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.context.expression.MethodBasedEvaluationContext;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.core.annotation.Order;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.stereotype.Component;
+import ru.effectivemobile.bankcards.config.CardLockConfig;
+import ru.effectivemobile.bankcards.service.retry.ConflictRetryAspect;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Aspect
+@Component
+@Order(CardLockAspect.ORDER)
+@RequiredArgsConstructor
+public class CardLockAspect {
+
+    // Снаружи повторов и транзакции: поток ждёт блокировку, не удерживая соединение из пула
+    public static final int ORDER = ConflictRetryAspect.ORDER - 100;
+
+    private static final ExpressionParser PARSER = new SpelExpressionParser();
+    private static final ParameterNameDiscoverer PARAMETER_NAMES = new DefaultParameterNameDiscoverer();
+
+    private final CardLockManager cardLockManager;
+    private final CardLockConfig config;
+    private final Map<String, Expression> expressions = new ConcurrentHashMap<>();
+
+    @Around("@annotation(lockCards)")
+    public Object lock(ProceedingJoinPoint joinPoint, LockCards lockCards) throws Throwable {
+        if (!config.isEnabled()) {
+            return joinPoint.proceed();
+        }
+
+        CardLockManager.CardLocks locks = cardLockManager.lock(resolveCardIds(joinPoint, lockCards));
+        try {
+            return joinPoint.proceed();
+        } finally {
+            locks.close();
+        }
+    }
+
+    private List<Long> resolveCardIds(ProceedingJoinPoint joinPoint, LockCards lockCards) {
+        MethodSignature signature = (MethodSignature) joinPoint.getSignature();
+        EvaluationContext context = new MethodBasedEvaluationContext(
+                joinPoint.getTarget(), signature.getMethod(), joinPoint.getArgs(), PARAMETER_NAMES);
+
+        List<Long> cardIds = new ArrayList<>();
+        for (String expression : lockCards.value()) {
+            Object value = expressions.computeIfAbsent(expression, PARSER::parseExpression).getValue(context);
+            if (value instanceof Collection<?> values) {
+                values.forEach(item -> addCardId(cardIds, item));
+            } else {
+                addCardId(cardIds, value);
+            }
+        }
+        return cardIds;
+    }
+
+    private static void addCardId(List<Long> cardIds, Object value) {
+        if (value instanceof Number number) {
+            cardIds.add(number.longValue());
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package ru.effectivemobile.bankcards.service.lock;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import ru.effectivemobile.bankcards.config.CardLockConfig;
+import ru.effectivemobile.bankcards.exception.CardLockTimeoutException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Полосатая блокировка карт внутри процесса: конкурирующие операции над одной картой
+// ждут в памяти, а не на блокировке строки в БД с занятым соединением из пула
+@Component
+public class CardLockManager {
+
+    private final CardLockConfig config;
+    private final ReentrantLock[] stripes;
+    private final Timer waitTimer;
+    private final Counter timeouts;
+
+    public CardLockManager(CardLockConfig config, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.stripes = new ReentrantLock[Integer.highestOneBit(Math.max(1, config.getStripes() - 1)) << 1];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock(config.isFair());
+        }
+        this.waitTimer = Timer.builder("card.lock.wait")
+                .description("Time spent waiting for in-process card locks")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.timeouts = Counter.builder("card.lock.timeouts")
+                .register(meterRegistry);
+    }
+
+    // Полосы захватываются по возрастанию индекса: при едином порядке взаимоблокировка невозможна,
+    // в том числе когда разные карты попадают в одну полосу
+    public CardLocks lock(Collection<Long> cardIds) {
+        int[] indexes = cardIds.stream()
+                .filter(Objects::nonNull)
+                .mapToInt(this::stripeIndex)
+                .distinct()
+                .sorted()
+                .toArray();
+
+        List<ReentrantLock> acquired = new ArrayList<>(indexes.length);
+        long started = System.nanoTime();
+        long deadline = started + config.getTimeout().toNanos();
+        try {
+            for (int index : indexes) {
+                ReentrantLock lock = stripes[index];
+                if (!lock.tryLock(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                    timeouts.increment();
+                    throw new CardLockTimeoutException("Card is busy, please retry later");
+                }
+                acquired.add(lock);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            unlock(acquired);
+            throw new CardLockTimeoutException("Interrupted while waiting for card lock");
+        } catch (RuntimeException e) {
+            unlock(acquired);
+            throw e;
+        }
+
+        waitTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        return new CardLocks(acquired);
+    }
+
+    int stripeIndex(Long cardId) {
+        int hash = Long.hashCode(cardId);
+        hash ^= (hash >>> 16);
+        return hash & (stripes.length - 1);
+    }
+
+    int getStripeCount() {
+        return stripes.length;
+    }
+
+    private static void unlock(List<ReentrantLock> locks) {
+        for (int i = locks.size() - 1; i >= 0; i--) {
+            locks.get(i).unlock();
+        }
+    }
+
+    // Освобождает захваченные полосы в обратном порядке
+    public static final class CardLocks implements AutoCloseable {
+
+        private final List<ReentrantLock> locks;
+
+        private CardLocks(List<ReentrantLock> locks) {
+            this.locks = locks;
+        }
+
+        @Override
+        public void close() {
+            unlock(locks);
+        }
+    }
+}
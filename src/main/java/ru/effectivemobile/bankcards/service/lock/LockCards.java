@@ -0,0 +1,15 @@
+package ru.effectivemobile.bankcards.service.lock;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Блокировка карт на время метода до открытия транзакции.
+// value — SpEL-выражения над аргументами метода, возвращающие id карты или коллекцию id
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface LockCards {
+
+    String[] value();
+}
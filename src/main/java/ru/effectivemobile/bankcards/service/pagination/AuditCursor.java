@@ -0,0 +1,34 @@
+package ru.effectivemobile.bankcards.service.pagination;
+
+import org.springframework.data.domain.Sort;
+import ru.effectivemobile.bankcards.entity.CardAudit;
+import ru.effectivemobile.bankcards.exception.BusinessValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+// Позиция keyset-пагинации аудита: (created_at, id) последней записи страницы и направление обхода
+public record AuditCursor(Sort.Direction direction, LocalDateTime createdAt, Long id) {
+
+    public static AuditCursor after(CardAudit audit, Sort.Direction direction) {
+        return new AuditCursor(direction, audit.getCreatedAt(), audit.getId());
+    }
+
+    public String encode() {
+        String raw = direction + "|" + createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static AuditCursor decode(String token, Sort.Direction direction) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split("\\|", -1);
+            if (parts.length != 3 || Sort.Direction.valueOf(parts[0]) != direction) {
+                throw new IllegalArgumentException("Cursor does not match the requested direction");
+            }
+            return new AuditCursor(direction, LocalDateTime.parse(parts[1]), Long.valueOf(parts[2]));
+        } catch (RuntimeException e) {
+            throw new BusinessValidationException("Invalid cursor");
+        }
+    }
+}
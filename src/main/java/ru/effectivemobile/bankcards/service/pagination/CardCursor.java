@@ -0,0 +1,40 @@
+package ru.effectivemobile.bankcards.service.pagination;
+
+import org.springframework.data.domain.Sort;
+import ru.effectivemobile.bankcards.entity.Card;
+import ru.effectivemobile.bankcards.exception.BusinessValidationException;
+import ru.effectivemobile.bankcards.repository.CardSortKey;
+
+import java.nio.charset.StandardCharsets;
+import java.time.YearMonth;
+import java.util.Base64;
+
+// Позиция keyset-пагинации карт: значение ключа сортировки и id последней карты страницы.
+// Ключ и направление сортировки входят в токен, чтобы курсор не применялся к другому порядку
+public record CardCursor(CardSortKey sortKey, Sort.Direction direction, YearMonth expiryDate, Long id) {
+
+    public static CardCursor after(Card card, CardSortKey sortKey, Sort.Direction direction) {
+        return new CardCursor(sortKey, direction,
+                sortKey == CardSortKey.EXPIRY_DATE ? card.getExpiryDate() : null, card.getId());
+    }
+
+    public String encode() {
+        String raw = sortKey + ":" + direction + ":" + (expiryDate == null ? "" : expiryDate) + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static CardCursor decode(String token, CardSortKey sortKey, Sort.Direction direction) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split(":", -1);
+            if (parts.length != 4
+                    || CardSortKey.valueOf(parts[0]) != sortKey
+                    || Sort.Direction.valueOf(parts[1]) != direction) {
+                throw new IllegalArgumentException("Cursor does not match the requested sort");
+            }
+            YearMonth expiryDate = sortKey == CardSortKey.EXPIRY_DATE ? YearMonth.parse(parts[2]) : null;
+            return new CardCursor(sortKey, direction, expiryDate, Long.valueOf(parts[3]));
+        } catch (RuntimeException e) {
+            throw new BusinessValidationException("Invalid cursor");
+        }
+    }
+}
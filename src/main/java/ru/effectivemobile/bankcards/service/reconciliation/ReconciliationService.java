@@ -0,0 +1,318 @@
+package ru.effectivemobile.bankcards.service.reconciliation;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.effectivemobile.bankcards.config.ReconciliationConfig;
+import ru.effectivemobile.bankcards.entity.ReconciliationChunk;
+import ru.effectivemobile.bankcards.entity.ReconciliationMismatch;
+import ru.effectivemobile.bankcards.entity.ReconciliationRun;
+import ru.effectivemobile.bankcards.entity.ReconciliationStatus;
+import ru.effectivemobile.bankcards.repository.ReconciliationChunkRepository;
+import ru.effectivemobile.bankcards.repository.ReconciliationMismatchRepository;
+import ru.effectivemobile.bankcards.repository.ReconciliationRunRepository;
+import ru.effectivemobile.bankcards.service.clusterlock.ClusterLocked;
+import ru.effectivemobile.bankcards.service.jdbc.StreamingQueryExecutor;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Сверка card.balance с аудитом: начальный баланс из CREATE плюс сумма изменений UPDATE_BALANCE.
+// Записи из архивированных партиций аудита учитываются через итоги card_audit_archive_total.
+// Карты делятся на диапазоны id; диапазоны сверяются параллельно на ограниченном пуле потоков,
+// каждый — одним агрегирующим запросом с потоковым чтением результата. Готовый диапазон
+// фиксируется чекпоинтом, поэтому после рестарта запуск продолжается с несверенных диапазонов
+@Slf4j
+@Service
+public class ReconciliationService {
+
+    private static final String CHUNK_SQL = """
+            SELECT c.id, c.balance, COALESCE(a.expected, 0) + COALESCE(t.expected_delta, 0),
+                   COALESCE(a.audit_rows, 0) + COALESCE(t.audit_rows, 0)
+            FROM card c
+            LEFT JOIN (SELECT card_id,
+                              SUM(CASE WHEN action = 'CREATE' THEN new_balance
+                                       ELSE new_balance - COALESCE(old_balance, 0) END) AS expected,
+                              COUNT(*) AS audit_rows
+                       FROM card_audit
+                       WHERE card_id > ? AND card_id <= ?
+                         AND action IN ('CREATE', 'UPDATE_BALANCE') AND new_balance IS NOT NULL
+                       GROUP BY card_id) a ON a.card_id = c.id
+            LEFT JOIN card_audit_archive_total t ON t.card_id = c.id
+            WHERE c.id > ? AND c.id <= ?
+            """;
+
+    private static final String RECHECK_SQL = """
+            SELECT c.id, c.balance, COALESCE(SUM(CASE WHEN a.action = 'CREATE' THEN a.new_balance
+                                                      ELSE a.new_balance - COALESCE(a.old_balance, 0) END), 0)
+                                    + COALESCE(t.expected_delta, 0)
+            FROM card c
+            LEFT JOIN card_audit a ON a.card_id = c.id
+                 AND a.action IN ('CREATE', 'UPDATE_BALANCE') AND a.new_balance IS NOT NULL
+            LEFT JOIN card_audit_archive_total t ON t.card_id = c.id
+            WHERE c.id IN (:ids)
+            GROUP BY c.id, c.balance, t.expected_delta
+            """;
+
+    private static final int RECHECK_BATCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final StreamingQueryExecutor streamingQueryExecutor;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ReconciliationRunRepository runRepository;
+    private final ReconciliationChunkRepository chunkRepository;
+    private final ReconciliationMismatchRepository mismatchRepository;
+    private final ReconciliationConfig config;
+
+    private final Counter cardsCounter;
+    private final Counter auditRowsCounter;
+    private final Counter mismatchesCounter;
+    private final Timer chunkTimer;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public ReconciliationService(JdbcTemplate jdbcTemplate,
+                                 StreamingQueryExecutor streamingQueryExecutor,
+                                 PlatformTransactionManager transactionManager,
+                                 ReconciliationRunRepository runRepository,
+                                 ReconciliationChunkRepository chunkRepository,
+                                 ReconciliationMismatchRepository mismatchRepository,
+                                 ReconciliationConfig config,
+                                 MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.streamingQueryExecutor = streamingQueryExecutor;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.runRepository = runRepository;
+        this.chunkRepository = chunkRepository;
+        this.mismatchRepository = mismatchRepository;
+        this.config = config;
+
+        this.cardsCounter = Counter.builder("reconciliation.cards")
+                .description("Cards reconciled against audit history")
+                .register(meterRegistry);
+        this.auditRowsCounter = Counter.builder("reconciliation.audit.rows")
+                .description("Audit rows aggregated during reconciliation")
+                .register(meterRegistry);
+        this.mismatchesCounter = Counter.builder("reconciliation.mismatches")
+                .description("Confirmed balance mismatches")
+                .register(meterRegistry);
+        this.chunkTimer = Timer.builder("reconciliation.chunk")
+                .description("Time to reconcile one card id range")
+                .register(meterRegistry);
+    }
+
+    // Продолжает незавершённый запуск или начинает новый. Empty — сверка уже идёт или не все диапазоны сверены
+    @ClusterLocked(value = "reconciliation", lockAtLeastFor = "1m")
+    public Optional<ReconciliationRun> reconcile() {
+        if (!running.compareAndSet(false, true)) {
+            log.warn("Reconciliation is already running, skipping");
+            return Optional.empty();
+        }
+        try {
+            ReconciliationRun run = runRepository.findFirstByStatusOrderByIdDesc(ReconciliationStatus.RUNNING)
+                    .orElseGet(this::startRun);
+            long started = System.nanoTime();
+
+            if (!reconcileChunks(run)) {
+                return Optional.empty();
+            }
+            recheckMismatches(run.getId());
+            return Optional.of(finishRun(run, Duration.ofNanos(System.nanoTime() - started)));
+        } finally {
+            running.set(false);
+        }
+    }
+
+    public boolean hasUnfinishedRun() {
+        return runRepository.findFirstByStatusOrderByIdDesc(ReconciliationStatus.RUNNING).isPresent();
+    }
+
+    public List<ReconciliationMismatch> getMismatches(Long runId) {
+        return mismatchRepository.findByRunId(runId);
+    }
+
+    private ReconciliationRun startRun() {
+        return transactionTemplate.execute(status -> {
+            Long maxCardId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM card", Long.class);
+
+            ReconciliationRun run = new ReconciliationRun();
+            run.setStatus(ReconciliationStatus.RUNNING);
+            run.setMaxCardId(maxCardId);
+            run.setStartedAt(LocalDateTime.now());
+            run = runRepository.save(run);
+
+            List<ReconciliationChunk> chunks = new ArrayList<>();
+            for (long from = 0; from < maxCardId; from += config.getChunkSize()) {
+                ReconciliationChunk chunk = new ReconciliationChunk();
+                chunk.setRunId(run.getId());
+                chunk.setFromCardId(from);
+                chunk.setToCardId(Math.min(maxCardId, from + config.getChunkSize()));
+                chunks.add(chunk);
+            }
+            chunkRepository.saveAll(chunks);
+
+            log.info("Reconciliation run {} started: cards up to id {}, {} chunks", run.getId(), maxCardId, chunks.size());
+            return run;
+        });
+    }
+
+    // true — все диапазоны запуска сверены. Упавший диапазон остаётся без чекпоинта до следующего запуска
+    private boolean reconcileChunks(ReconciliationRun run) {
+        List<ReconciliationChunk> pending = chunkRepository.findByRunIdAndCompletedAtIsNullOrderByFromCardId(run.getId());
+        if (pending.isEmpty()) {
+            return true;
+        }
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(config.getParallelism(), runnable -> {
+            Thread thread = new Thread(runnable, "reconciliation-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        boolean completed = true;
+        try {
+            List<Future<?>> futures = new ArrayList<>(pending.size());
+            for (ReconciliationChunk chunk : pending) {
+                futures.add(executor.submit(() -> reconcileChunk(chunk)));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    completed = false;
+                    log.error("Reconciliation chunk failed in run {}", run.getId(), e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            completed = false;
+        } finally {
+            executor.shutdownNow();
+        }
+        return completed;
+    }
+
+    private void reconcileChunk(ReconciliationChunk chunk) {
+        Timer.Sample sample = Timer.start();
+        List<ReconciliationMismatch> mismatches = new ArrayList<>();
+        long[] counts = new long[2];
+
+        // Результат чанка читается курсором, а не целиком в память
+        streamingQueryExecutor.query(CHUNK_SQL, config.getFetchSize(), rs -> {
+            counts[0]++;
+            counts[1] += rs.getLong(4);
+            BigDecimal balance = rs.getBigDecimal(2);
+            BigDecimal expected = rs.getBigDecimal(3);
+            if (balance.compareTo(expected) != 0) {
+                mismatches.add(mismatch(chunk.getRunId(), rs.getLong(1), balance, expected));
+            }
+        }, chunk.getFromCardId(), chunk.getToCardId(), chunk.getFromCardId(), chunk.getToCardId());
+
+        // Расхождения и чекпоинт фиксируются одной транзакцией
+        transactionTemplate.executeWithoutResult(status -> {
+            mismatchRepository.saveAll(mismatches);
+            chunk.setCardsChecked(counts[0]);
+            chunk.setAuditRows(counts[1]);
+            chunk.setCompletedAt(LocalDateTime.now());
+            chunkRepository.save(chunk);
+        });
+
+        cardsCounter.increment(counts[0]);
+        auditRowsCounter.increment(counts[1]);
+        sample.stop(chunkTimer);
+    }
+
+    // Совпавшие при повторной проверке расхождения удаляются, оставшиеся подтверждаются
+    private void recheckMismatches(Long runId) {
+        List<ReconciliationMismatch> candidates = mismatchRepository.findByRunIdAndConfirmedFalse(runId);
+        if (candidates.isEmpty()) {
+            return;
+        }
+
+        try {
+            Thread.sleep(config.getRecheckDelay().toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        for (int from = 0; from < candidates.size(); from += RECHECK_BATCH_SIZE) {
+            List<ReconciliationMismatch> batch = candidates.subList(from, Math.min(candidates.size(), from + RECHECK_BATCH_SIZE));
+            Map<Long, BigDecimal[]> current = new HashMap<>();
+            namedJdbcTemplate.query(RECHECK_SQL,
+                    new MapSqlParameterSource("ids", batch.stream().map(ReconciliationMismatch::getCardId).toList()),
+                    rs -> {
+                        current.put(rs.getLong(1), new BigDecimal[]{rs.getBigDecimal(2), rs.getBigDecimal(3)});
+                    });
+
+            transactionTemplate.executeWithoutResult(status -> {
+                for (ReconciliationMismatch mismatch : batch) {
+                    BigDecimal[] balances = current.get(mismatch.getCardId());
+                    // Карта удалена или балансы сошлись
+                    if (balances == null || balances[0].compareTo(balances[1]) == 0) {
+                        mismatchRepository.delete(mismatch);
+                        continue;
+                    }
+                    mismatch.setCardBalance(balances[0]);
+                    mismatch.setAuditBalance(balances[1]);
+                    mismatch.setConfirmed(true);
+                    mismatchRepository.save(mismatch);
+                }
+            });
+        }
+    }
+
+    private ReconciliationRun finishRun(ReconciliationRun run, Duration elapsed) {
+        return transactionTemplate.execute(status -> {
+            run.setCardsChecked(chunkRepository.sumCardsChecked(run.getId()));
+            run.setAuditRows(chunkRepository.sumAuditRows(run.getId()));
+            run.setMismatches((int) mismatchRepository.countByRunIdAndConfirmedTrue(run.getId()));
+            run.setStatus(ReconciliationStatus.COMPLETED);
+            run.setFinishedAt(LocalDateTime.now());
+            ReconciliationRun saved = runRepository.save(run);
+
+            mismatchesCounter.increment(saved.getMismatches());
+            double seconds = Math.max(elapsed.toMillis(), 1) / 1000.0;
+            log.info("Reconciliation run {} completed: {} cards, {} audit rows, {} mismatches in {} ms ({} audit rows/s)",
+                    saved.getId(), saved.getCardsChecked(), saved.getAuditRows(), saved.getMismatches(),
+                    elapsed.toMillis(), Math.round(saved.getAuditRows() / seconds));
+            if (saved.getMismatches() > 0) {
+                log.warn("Reconciliation run {} found {} cards whose balance does not match audit history",
+                        saved.getId(), saved.getMismatches());
+            }
+            return saved;
+        });
+    }
+
+    private static ReconciliationMismatch mismatch(Long runId, Long cardId, BigDecimal balance, BigDecimal expected) {
+        ReconciliationMismatch mismatch = new ReconciliationMismatch();
+        mismatch.setRunId(runId);
+        mismatch.setCardId(cardId);
+        mismatch.setCardBalance(balance);
+        mismatch.setAuditBalance(expected);
+        mismatch.setDetectedAt(LocalDateTime.now());
+        return mismatch;
+    }
+}
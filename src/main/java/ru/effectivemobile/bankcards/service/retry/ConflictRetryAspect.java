@@ -0,0 +1,100 @@
+package ru.effectivemobile.bankcards.service.retry;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.effectivemobile.bankcards.config.ConflictRetryConfig;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+@Aspect
+@Component
+@Order(ConflictRetryAspect.ORDER)
+@RequiredArgsConstructor
+@Slf4j
+public class ConflictRetryAspect {
+
+    // Выполняется снаружи @Transactional (LOWEST_PRECEDENCE), чтобы каждая попытка шла в своей транзакции
+    public static final int ORDER = Ordered.LOWEST_PRECEDENCE - 100;
+
+    private final ConflictRetryConfig config;
+    private final MeterRegistry meterRegistry;
+
+    @Around("@annotation(retryOnConflict)")
+    public Object retry(ProceedingJoinPoint joinPoint, RetryOnConflict retryOnConflict) throws Throwable {
+        String operation = retryOnConflict.value();
+
+        // Внутри внешней транзакции повтор бесполезен: она уже помечена на откат
+        int maxAttempts = TransactionSynchronizationManager.isActualTransactionActive()
+                ? 1
+                : config.getMaxAttempts();
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                Object result = joinPoint.proceed();
+                recordAttempts(operation, attempt);
+                return result;
+            } catch (ConcurrencyFailureException e) {
+                counter("card.conflicts", operation).increment();
+
+                if (attempt >= maxAttempts) {
+                    recordAttempts(operation, attempt);
+                    counter("card.conflict.exhausted", operation).increment();
+                    log.warn("Operation {} failed after {} attempt(s) due to concurrent modification: {}",
+                            operation, attempt, e.getMessage());
+                    throw e;
+                }
+
+                counter("card.conflict.retries", operation).increment();
+                log.debug("Concurrent modification in {}, attempt {} of {}", operation, attempt, maxAttempts);
+
+                if (!sleep(backoffMillis(attempt))) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    // Экспоненциальная задержка с джиттером, чтобы конкурирующие запросы не повторялись синхронно
+    long backoffMillis(int attempt) {
+        double base = config.getInitialBackoff().toMillis() * Math.pow(config.getMultiplier(), attempt - 1);
+        double capped = Math.min(base, config.getMaxBackoff().toMillis());
+        double jitter = capped * config.getJitter() * ThreadLocalRandom.current().nextDouble();
+        return Math.round(capped - jitter);
+    }
+
+    private boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void recordAttempts(String operation, int attempts) {
+        DistributionSummary.builder("card.conflict.attempts")
+                .description("Attempts per call of an operation retried on concurrent modification")
+                .tag("operation", operation)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(attempts);
+    }
+
+    private Counter counter(String name, String operation) {
+        return Counter.builder(name)
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,15 @@
+package ru.effectivemobile.bankcards.service.retry;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Повтор метода при конфликте конкурентного изменения (оптимистическая блокировка, дедлок).
+// Каждая попытка выполняется в новой транзакции; value — имя операции в метриках
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RetryOnConflict {
+
+    String value();
+}
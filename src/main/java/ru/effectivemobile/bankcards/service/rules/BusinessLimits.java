@@ -0,0 +1,83 @@
+package ru.effectivemobile.bankcards.service.rules;
+
+import ru.effectivemobile.bankcards.entity.BusinessRuleKey;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+// Лимиты пользователя после применения всех переопределений. Неизменяемы;
+// тексты ошибок форматируются один раз при компиляции, а не при каждой проверке
+public final class BusinessLimits {
+
+    private final BigDecimal minCardBalance;
+    private final BigDecimal maxTransferAmount;
+    private final BigDecimal minTransferAmount;
+    private final int maxCardsPerUser;
+    private final BigDecimal minInitialBalance;
+
+    private final String insufficientFundsMessage;
+    private final String minCardBalanceMessage;
+    private final String maxTransferAmountMessage;
+    private final String minTransferAmountMessage;
+    private final String maxCardsPerUserMessage;
+    private final String minInitialBalanceMessage;
+
+    BusinessLimits(Map<BusinessRuleKey, Object> values) {
+        this.minCardBalance = (BigDecimal) values.get(BusinessRuleKey.MIN_CARD_BALANCE);
+        this.maxTransferAmount = (BigDecimal) values.get(BusinessRuleKey.MAX_TRANSFER_AMOUNT);
+        this.minTransferAmount = (BigDecimal) values.get(BusinessRuleKey.MIN_TRANSFER_AMOUNT);
+        this.maxCardsPerUser = (Integer) values.get(BusinessRuleKey.MAX_CARDS_PER_USER);
+        this.minInitialBalance = (BigDecimal) values.get(BusinessRuleKey.MIN_INITIAL_BALANCE);
+
+        this.insufficientFundsMessage = String.format("Insufficient funds. Minimum balance must be %s", minCardBalance);
+        this.minCardBalanceMessage = String.format("Card balance cannot be less than %s", minCardBalance);
+        this.maxTransferAmountMessage = String.format("Transfer amount cannot exceed %s", maxTransferAmount);
+        this.minTransferAmountMessage = String.format("Transfer amount must be at least %s", minTransferAmount);
+        this.maxCardsPerUserMessage = String.format("User cannot have more than %d cards", maxCardsPerUser);
+        this.minInitialBalanceMessage = String.format("Initial balance must be at least %s", minInitialBalance);
+    }
+
+    public BigDecimal getMinCardBalance() {
+        return minCardBalance;
+    }
+
+    public BigDecimal getMaxTransferAmount() {
+        return maxTransferAmount;
+    }
+
+    public BigDecimal getMinTransferAmount() {
+        return minTransferAmount;
+    }
+
+    public int getMaxCardsPerUser() {
+        return maxCardsPerUser;
+    }
+
+    public BigDecimal getMinInitialBalance() {
+        return minInitialBalance;
+    }
+
+    public String getInsufficientFundsMessage() {
+        return insufficientFundsMessage;
+    }
+
+    public String getMinCardBalanceMessage() {
+        return minCardBalanceMessage;
+    }
+
+    public String getMaxTransferAmountMessage() {
+        return maxTransferAmountMessage;
+    }
+
+    public String getMinTransferAmountMessage() {
+        return minTransferAmountMessage;
+    }
+
+    public String getMaxCardsPerUserMessage() {
+        return maxCardsPerUserMessage;
+    }
+
+    public String getMinInitialBalanceMessage() {
+        return minInitialBalanceMessage;
+    }
+}
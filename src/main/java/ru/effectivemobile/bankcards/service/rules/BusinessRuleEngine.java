@@ -0,0 +1,164 @@
+package ru.effectivemobile.bankcards.service.rules;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.effectivemobile.bankcards.config.BusinessRulesConfig;
+import ru.effectivemobile.bankcards.entity.BusinessRule;
+import ru.effectivemobile.bankcards.entity.BusinessRuleKey;
+import ru.effectivemobile.bankcards.entity.Role;
+import ru.effectivemobile.bankcards.repository.BusinessRuleRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Лимиты из таблицы business_rule поверх значений business.rules. Переопределения применяются
+// в порядке GLOBAL -> ROLE -> USER. Набор компилируется целиком и подменяется одной записью volatile-ссылки,
+// поэтому проверки читают его без блокировок. Набор с ошибкой не применяется — остаётся предыдущий
+@Slf4j
+@Component
+public class BusinessRuleEngine {
+
+    // Изменение правил отмечается ревизией, а не updated_at: время пишется часами сохраняющего узла,
+    // а правка существующей строки не меняет число строк
+    private static final String REVISION_SQL = "SELECT COALESCE(MAX(revision), 0) FROM business_rule_revision";
+    private static final String BUMP_REVISION_SQL = "UPDATE business_rule_revision SET revision = revision + 1 WHERE id = 1";
+    private static final String INSERT_REVISION_SQL = "INSERT INTO business_rule_revision (id, revision) VALUES (1, 1)";
+
+    private final BusinessRuleRepository businessRuleRepository;
+    private final BusinessRulesConfig defaults;
+    private final JdbcTemplate jdbcTemplate;
+    private final AtomicLong versions = new AtomicLong();
+
+    private volatile BusinessRuleSet current;
+    // Ревизия правил на момент последней загрузки
+    private volatile Long revision;
+
+    public BusinessRuleEngine(BusinessRuleRepository businessRuleRepository,
+                              BusinessRulesConfig defaults,
+                              JdbcTemplate jdbcTemplate) {
+        this.businessRuleRepository = businessRuleRepository;
+        this.defaults = defaults;
+        this.jdbcTemplate = jdbcTemplate;
+        this.current = compile(List.of());
+    }
+
+    @PostConstruct
+    public void init() {
+        try {
+            reload();
+        } catch (Exception e) {
+            log.error("Error loading business rules, using configured defaults", e);
+        }
+    }
+
+    public BusinessRuleSet current() {
+        return current;
+    }
+
+    public synchronized BusinessRuleSet reload() {
+        Long loadedRevision = revision();
+        BusinessRuleSet compiled = compile(businessRuleRepository.findAll());
+        current = compiled;
+        revision = loadedRevision;
+        log.info("Loaded business rules version {} ({} overrides)", compiled.getVersion(), compiled.getRuleCount());
+        return compiled;
+    }
+
+    // Вызывается по расписанию на каждом узле: перечитывает таблицу, только если она изменилась
+    public void reloadIfChanged() {
+        Long actual = revision();
+        if (Objects.equals(actual, revision)) {
+            return;
+        }
+        try {
+            reload();
+        } catch (IllegalArgumentException e) {
+            // Ошибка логируется один раз на каждое изменение таблицы
+            revision = actual;
+            log.error("Invalid business rules, keeping version {}", current.getVersion(), e);
+        }
+    }
+
+    // Вызывается в транзакции изменения правил: блокировка строки ревизии держится до коммита
+    public void bumpRevision() {
+        if (jdbcTemplate.update(BUMP_REVISION_SQL) == 0) {
+            // Строку создаёт миграция; в схеме без неё ревизия начинается с первого изменения
+            jdbcTemplate.update(INSERT_REVISION_SQL);
+        }
+    }
+
+    // Проверяет и приводит значение к типу правила; IllegalArgumentException при неверном значении
+    public static Object parseValue(BusinessRuleKey key, String value) {
+        if (key == BusinessRuleKey.MAX_CARDS_PER_USER) {
+            int count = Integer.parseInt(value.trim());
+            if (count < 0) {
+                throw new IllegalArgumentException(key + " must not be negative");
+            }
+            return count;
+        }
+        BigDecimal amount = new BigDecimal(value.trim());
+        if (amount.signum() < 0 || amount.scale() > 2) {
+            throw new IllegalArgumentException(key + " must be a non-negative amount with at most 2 decimal places");
+        }
+        return amount;
+    }
+
+    BusinessRuleSet compile(List<BusinessRule> rules) {
+        Map<BusinessRuleKey, Object> global = new EnumMap<>(BusinessRuleKey.class);
+        global.put(BusinessRuleKey.MIN_CARD_BALANCE, defaults.getMinCardBalance());
+        global.put(BusinessRuleKey.MAX_TRANSFER_AMOUNT, defaults.getMaxTransferAmount());
+        global.put(BusinessRuleKey.MIN_TRANSFER_AMOUNT, defaults.getMinTransferAmount());
+        global.put(BusinessRuleKey.MAX_CARDS_PER_USER, defaults.getMaxCardsPerUser());
+        global.put(BusinessRuleKey.MIN_INITIAL_BALANCE, defaults.getMinInitialBalance());
+
+        Map<Role, Map<BusinessRuleKey, Object>> roleValues = new EnumMap<>(Role.class);
+        Map<Long, Map<BusinessRuleKey, Object>> userValues = new HashMap<>();
+        for (BusinessRule rule : rules) {
+            Object value = parseValue(rule.getRuleKey(), rule.getValue());
+            switch (rule.getScope()) {
+                case GLOBAL -> global.put(rule.getRuleKey(), value);
+                case ROLE -> roleValues.computeIfAbsent(Role.valueOf(rule.getScopeValue()),
+                        role -> new EnumMap<>(BusinessRuleKey.class)).put(rule.getRuleKey(), value);
+                case USER -> userValues.computeIfAbsent(Long.valueOf(rule.getScopeValue()),
+                        userId -> new EnumMap<>(BusinessRuleKey.class)).put(rule.getRuleKey(), value);
+            }
+        }
+
+        Map<Role, Map<BusinessRuleKey, Object>> resolvedRoles = new EnumMap<>(Role.class);
+        Map<Role, BusinessLimits> roleLimits = new EnumMap<>(Role.class);
+        for (Role role : Role.values()) {
+            Map<BusinessRuleKey, Object> values = new EnumMap<>(global);
+            values.putAll(roleValues.getOrDefault(role, Map.of()));
+            resolvedRoles.put(role, values);
+            roleLimits.put(role, new BusinessLimits(values));
+        }
+
+        Map<Long, Map<Role, BusinessLimits>> userLimits = new HashMap<>();
+        userValues.forEach((userId, overrides) -> {
+            Map<Role, BusinessLimits> byRole = new EnumMap<>(Role.class);
+            for (Role role : Role.values()) {
+                Map<BusinessRuleKey, Object> values = new EnumMap<>(resolvedRoles.get(role));
+                values.putAll(overrides);
+                byRole.put(role, new BusinessLimits(values));
+            }
+            userLimits.put(userId, Collections.unmodifiableMap(byRole));
+        });
+
+        return new BusinessRuleSet(versions.incrementAndGet(), LocalDateTime.now(), rules.size(),
+                Collections.unmodifiableMap(roleLimits), Collections.unmodifiableMap(userLimits),
+                !roleValues.isEmpty());
+    }
+
+    private Long revision() {
+        return jdbcTemplate.queryForObject(REVISION_SQL, Long.class);
+    }
+}
@@ -0,0 +1,114 @@
+package ru.effectivemobile.bankcards.service.rules;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.effectivemobile.bankcards.dto.BusinessRuleDto;
+import ru.effectivemobile.bankcards.dto.BusinessRuleRequest;
+import ru.effectivemobile.bankcards.dto.BusinessRuleSetDto;
+import ru.effectivemobile.bankcards.entity.BusinessRule;
+import ru.effectivemobile.bankcards.entity.Role;
+import ru.effectivemobile.bankcards.exception.BusinessRuleNotFoundException;
+import ru.effectivemobile.bankcards.exception.BusinessValidationException;
+import ru.effectivemobile.bankcards.repository.BusinessRuleRepository;
+import ru.effectivemobile.bankcards.security.CurrentUserResolver;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Изменение правил администратором. Этот узел применяет новый набор сразу после коммита,
+// остальные — при следующем опросе таблицы
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BusinessRuleService {
+
+    private final BusinessRuleRepository businessRuleRepository;
+    private final BusinessRuleEngine businessRuleEngine;
+    private final CurrentUserResolver currentUserResolver;
+
+    @Transactional(readOnly = true)
+    public List<BusinessRuleDto> getRules() {
+        return businessRuleRepository.findAllByOrderByRuleKeyAscScopeAscScopeValueAsc().stream()
+                .map(this::toDto)
+                .toList();
+    }
+
+    // Создаёт или заменяет переопределение с тем же ключом и областью действия
+    @Transactional
+    public BusinessRuleDto saveRule(BusinessRuleRequest request) {
+        String scopeValue = normalizeScopeValue(request);
+        try {
+            BusinessRuleEngine.parseValue(request.key(), request.value());
+        } catch (IllegalArgumentException e) {
+            throw new BusinessValidationException("Invalid value for " + request.key() + ": " + request.value());
+        }
+
+        BusinessRule rule = businessRuleRepository
+                .findByRuleKeyAndScopeAndScopeValue(request.key(), request.scope(), scopeValue)
+                .orElseGet(BusinessRule::new);
+        rule.setRuleKey(request.key());
+        rule.setScope(request.scope());
+        rule.setScopeValue(scopeValue);
+        rule.setValue(request.value().trim());
+        rule.setUpdatedAt(LocalDateTime.now());
+        rule.setUpdatedBy(currentUserResolver.getPerformedBy());
+
+        BusinessRule saved = businessRuleRepository.save(rule);
+        businessRuleEngine.bumpRevision();
+        reloadAfterCommit();
+        return toDto(saved);
+    }
+
+    @Transactional
+    public void deleteRule(Long ruleId) {
+        BusinessRule rule = businessRuleRepository.findById(ruleId)
+                .orElseThrow(() -> new BusinessRuleNotFoundException(ruleId));
+        businessRuleRepository.delete(rule);
+        businessRuleEngine.bumpRevision();
+        reloadAfterCommit();
+    }
+
+    public BusinessRuleSetDto reload() {
+        BusinessRuleSet ruleSet = businessRuleEngine.reload();
+        return new BusinessRuleSetDto(ruleSet.getVersion(), ruleSet.getLoadedAt(), ruleSet.getRuleCount());
+    }
+
+    private String normalizeScopeValue(BusinessRuleRequest request) {
+        String value = request.scopeValue() == null ? "" : request.scopeValue().trim();
+        try {
+            return switch (request.scope()) {
+                case GLOBAL -> BusinessRule.GLOBAL_SCOPE_VALUE;
+                case ROLE -> Role.valueOf(value.toUpperCase()).name();
+                case USER -> Long.valueOf(value).toString();
+            };
+        } catch (IllegalArgumentException e) {
+            throw new BusinessValidationException(
+                    "Invalid scope value for " + request.scope() + ": " + request.scopeValue());
+        }
+    }
+
+    private void reloadAfterCommit() {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                // Изменение уже зафиксировано: ошибка в другом сохранённом правиле не должна
+                // превращать успешное сохранение в ошибку для администратора
+                try {
+                    businessRuleEngine.reload();
+                } catch (IllegalArgumentException e) {
+                    log.error("Invalid business rules after change, keeping version {}",
+                            businessRuleEngine.current().getVersion(), e);
+                }
+            }
+        });
+    }
+
+    private BusinessRuleDto toDto(BusinessRule rule) {
+        return new BusinessRuleDto(rule.getId(), rule.getRuleKey(), rule.getScope(), rule.getScopeValue(),
+                rule.getValue(), rule.getUpdatedAt(), rule.getUpdatedBy());
+    }
+}
@@ -0,0 +1,49 @@
+package ru.effectivemobile.bankcards.service.rules;
+
+import ru.effectivemobile.bankcards.entity.Role;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.function.Function;
+
+// Скомпилированный неизменяемый набор правил. Лимиты каждой роли и каждого пользователя с переопределениями
+// посчитаны заранее, поэтому поиск — не больше двух обращений к Map
+public final class BusinessRuleSet {
+
+    private final long version;
+    private final LocalDateTime loadedAt;
+    private final int ruleCount;
+    private final Map<Role, BusinessLimits> roleLimits;
+    private final Map<Long, Map<Role, BusinessLimits>> userLimits;
+    // false — ролевых переопределений нет, и роль пользователя можно не определять
+    private final boolean roleSpecific;
+
+    BusinessRuleSet(long version, LocalDateTime loadedAt, int ruleCount, Map<Role, BusinessLimits> roleLimits,
+                    Map<Long, Map<Role, BusinessLimits>> userLimits, boolean roleSpecific) {
+        this.version = version;
+        this.loadedAt = loadedAt;
+        this.ruleCount = ruleCount;
+        this.roleLimits = roleLimits;
+        this.userLimits = userLimits;
+        this.roleSpecific = roleSpecific;
+    }
+
+    // roleResolver вызывается, только если в наборе есть ролевые переопределения
+    public BusinessLimits limitsFor(Long userId, Function<Long, Role> roleResolver) {
+        Role role = roleSpecific ? roleResolver.apply(userId) : Role.USER;
+        Map<Role, BusinessLimits> byRole = userLimits.get(userId);
+        return byRole != null ? byRole.get(role) : roleLimits.get(role);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public LocalDateTime getLoadedAt() {
+        return loadedAt;
+    }
+
+    public int getRuleCount() {
+        return ruleCount;
+    }
+}
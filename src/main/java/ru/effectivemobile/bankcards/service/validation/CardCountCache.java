@@ -0,0 +1,45 @@
+package ru.effectivemobile.bankcards.service.validation;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.effectivemobile.bankcards.util.TransactionCallbacks;
+
+import java.time.Duration;
+
+// Число карт пользователя, известное этому узлу. Только подсказка для быстрого отказа при достигнутом лимите:
+// отказ подтверждается подсчётом в БД, а разрешение на выпуск карты всегда даёт подсчёт под блокировкой пользователя.
+// Удаления на других узлах сюда не попадают, поэтому записи живут ограниченное время
+@Component
+public class CardCountCache {
+
+    private final Cache<Long, Long> counts;
+
+    public CardCountCache(
+            @Value("${business.card-count-cache.ttl:5m}") Duration ttl,
+            @Value("${business.card-count-cache.size:100000}") long size) {
+        this.counts = Caffeine.newBuilder()
+                .maximumSize(size)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    public Long get(Long userId) {
+        return counts.getIfPresent(userId);
+    }
+
+    public void put(Long userId, long count) {
+        counts.put(userId, count);
+    }
+
+    // Счётчик меняется после коммита, чтобы откат создания не оставил завышенное значение
+    public void onCardCreated(Long userId) {
+        TransactionCallbacks.afterCommit(() -> counts.asMap().computeIfPresent(userId, (id, count) -> count + 1));
+    }
+
+    // После удаления значение не уменьшается, а сбрасывается: следующая проверка возьмёт его из БД
+    public void onCardDeleted(Long userId) {
+        TransactionCallbacks.afterCommit(() -> counts.invalidate(userId));
+    }
+}
@@ -2,41 +2,58 @@ package ru.effectivemobile.bankcards.service.validation;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
-import ru.effectivemobile.bankcards.config.BusinessRulesConfig;
 import ru.effectivemobile.bankcards.entity.Card;
 import ru.effectivemobile.bankcards.entity.CardStatus;
 import ru.effectivemobile.bankcards.exception.*;
 import ru.effectivemobile.bankcards.repository.CardRepository;
 import ru.effectivemobile.bankcards.repository.UserRepository;
+import ru.effectivemobile.bankcards.security.CurrentUserResolver;
+import ru.effectivemobile.bankcards.service.rules.BusinessLimits;
+import ru.effectivemobile.bankcards.service.rules.BusinessRuleEngine;
+import ru.effectivemobile.bankcards.service.velocity.VelocityLimiter;
 
 import java.math.BigDecimal;
 import java.time.YearMonth;
-import java.util.List;
 
 @Service
 @RequiredArgsConstructor
 public class ValidationService {
 
-    private final BusinessRulesConfig businessRules;
+    private final BusinessRuleEngine businessRuleEngine;
+    private final CurrentUserResolver currentUserResolver;
     private final CardRepository cardRepository;
     private final UserRepository userRepository;
+    private final CardCountCache cardCountCache;
+    private final VelocityLimiter velocityLimiter;
 
     // Валидация создания карты
     public void validateCardCreation(Long userId, BigDecimal initialBalance) {
+        BusinessLimits limits = limitsFor(userId);
+
         // Проверка максимального количества карт
-        validateMaxCardsPerUser(userId);
+        validateMaxCardsPerUser(userId, limits);
 
         // Проверка минимального начального баланса
-        if (initialBalance.compareTo(businessRules.getMinInitialBalance()) < 0) {
-            throw new BusinessValidationException(
-                    String.format("Initial balance must be at least %s",
-                            businessRules.getMinInitialBalance())
-            );
+        if (initialBalance.compareTo(limits.getMinInitialBalance()) < 0) {
+            throw new BusinessValidationException(limits.getMinInitialBalanceMessage());
         }
     }
 
-    // Валидация перевода
+    // Валидация перевода: состояние карт и накопительные лимиты. Вызывается в транзакции перевода
     public void validateTransfer(Card fromCard, Card toCard, BigDecimal amount) {
+        validateTransferState(fromCard, toCard, amount);
+        velocityLimiter.reserve(fromCard.getUserId(), fromCard.getId(), amount);
+    }
+
+    // Накопительные лимиты для перевода без загрузки карт. Резерв снимается при откате транзакции
+    public void validateTransferVelocity(Long userId, Long fromCardId, BigDecimal amount) {
+        velocityLimiter.reserve(userId, fromCardId, amount);
+    }
+
+    // Проверки состояния карт без учёта накопительных лимитов
+    public void validateTransferState(Card fromCard, Card toCard, BigDecimal amount) {
+        BusinessLimits limits = limitsFor(fromCard.getUserId());
+
         // Проверка что карты активны
         validateCardActive(fromCard);
         validateCardActive(toCard);
@@ -45,29 +62,11 @@ public class ValidationService {
         validateCardNotExpired(fromCard);
         validateCardNotExpired(toCard);
 
-        // Проверка минимальной суммы перевода
-        if (amount.compareTo(businessRules.getMinTransferAmount()) < 0) {
-            throw new BusinessValidationException(
-                    String.format("Transfer amount must be at least %s",
-                            businessRules.getMinTransferAmount())
-            );
-        }
-
-        // Проверка максимальной суммы перевода
-        if (amount.compareTo(businessRules.getMaxTransferAmount()) > 0) {
-            throw new BusinessValidationException(
-                    String.format("Transfer amount cannot exceed %s",
-                            businessRules.getMaxTransferAmount())
-            );
-        }
+        validateTransferLimits(limits, amount);
 
         // Проверка достаточности средств
-        if (fromCard.getBalance().subtract(amount)
-                .compareTo(businessRules.getMinCardBalance()) < 0) {
-            throw new InsufficientFundsException(
-                    String.format("Insufficient funds. Minimum balance must be %s",
-                            businessRules.getMinCardBalance())
-            );
+        if (fromCard.getBalance().subtract(amount).compareTo(limits.getMinCardBalance()) < 0) {
+            throw new InsufficientFundsException(limits.getInsufficientFundsMessage());
         }
 
         // Проверка что перевод не на ту же карту
@@ -76,14 +75,30 @@ public class ValidationService {
         }
     }
 
+    // Проверки перевода, не зависящие от состояния карт: выполняются до обращения к БД
+    public void validateTransferAmount(Long userId, Long fromCardId, Long toCardId, BigDecimal amount) {
+        validateTransferLimits(limitsFor(userId), amount);
+
+        if (fromCardId.equals(toCardId)) {
+            throw new BusinessValidationException("Cannot transfer to the same card");
+        }
+    }
+
+    public BigDecimal getMinCardBalance(Long userId) {
+        return limitsFor(userId).getMinCardBalance();
+    }
+
+    // Лимиты пользователя из текущего набора правил. Роль определяется, только если в наборе есть ролевые правила
+    public BusinessLimits limitsFor(Long userId) {
+        return businessRuleEngine.current().limitsFor(userId, currentUserResolver::getRoleOf);
+    }
+
     // Валидация изменения баланса
     public void validateBalanceChange(Card card, BigDecimal newBalance) {
         // Проверка минимального баланса
-        if (newBalance.compareTo(businessRules.getMinCardBalance()) < 0) {
-            throw new BusinessValidationException(
-                    String.format("Card balance cannot be less than %s",
-                            businessRules.getMinCardBalance())
-            );
+        BusinessLimits limits = limitsFor(card.getUserId());
+        if (newBalance.compareTo(limits.getMinCardBalance()) < 0) {
+            throw new BusinessValidationException(limits.getMinCardBalanceMessage());
         }
 
         validateCardActive(card);
@@ -153,13 +168,42 @@ public class ValidationService {
     }
 
     // Вспомогательные методы
-    private void validateMaxCardsPerUser(Long userId) {
-        List<Card> userCards = cardRepository.findByUserId(userId);
-        if (userCards.size() >= businessRules.getMaxCardsPerUser()) {
-            throw new BusinessValidationException(
-                    String.format("User cannot have more than %d cards",
-                            businessRules.getMaxCardsPerUser())
-            );
+    private void validateTransferLimits(BusinessLimits limits, BigDecimal amount) {
+        // Проверка минимальной суммы перевода
+        if (amount.compareTo(limits.getMinTransferAmount()) < 0) {
+            throw new BusinessValidationException(limits.getMinTransferAmountMessage());
+        }
+
+        // Проверка максимальной суммы перевода
+        if (amount.compareTo(limits.getMaxTransferAmount()) > 0) {
+            throw new BusinessValidationException(limits.getMaxTransferAmountMessage());
+        }
+    }
+
+    // Вызывается в транзакции создания карты. Блокировка строки пользователя сериализует
+    // одновременный выпуск карт одному пользователю, в том числе на разных узлах
+    private void validateMaxCardsPerUser(Long userId, BusinessLimits limits) {
+        int maxCards = limits.getMaxCardsPerUser();
+
+        // Кэш указывает, что лимит достигнут: отказ подтверждается подсчётом без блокировки пользователя.
+        // Карты выпускаются только под этой блокировкой, поэтому подсчёт >= лимита — честный отказ.
+        // Если карты удалили (в том числе на другом узле), решение принимает подсчёт под блокировкой ниже
+        Long cachedCount = cardCountCache.get(userId);
+        if (cachedCount != null && cachedCount >= maxCards) {
+            long current = cardRepository.countByUserId(userId);
+            cardCountCache.put(userId, current);
+            if (current >= maxCards) {
+                throw new BusinessValidationException(limits.getMaxCardsPerUserMessage());
+            }
+        }
+
+        if (userRepository.findByIdForUpdate(userId).isEmpty()) {
+            throw new UserNotFoundException("User not found with id: " + userId);
+        }
+        long count = cardRepository.countByUserId(userId);
+        cardCountCache.put(userId, count);
+        if (count >= maxCards) {
+            throw new BusinessValidationException(limits.getMaxCardsPerUserMessage());
         }
     }
 
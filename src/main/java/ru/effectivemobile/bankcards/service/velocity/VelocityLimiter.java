@@ -0,0 +1,394 @@
+package ru.effectivemobile.bankcards.service.velocity;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.effectivemobile.bankcards.config.VelocityConfig;
+import ru.effectivemobile.bankcards.entity.VelocitySubject;
+import ru.effectivemobile.bankcards.exception.VelocityLimitExceededException;
+import ru.effectivemobile.bankcards.repository.VelocityBucketRepository;
+import ru.effectivemobile.bankcards.util.TransactionCallbacks;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Скользящие окна исходящих переводов карты и пользователя на часовых корзинах: сутки — 24 корзины,
+// месяц — 720, число переводов за час — текущая корзина плюс взвешенная доля предыдущей.
+// Корзина = confirmed (значение из velocity_bucket, общее для узлов) + local (переводы этого узла,
+// ещё не записанные в БД, вместе с незакоммиченными резервами). Проверка идёт под блокировкой полосы
+// без обращения к БД; переводы с других узлов становятся видны после их записи, то есть с задержкой до flushInterval
+@Slf4j
+@Component
+public class VelocityLimiter {
+
+    static final int DAY_HOURS = 24;
+    static final int MONTH_HOURS = 30 * DAY_HOURS;
+
+    private static final String LOAD_SQL = """
+            SELECT subject_type, subject_id, bucket_start, amount, transfer_count
+            FROM velocity_bucket WHERE bucket_start >= ? AND updated_at >= ?
+            """;
+
+    private static final String UPDATE_SQL = """
+            UPDATE velocity_bucket SET amount = amount + ?, transfer_count = transfer_count + ?, updated_at = ?
+            WHERE subject_type = ? AND subject_id = ? AND bucket_start = ?
+            """;
+
+    private static final String INSERT_SQL = """
+            INSERT INTO velocity_bucket (subject_type, subject_id, bucket_start, amount, transfer_count, updated_at)
+            VALUES (?, ?, ?, ?, ?, ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final VelocityBucketRepository velocityBucketRepository;
+    private final VelocityConfig config;
+    private final ReentrantLock[] stripes;
+
+    private final Map<SubjectKey, Window> windows = new ConcurrentHashMap<>();
+    // Закоммиченные приращения, ещё не записанные в БД
+    private final Map<BucketKey, Delta> pending = new ConcurrentHashMap<>();
+    // Меняется только потоком записи
+    private volatile LocalDateTime lastSync;
+
+    public VelocityLimiter(JdbcTemplate jdbcTemplate,
+                           PlatformTransactionManager transactionManager,
+                           VelocityBucketRepository velocityBucketRepository,
+                           VelocityConfig config) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.velocityBucketRepository = velocityBucketRepository;
+        this.config = config;
+        this.stripes = new ReentrantLock[config.getStripes()];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime from = oldestBucketStart(now);
+            load(from, from);
+            lastSync = now;
+        } catch (Exception e) {
+            log.error("Error loading transfer velocity counters", e);
+        }
+    }
+
+    // Проверяет лимиты и резервирует перевод в окнах карты и пользователя.
+    // При откате транзакции резерв снимается, при коммите уходит в очередь записи
+    public void reserve(Long userId, Long cardId, BigDecimal amount) {
+        reserve(userId, cardId, amount, LocalDateTime.now());
+    }
+
+    void reserve(Long userId, Long cardId, BigDecimal amount, LocalDateTime now) {
+        if (!config.isEnabled()) {
+            return;
+        }
+
+        SubjectKey card = new SubjectKey(VelocitySubject.CARD, cardId);
+        SubjectKey user = new SubjectKey(VelocitySubject.USER, userId);
+        VelocityConfig.UserOverride override = config.getUserOverrides().get(userId);
+        long hour = hourOf(now);
+        double previousHourWeight = 1 - now.getMinute() / 60.0;
+
+        withLocks(card, user, () -> {
+            check(card, config.getCard(), override == null ? null : override.getCard(),
+                    amount, hour, previousHourWeight, "Card");
+            check(user, config.getUser(), override == null ? null : override.getUser(),
+                    amount, hour, previousHourWeight, "User");
+            window(card).add(hour, amount, 1);
+            window(user).add(hour, amount, 1);
+        });
+
+        TransactionCallbacks.afterCompletion(committed -> {
+            if (committed) {
+                pending.merge(new BucketKey(card, hour), new Delta(amount, 1), Delta::plus);
+                pending.merge(new BucketKey(user, hour), new Delta(amount, 1), Delta::plus);
+            } else {
+                withLocks(card, user, () -> {
+                    release(card, hour, amount);
+                    release(user, hour, amount);
+                });
+            }
+        });
+    }
+
+    // Записывает накопленные приращения, затем забирает строки, изменённые другими узлами
+    public void flush() {
+        LocalDateTime now = LocalDateTime.now();
+
+        List<Map.Entry<BucketKey, Delta>> drained = new ArrayList<>();
+        for (BucketKey key : pending.keySet()) {
+            Delta delta = pending.remove(key);
+            if (delta != null) {
+                drained.add(Map.entry(key, delta));
+            }
+        }
+        if (!drained.isEmpty()) {
+            write(drained, now);
+        }
+
+        LocalDateTime since = lastSync == null ? oldestBucketStart(now) : lastSync.minus(config.getFlushInterval());
+        load(oldestBucketStart(now), since);
+        lastSync = now;
+
+        prune(hourOf(now) - MONTH_HOURS + 1);
+    }
+
+    // Строки старше окна в 30 дней больше не участвуют в проверках
+    public int purgeExpired() {
+        LocalDateTime before = oldestBucketStart(LocalDateTime.now()).minusDays(1);
+        Integer purged = transactionTemplate.execute(status -> velocityBucketRepository.deleteOlderThan(before));
+        return purged == null ? 0 : purged;
+    }
+
+    private void check(SubjectKey key, VelocityConfig.Limits defaults, VelocityConfig.Limits override,
+                       BigDecimal amount, long hour, double previousHourWeight, String subject) {
+        Window window = windows.get(key);
+
+        Integer hourlyCount = override != null && override.getHourlyCount() != null
+                ? override.getHourlyCount() : defaults.getHourlyCount();
+        if (hourlyCount != null
+                && (window == null ? 0 : window.hourlyCount(hour, previousHourWeight)) + 1 > hourlyCount) {
+            throw new VelocityLimitExceededException(
+                    String.format("%s hourly transfer count limit of %d exceeded", subject, hourlyCount));
+        }
+
+        BigDecimal dailyAmount = override != null && override.getDailyAmount() != null
+                ? override.getDailyAmount() : defaults.getDailyAmount();
+        if (dailyAmount != null && exceeds(window, hour - DAY_HOURS + 1, amount, dailyAmount)) {
+            throw new VelocityLimitExceededException(
+                    String.format("%s daily transfer limit of %s exceeded", subject, dailyAmount));
+        }
+
+        BigDecimal monthlyAmount = override != null && override.getMonthlyAmount() != null
+                ? override.getMonthlyAmount() : defaults.getMonthlyAmount();
+        if (monthlyAmount != null && exceeds(window, hour - MONTH_HOURS + 1, amount, monthlyAmount)) {
+            throw new VelocityLimitExceededException(
+                    String.format("%s monthly transfer limit of %s exceeded", subject, monthlyAmount));
+        }
+    }
+
+    private static boolean exceeds(Window window, long fromHour, BigDecimal amount, BigDecimal limit) {
+        BigDecimal total = window == null ? amount : window.amountSince(fromHour).add(amount);
+        return total.compareTo(limit) > 0;
+    }
+
+    private void release(SubjectKey key, long hour, BigDecimal amount) {
+        Window window = windows.get(key);
+        if (window != null) {
+            window.add(hour, amount.negate(), -1);
+        }
+    }
+
+    // Каждая строка пишется не более одного раза: после ошибки незаписанные приращения возвращаются в очередь
+    private void write(List<Map.Entry<BucketKey, Delta>> deltas, LocalDateTime now) {
+        Timestamp updatedAt = Timestamp.valueOf(now);
+        List<Map.Entry<BucketKey, Delta>> remaining = deltas;
+        int written = 0;
+        try {
+            int[] updated = transactionTemplate.execute(status -> jdbcTemplate.batchUpdate(UPDATE_SQL,
+                    deltas.stream().map(entry -> updateArgs(entry.getKey(), entry.getValue(), updatedAt)).toList()));
+
+            List<Map.Entry<BucketKey, Delta>> missing = new ArrayList<>();
+            for (int i = 0; i < deltas.size(); i++) {
+                if (updated != null && updated[i] != 0) {
+                    confirm(deltas.get(i).getKey(), deltas.get(i).getValue());
+                } else {
+                    missing.add(deltas.get(i));
+                }
+            }
+            remaining = missing;
+
+            for (Map.Entry<BucketKey, Delta> entry : missing) {
+                insert(entry.getKey(), entry.getValue(), updatedAt);
+                confirm(entry.getKey(), entry.getValue());
+                written++;
+            }
+        } catch (RuntimeException e) {
+            remaining.subList(written, remaining.size())
+                    .forEach(entry -> pending.merge(entry.getKey(), entry.getValue(), Delta::plus));
+            throw e;
+        }
+    }
+
+    private void insert(BucketKey key, Delta delta, Timestamp updatedAt) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update(INSERT_SQL,
+                    key.subject().type().name(), key.subject().id(), Timestamp.valueOf(startOf(key.hour())),
+                    delta.amount(), delta.count(), updatedAt));
+        } catch (DuplicateKeyException e) {
+            // Строку только что создал другой узел
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update(UPDATE_SQL,
+                    updateArgs(key, delta, updatedAt)));
+        }
+    }
+
+    private static Object[] updateArgs(BucketKey key, Delta delta, Timestamp updatedAt) {
+        return new Object[]{delta.amount(), delta.count(), updatedAt,
+                key.subject().type().name(), key.subject().id(), Timestamp.valueOf(startOf(key.hour()))};
+    }
+
+    // Записанное приращение переходит из local в confirmed
+    private void confirm(BucketKey key, Delta delta) {
+        withLocks(key.subject(), key.subject(), () -> {
+            Window window = windows.get(key.subject());
+            if (window != null) {
+                window.confirm(key.hour(), delta);
+            }
+        });
+    }
+
+    // confirmed берётся из БД как есть: в строке уже учтены и записанные приращения этого узла
+    private void load(LocalDateTime from, LocalDateTime updatedSince) {
+        jdbcTemplate.query(LOAD_SQL, rs -> {
+            SubjectKey key = new SubjectKey(VelocitySubject.valueOf(rs.getString(1)), rs.getLong(2));
+            long hour = hourOf(rs.getTimestamp(3).toLocalDateTime());
+            BigDecimal amount = rs.getBigDecimal(4);
+            int count = rs.getInt(5);
+            withLocks(key, key, () -> window(key).setConfirmed(hour, amount, count));
+        }, Timestamp.valueOf(from), Timestamp.valueOf(updatedSince));
+    }
+
+    private void prune(long oldestHour) {
+        for (SubjectKey key : windows.keySet()) {
+            withLocks(key, key, () -> {
+                Window window = windows.get(key);
+                if (window != null && window.prune(oldestHour)) {
+                    windows.remove(key);
+                }
+            });
+        }
+    }
+
+    // Вызывается под блокировкой полосы key
+    private Window window(SubjectKey key) {
+        return windows.computeIfAbsent(key, k -> new Window());
+    }
+
+    // Полосы захватываются по возрастанию индекса, чтобы проверки карты и пользователя не взаимоблокировались
+    private void withLocks(SubjectKey first, SubjectKey second, Runnable action) {
+        int a = stripe(first);
+        int b = stripe(second);
+        ReentrantLock lower = stripes[Math.min(a, b)];
+        ReentrantLock upper = stripes[Math.max(a, b)];
+        lower.lock();
+        try {
+            if (upper != lower) {
+                upper.lock();
+            }
+            try {
+                action.run();
+            } finally {
+                if (upper != lower) {
+                    upper.unlock();
+                }
+            }
+        } finally {
+            lower.unlock();
+        }
+    }
+
+    private int stripe(SubjectKey key) {
+        return Math.floorMod(key.hashCode(), stripes.length);
+    }
+
+    private static long hourOf(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) / 3600;
+    }
+
+    private static LocalDateTime startOf(long hour) {
+        return LocalDateTime.ofEpochSecond(hour * 3600, 0, ZoneOffset.UTC);
+    }
+
+    private static LocalDateTime oldestBucketStart(LocalDateTime now) {
+        return now.truncatedTo(ChronoUnit.HOURS).minusHours(MONTH_HOURS - 1);
+    }
+
+    private record SubjectKey(VelocitySubject type, Long id) {
+    }
+
+    private record BucketKey(SubjectKey subject, long hour) {
+    }
+
+    private record Delta(BigDecimal amount, int count) {
+        Delta plus(Delta other) {
+            return new Delta(amount.add(other.amount), count + other.count);
+        }
+    }
+
+    // Изменяется только под блокировкой полосы своего субъекта
+    private static final class Window {
+
+        private final TreeMap<Long, Bucket> buckets = new TreeMap<>();
+
+        void add(long hour, BigDecimal amount, int count) {
+            Bucket bucket = buckets.computeIfAbsent(hour, h -> new Bucket());
+            bucket.localAmount = bucket.localAmount.add(amount);
+            bucket.localCount += count;
+        }
+
+        void confirm(long hour, Delta delta) {
+            Bucket bucket = buckets.computeIfAbsent(hour, h -> new Bucket());
+            bucket.localAmount = bucket.localAmount.subtract(delta.amount());
+            bucket.localCount -= delta.count();
+            bucket.confirmedAmount = bucket.confirmedAmount.add(delta.amount());
+            bucket.confirmedCount += delta.count();
+        }
+
+        void setConfirmed(long hour, BigDecimal amount, int count) {
+            Bucket bucket = buckets.computeIfAbsent(hour, h -> new Bucket());
+            bucket.confirmedAmount = amount;
+            bucket.confirmedCount = count;
+        }
+
+        BigDecimal amountSince(long fromHour) {
+            BigDecimal total = BigDecimal.ZERO;
+            for (Bucket bucket : buckets.tailMap(fromHour, true).values()) {
+                total = total.add(bucket.confirmedAmount).add(bucket.localAmount);
+            }
+            return total;
+        }
+
+        double hourlyCount(long hour, double previousHourWeight) {
+            return count(hour) + count(hour - 1) * previousHourWeight;
+        }
+
+        // true — корзин не осталось
+        boolean prune(long oldestHour) {
+            buckets.headMap(oldestHour).clear();
+            return buckets.isEmpty();
+        }
+
+        private int count(long hour) {
+            Bucket bucket = buckets.get(hour);
+            return bucket == null ? 0 : bucket.confirmedCount + bucket.localCount;
+        }
+    }
+
+    private static final class Bucket {
+        private BigDecimal confirmedAmount = BigDecimal.ZERO;
+        private int confirmedCount;
+        private BigDecimal localAmount = BigDecimal.ZERO;
+        private int localCount;
+    }
+}
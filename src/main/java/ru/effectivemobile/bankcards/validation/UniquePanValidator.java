@@ -6,8 +6,6 @@ import lombok.RequiredArgsConstructor;
 import ru.effectivemobile.bankcards.service.encryption.EncryptionService;
 import ru.effectivemobile.bankcards.repository.CardRepository;
 
-import java.util.List;
-
 @RequiredArgsConstructor
 public class UniquePanValidator implements ConstraintValidator<UniquePan, String> {
 
@@ -16,19 +14,12 @@ public class UniquePanValidator implements ConstraintValidator<UniquePan, String
 
     @Override
     public boolean isValid(String pan, ConstraintValidatorContext context) {
-        if (pan == null || pan.isBlank()) {
+        // Формат PAN проверяет @Pattern, здесь только уникальность
+        if (pan == null || !pan.matches("\\d{16}")) {
             return true;
         }
 
-        // Получаем все зашифрованные PAN из базы
-        List<String> allEncryptedPans = cardRepository.findAll().stream()
-                .map(card -> card.getEncryptedPan())
-                .toList();
-
-        // Шифруем предоставленный PAN
-        String encryptedPan = encryptionService.encrypt(pan);
-
-        // Проверяем, что зашифрованный PAN не существует в базе
-        return !allEncryptedPans.contains(encryptedPan);
+        // Один запрос по уникальному индексу pan_hash вместо перебора всех карт
+        return !cardRepository.existsByPanHash(encryptionService.hashPan(pan));
     }
-}
\ No newline at end of file
+}
@@ -11,6 +11,7 @@ import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.transaction.annotation.Transactional;
+import ru.effectivemobile.bankcards.dto.BatchTransferRequest;
 import ru.effectivemobile.bankcards.dto.CreateCardRequest;
 import ru.effectivemobile.bankcards.dto.TransferRequest;
 import ru.effectivemobile.bankcards.entity.CardStatus;
@@ -21,6 +22,7 @@ import ru.effectivemobile.bankcards.repository.UserRepository;
 import ru.effectivemobile.bankcards.service.encryption.EncryptionService;
 
 import java.math.BigDecimal;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
@@ -127,6 +129,7 @@ class CardControllerIntegrationTest {
         ru.effectivemobile.bankcards.entity.Card card = new ru.effectivemobile.bankcards.entity.Card();
         card.setUserId(testUser.getId());
         card.setEncryptedPan(encryptionService.encrypt("4556737586899855"));
+        card.setPanLast4("9855");
         card.setOwnerName("John Doe");
         card.setExpiryDate(java.time.YearMonth.of(2030, 12));
         card.setStatus(CardStatus.ACTIVE);
@@ -216,4 +219,102 @@ class CardControllerIntegrationTest {
                         .content(objectMapper.writeValueAsString(request)))
                 .andExpect(status().isBadRequest());
     }
-}
\ No newline at end of file
+
+    @Test
+    @WithMockUser(username = "user@test.com", roles = "USER")
+    void shouldApplyValidTransfersOfBestEffortBatch() throws Exception {
+        var first = saveUserCard("4556737586899855", new BigDecimal("100.00"));
+        var second = saveUserCard("5555555555554444", new BigDecimal("50.00"));
+
+        BatchTransferRequest request = new BatchTransferRequest(BatchTransferRequest.Mode.BEST_EFFORT, List.of(
+                new TransferRequest(first.getId(), second.getId(), new BigDecimal("80.00")),
+                new TransferRequest(first.getId(), second.getId(), new BigDecimal("30.00")), // недостаточно средств
+                new TransferRequest(second.getId(), first.getId(), new BigDecimal("10.00"))
+        ));
+
+        mockMvc.perform(post("/cards/transfers/batch")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.applied").value(true))
+                .andExpect(jsonPath("$.succeeded").value(2))
+                .andExpect(jsonPath("$.results[0].status").value("APPLIED"))
+                .andExpect(jsonPath("$.results[1].status").value("REJECTED"))
+                .andExpect(jsonPath("$.results[2].status").value("APPLIED"));
+
+        assertThat(cardRepository.findById(first.getId()).orElseThrow().getBalance()).isEqualByComparingTo("30.00");
+        assertThat(cardRepository.findById(second.getId()).orElseThrow().getBalance()).isEqualByComparingTo("120.00");
+    }
+
+    @Test
+    @WithMockUser(username = "user@test.com", roles = "USER")
+    void shouldRejectWholeAtomicBatch_WhenOneTransferFails() throws Exception {
+        var first = saveUserCard("4556737586899855", new BigDecimal("100.00"));
+        var second = saveUserCard("5555555555554444", new BigDecimal("50.00"));
+
+        BatchTransferRequest request = new BatchTransferRequest(BatchTransferRequest.Mode.ATOMIC, List.of(
+                new TransferRequest(first.getId(), second.getId(), new BigDecimal("80.00")),
+                new TransferRequest(first.getId(), second.getId(), new BigDecimal("30.00"))
+        ));
+
+        mockMvc.perform(post("/cards/transfers/batch")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.applied").value(false))
+                .andExpect(jsonPath("$.results[0].status").value("NOT_APPLIED"))
+                .andExpect(jsonPath("$.results[1].status").value("REJECTED"));
+
+        assertThat(cardRepository.findById(first.getId()).orElseThrow().getBalance()).isEqualByComparingTo("100.00");
+    }
+
+    @Test
+    @WithMockUser(username = "user@test.com", roles = "USER")
+    void shouldReplayTransferWithSameIdempotencyKey() throws Exception {
+        var first = saveUserCard("4556737586899855", new BigDecimal("100.00"));
+        var second = saveUserCard("5555555555554444", new BigDecimal("50.00"));
+        String body = objectMapper.writeValueAsString(
+                new TransferRequest(first.getId(), second.getId(), new BigDecimal("40.00")));
+
+        mockMvc.perform(post("/cards/transfers")
+                        .with(csrf())
+                        .header("Idempotency-Key", "transfer-42")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Idempotent-Replayed"));
+
+        mockMvc.perform(post("/cards/transfers")
+                        .with(csrf())
+                        .header("Idempotency-Key", "transfer-42")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Idempotent-Replayed", "true"));
+
+        // тот же ключ с другим телом запроса
+        mockMvc.perform(post("/cards/transfers")
+                        .with(csrf())
+                        .header("Idempotency-Key", "transfer-42")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new TransferRequest(first.getId(), second.getId(), new BigDecimal("41.00")))))
+                .andExpect(status().isConflict());
+
+        assertThat(cardRepository.findById(first.getId()).orElseThrow().getBalance()).isEqualByComparingTo("60.00");
+        assertThat(cardRepository.findById(second.getId()).orElseThrow().getBalance()).isEqualByComparingTo("90.00");
+    }
+
+    private ru.effectivemobile.bankcards.entity.Card saveUserCard(String pan, BigDecimal balance) {
+        ru.effectivemobile.bankcards.entity.Card card = new ru.effectivemobile.bankcards.entity.Card();
+        card.setUserId(testUser.getId());
+        card.setEncryptedPan(encryptionService.encrypt(pan));
+        card.setOwnerName("John Doe");
+        card.setExpiryDate(java.time.YearMonth.of(2030, 12));
+        card.setStatus(CardStatus.ACTIVE);
+        card.setBalance(balance);
+        return cardRepository.save(card);
+    }
+}
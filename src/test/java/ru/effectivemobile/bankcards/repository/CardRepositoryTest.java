@@ -5,10 +5,12 @@ import ru.effectivemobile.bankcards.entity.CardStatus;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Sort;
 import org.springframework.test.context.ActiveProfiles;
 
 import java.math.BigDecimal;
 import java.time.YearMonth;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -42,4 +44,75 @@ class CardRepositoryTest {
         assertThat(result.getEncryptedPan()).isEqualTo("encrypted_pan_123");
         assertThat(result.getBalance()).isEqualByComparingTo("1000.50");
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldDebitOnlyWhenGuardConditionsHold() {
+        // given
+        Card active = cardRepository.save(newCard(1L, YearMonth.of(2030, 1), new BigDecimal("100.00")));
+        Card expired = cardRepository.save(newCard(1L, YearMonth.now().minusMonths(1), new BigDecimal("100.00")));
+        YearMonth currentMonth = YearMonth.now();
+
+        // when
+        int insufficient = cardRepository.debit(active.getId(), 1L, new BigDecimal("100.01"), BigDecimal.ZERO, currentMonth);
+        int foreign = cardRepository.debit(active.getId(), 2L, new BigDecimal("10.00"), BigDecimal.ZERO, currentMonth);
+        int expiredDebit = cardRepository.debit(expired.getId(), 1L, new BigDecimal("10.00"), BigDecimal.ZERO, currentMonth);
+        int applied = cardRepository.debit(active.getId(), 1L, new BigDecimal("100.00"), BigDecimal.ZERO, currentMonth);
+
+        // then
+        assertThat(insufficient).isZero();
+        assertThat(foreign).isZero();
+        assertThat(expiredDebit).isZero();
+        assertThat(applied).isEqualTo(1);
+        assertThat(cardRepository.findById(active.getId()).orElseThrow().getBalance()).isEqualByComparingTo("0.00");
+    }
+
+    @Test
+    void shouldPageByKeysetWithoutGapsOrDuplicates() {
+        // given: несколько карт с одинаковым сроком действия, чтобы id разрешал равенство ключа
+        List<Long> expectedByExpiry = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            Card card = newCard(3L, YearMonth.of(2030, 1 + i % 3), new BigDecimal("10.00"));
+            card.setEncryptedPan("encrypted_pan_keyset_" + i);
+            cardRepository.save(card);
+        }
+        cardRepository.save(newCard(4L, YearMonth.of(2030, 1), new BigDecimal("10.00")));
+        cardRepository.findByUserId(3L).stream()
+                .sorted((a, b) -> a.getExpiryDate().equals(b.getExpiryDate())
+                        ? b.getId().compareTo(a.getId())
+                        : b.getExpiryDate().compareTo(a.getExpiryDate()))
+                .forEach(card -> expectedByExpiry.add(card.getId()));
+
+        // when
+        List<Long> byExpiry = readAll(CardSortKey.EXPIRY_DATE, Sort.Direction.DESC);
+        List<Long> byId = readAll(CardSortKey.ID, Sort.Direction.ASC);
+
+        // then
+        assertThat(byExpiry).containsExactlyElementsOf(expectedByExpiry);
+        assertThat(byId).isSorted().containsExactlyInAnyOrderElementsOf(expectedByExpiry);
+    }
+
+    private List<Long> readAll(CardSortKey sortKey, Sort.Direction direction) {
+        List<Long> ids = new ArrayList<>();
+        Card last = null;
+        while (true) {
+            List<Card> page = cardRepository.findPageAfter(3L, CardStatus.ACTIVE, sortKey, direction,
+                    last == null ? null : last.getExpiryDate(), last == null ? null : last.getId(), 3);
+            if (page.isEmpty()) {
+                return ids;
+            }
+            page.forEach(card -> ids.add(card.getId()));
+            last = page.get(page.size() - 1);
+        }
+    }
+
+    private Card newCard(Long userId, YearMonth expiryDate, BigDecimal balance) {
+        Card card = new Card();
+        card.setUserId(userId);
+        card.setEncryptedPan("encrypted_pan_" + expiryDate);
+        card.setOwnerName("John Doe");
+        card.setExpiryDate(expiryDate);
+        card.setStatus(CardStatus.ACTIVE);
+        card.setBalance(balance);
+        return card;
+    }
+}
@@ -0,0 +1,78 @@
+package ru.effectivemobile.bankcards.security;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.effectivemobile.bankcards.entity.Role;
+import ru.effectivemobile.bankcards.entity.User;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtAuthFilterTest {
+
+    private static final String SECRET = "dGVzdC1zZWNyZXQta2V5LTI1Ni1iaXRzLTEyMzQ1Njc=";
+
+    private JwtUtil jwtUtil;
+    private JwtAuthFilter jwtAuthFilter;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(jwtUtil, "jwtExpirationMs", 3600000L);
+
+        jwtAuthFilter = new JwtAuthFilter();
+        ReflectionTestUtils.setField(jwtAuthFilter, "jwtUtil", jwtUtil);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void shouldAuthenticateFromTokenClaims() throws Exception {
+        // given
+        User user = new User();
+        user.setId(42L);
+        user.setEmail("admin@example.com");
+        user.setRole(Role.ADMIN);
+
+        // when
+        doFilter("Bearer " + jwtUtil.generateToken(user));
+
+        // then
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertThat(authentication).isNotNull();
+        assertThat(authentication.getName()).isEqualTo("admin@example.com");
+        assertThat(authentication.getPrincipal()).isEqualTo(new CurrentUser(42L, "admin@example.com", Role.ADMIN));
+        assertThat(authentication.getAuthorities())
+                .extracting(GrantedAuthority::getAuthority)
+                .containsExactly("ROLE_ADMIN");
+    }
+
+    @Test
+    void shouldLeaveRequestUnauthenticatedForInvalidOrLegacyToken() throws Exception {
+        // when
+        doFilter("Bearer not-a-jwt");
+        doFilter("Bearer " + jwtUtil.generateToken(Map.of(), "user@example.com"));
+
+        // then
+        assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
+    }
+
+    private void doFilter(String authorizationHeader) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/cards/my");
+        request.addHeader("Authorization", authorizationHeader);
+        jwtAuthFilter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+    }
+}
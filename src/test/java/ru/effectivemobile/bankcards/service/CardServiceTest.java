@@ -3,6 +3,7 @@ package ru.effectivemobile.bankcards.service;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -18,8 +19,12 @@ import ru.effectivemobile.bankcards.entity.User;
 import ru.effectivemobile.bankcards.exception.UserNotFoundException;
 import ru.effectivemobile.bankcards.repository.CardRepository;
 import ru.effectivemobile.bankcards.repository.UserRepository;
+import ru.effectivemobile.bankcards.security.CurrentUserResolver;
 import ru.effectivemobile.bankcards.service.audit.AuditService;
 import ru.effectivemobile.bankcards.service.encryption.EncryptionService;
+import ru.effectivemobile.bankcards.service.expiry.CardExpiryIndex;
+import ru.effectivemobile.bankcards.service.ledger.LedgerService;
+import ru.effectivemobile.bankcards.service.validation.CardCountCache;
 import ru.effectivemobile.bankcards.service.validation.ValidationService;
 
 import java.math.BigDecimal;
@@ -30,6 +35,8 @@ import java.util.Optional;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -53,6 +60,18 @@ class CardServiceTest {
     @Mock
     private ValidationService validationService;
 
+    @Mock
+    private CurrentUserResolver currentUserResolver;
+
+    @Mock
+    private LedgerService ledgerService;
+
+    @Mock
+    private CardExpiryIndex cardExpiryIndex;
+
+    @Mock
+    private CardCountCache cardCountCache;
+
     @InjectMocks
     private CardService cardService;
 
@@ -105,7 +124,7 @@ class CardServiceTest {
         verify(validationService).validatePan("4556737586899855");
         verify(validationService).validateExpiryDate("12/28");
         verify(validationService).validateCardCreation(1L, new BigDecimal("1000.00"));
-        verify(cardRepository).save(any(Card.class));
+        verify(cardRepository).save(argThat(card -> "9855".equals(card.getPanLast4())));
         verify(auditService).logCardCreation(savedCard);
     }
 
@@ -126,6 +145,27 @@ class CardServiceTest {
         verify(cardRepository, never()).save(any());
     }
 
+    @Test
+    void shouldThrow_WhenCardWithSamePanAlreadyExists() {
+        // given
+        CreateCardRequest request = new CreateCardRequest(
+                "4556737586899855", "John Doe", "12/28", new BigDecimal("100"), 1L
+        );
+        User user = new User();
+        user.setId(1L);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(encryptionService.hashPan("4556737586899855")).thenReturn("panHash");
+        when(cardRepository.existsByPanHash("panHash")).thenReturn(true);
+
+        // when & then
+        assertThatThrownBy(() -> cardService.createCard(request))
+                .isInstanceOf(ru.effectivemobile.bankcards.exception.BusinessValidationException.class)
+                .hasMessage("Card with this PAN already exists");
+
+        verify(encryptionService, never()).encrypt(any());
+        verify(cardRepository, never()).save(any());
+    }
+
     @Test
     void shouldGetMyCards_WhenUserIsAuthenticated() {
         // given
@@ -133,7 +173,7 @@ class CardServiceTest {
         user.setId(1L);
         user.setEmail("test@example.com");
         user.setRole(Role.USER);
-        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(user));
+        when(currentUserResolver.getCurrentUserId()).thenReturn(1L);
 
         Card card = new Card();
         card.setId(1L);
@@ -170,58 +210,84 @@ class CardServiceTest {
     @Test
     void shouldTransferBetweenOwnCards() {
         // given
-        User user = new User();
-        user.setId(1L);
-        user.setEmail("test@example.com");
-        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(user));
+        when(currentUserResolver.getCurrentUserId()).thenReturn(1L);
+        when(validationService.getMinCardBalance(1L)).thenReturn(BigDecimal.ZERO);
+        BigDecimal amount = new BigDecimal("200.00");
+        when(cardRepository.debit(eq(1L), eq(1L), eq(amount), eq(BigDecimal.ZERO), any(YearMonth.class))).thenReturn(1);
+        when(cardRepository.credit(eq(2L), eq(1L), eq(amount), any(YearMonth.class))).thenReturn(1);
 
+        // состояние карт после UPDATE
         Card fromCard = new Card();
         fromCard.setId(1L);
         fromCard.setUserId(1L);
-        fromCard.setBalance(new BigDecimal("1000.00"));
+        fromCard.setBalance(new BigDecimal("800.00"));
         fromCard.setStatus(CardStatus.ACTIVE);
         when(cardRepository.findById(1L)).thenReturn(Optional.of(fromCard));
 
         Card toCard = new Card();
         toCard.setId(2L);
         toCard.setUserId(1L);
-        toCard.setBalance(new BigDecimal("500.00"));
+        toCard.setBalance(new BigDecimal("700.00"));
         when(cardRepository.findById(2L)).thenReturn(Optional.of(toCard));
 
-        Authentication auth = new UsernamePasswordAuthenticationToken(
-                "test@example.com", null, List.of()
-        );
-        SecurityContextHolder.getContext().setAuthentication(auth);
-
-        TransferRequest request = new TransferRequest(1L, 2L, new BigDecimal("200.00"));
+        TransferRequest request = new TransferRequest(1L, 2L, amount);
 
         // when
-        cardService.transfer(request);
+        cardService.transfer(request, null);
 
         // then
-        assertThat(fromCard.getBalance()).isEqualByComparingTo("800.00");
-        assertThat(toCard.getBalance()).isEqualByComparingTo("700.00");
-        verify(validationService).validateTransfer(fromCard, toCard, new BigDecimal("200.00"));
-        verify(cardRepository).save(fromCard);
-        verify(cardRepository).save(toCard);
-        verify(auditService).logTransfer(fromCard, toCard, new BigDecimal("200.00"));
+        InOrder inOrder = inOrder(cardRepository);
+        inOrder.verify(cardRepository).debit(eq(1L), eq(1L), eq(amount), eq(BigDecimal.ZERO), any(YearMonth.class));
+        inOrder.verify(cardRepository).credit(eq(2L), eq(1L), eq(amount), any(YearMonth.class));
+        verify(validationService).validateTransferAmount(1L, 1L, 2L, amount);
+        verify(cardRepository, never()).save(any());
+        verify(ledgerService).postTransfer(1L, 1L, 2L, amount);
+        verify(auditService).logTransfer(fromCard, toCard, amount);
         verify(auditService).logBalanceChange(fromCard, new BigDecimal("1000.00"));
         verify(auditService).logBalanceChange(toCard, new BigDecimal("500.00"));
+    }
 
-        SecurityContextHolder.clearContext();
+    @Test
+    void shouldApplyUpdatesInCardIdOrder_WhenTransferringToLowerId() {
+        // given
+        when(currentUserResolver.getCurrentUserId()).thenReturn(1L);
+        when(validationService.getMinCardBalance(1L)).thenReturn(BigDecimal.ZERO);
+        BigDecimal amount = new BigDecimal("50.00");
+        when(cardRepository.credit(eq(2L), eq(1L), eq(amount), any(YearMonth.class))).thenReturn(1);
+        when(cardRepository.debit(eq(5L), eq(1L), eq(amount), eq(BigDecimal.ZERO), any(YearMonth.class))).thenReturn(1);
+
+        Card fromCard = new Card();
+        fromCard.setId(5L);
+        fromCard.setUserId(1L);
+        fromCard.setBalance(new BigDecimal("50.00"));
+        when(cardRepository.findById(5L)).thenReturn(Optional.of(fromCard));
+
+        Card toCard = new Card();
+        toCard.setId(2L);
+        toCard.setUserId(1L);
+        toCard.setBalance(new BigDecimal("150.00"));
+        when(cardRepository.findById(2L)).thenReturn(Optional.of(toCard));
+
+        // when
+        cardService.transfer(new TransferRequest(5L, 2L, amount), null);
+
+        // then
+        InOrder inOrder = inOrder(cardRepository);
+        inOrder.verify(cardRepository).credit(eq(2L), eq(1L), eq(amount), any(YearMonth.class));
+        inOrder.verify(cardRepository).debit(eq(5L), eq(1L), eq(amount), eq(BigDecimal.ZERO), any(YearMonth.class));
     }
 
     @Test
     void shouldThrow_WhenTransferringToAnotherUserCard() {
-        User user = new User();
-        user.setId(1L);
-        user.setEmail("test@example.com");
-        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(user));
+        when(currentUserResolver.getCurrentUserId()).thenReturn(1L);
+        when(validationService.getMinCardBalance(1L)).thenReturn(BigDecimal.ZERO);
+        when(cardRepository.debit(eq(1L), eq(1L), any(), any(), any())).thenReturn(1);
+        when(cardRepository.credit(eq(2L), eq(1L), any(), any())).thenReturn(0);
 
         Card fromCard = new Card();
         fromCard.setId(1L);
         fromCard.setUserId(1L);
-        fromCard.setBalance(new BigDecimal("1000.00"));
+        fromCard.setBalance(new BigDecimal("900.00"));
         fromCard.setStatus(CardStatus.ACTIVE);
         when(cardRepository.findById(1L)).thenReturn(Optional.of(fromCard));
 
@@ -230,18 +296,13 @@ class CardServiceTest {
         toCard.setUserId(2L); // ← другой пользователь!
         when(cardRepository.findById(2L)).thenReturn(Optional.of(toCard));
 
-        Authentication auth = new UsernamePasswordAuthenticationToken(
-                "test@example.com", null, List.of()
-        );
-        SecurityContextHolder.getContext().setAuthentication(auth);
-
         TransferRequest request = new TransferRequest(1L, 2L, new BigDecimal("100.00"));
 
-        assertThatThrownBy(() -> cardService.transfer(request))
+        assertThatThrownBy(() -> cardService.transfer(request, null))
                 .isInstanceOf(IllegalArgumentException.class)
                 .hasMessage("Target card does not belong to you");
 
-        SecurityContextHolder.clearContext();
+        verifyNoInteractions(auditService);
     }
 
     @Test
@@ -297,40 +358,20 @@ class CardServiceTest {
     @Test
     void shouldThrowExceptionWhenTransferExceedsLimit() {
         // given
-        User user = new User();
-        user.setId(1L);
-        user.setEmail("test@example.com");
-        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(user));
-
-        Card fromCard = new Card();
-        fromCard.setId(1L);
-        fromCard.setUserId(1L);
-        fromCard.setBalance(new BigDecimal("2000000.00"));
-        fromCard.setStatus(CardStatus.ACTIVE);
-        when(cardRepository.findById(1L)).thenReturn(Optional.of(fromCard));
-
-        Card toCard = new Card();
-        toCard.setId(2L);
-        toCard.setUserId(1L);
-        when(cardRepository.findById(2L)).thenReturn(Optional.of(toCard));
-
-        Authentication auth = new UsernamePasswordAuthenticationToken(
-                "test@example.com", null, List.of()
-        );
-        SecurityContextHolder.getContext().setAuthentication(auth);
+        when(currentUserResolver.getCurrentUserId()).thenReturn(1L);
 
         TransferRequest request = new TransferRequest(1L, 2L, new BigDecimal("1000001.00"));
 
         // Заглушка для валидации
         doThrow(new ru.effectivemobile.bankcards.exception.BusinessValidationException("Transfer amount cannot exceed 1000000.00"))
-                .when(validationService).validateTransfer(fromCard, toCard, new BigDecimal("1000001.00"));
+                .when(validationService).validateTransferAmount(1L, 1L, 2L, new BigDecimal("1000001.00"));
 
         // when & then
-        assertThatThrownBy(() -> cardService.transfer(request))
+        assertThatThrownBy(() -> cardService.transfer(request, null))
                 .isInstanceOf(ru.effectivemobile.bankcards.exception.BusinessValidationException.class)
                 .hasMessageContaining("cannot exceed");
 
-        SecurityContextHolder.clearContext();
+        verify(cardRepository, never()).debit(any(), any(), any(), any(), any());
     }
 
     @Test
@@ -0,0 +1,151 @@
+package ru.effectivemobile.bankcards.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import ru.effectivemobile.bankcards.dto.TransferRequest;
+import ru.effectivemobile.bankcards.entity.Card;
+import ru.effectivemobile.bankcards.entity.CardStatus;
+import ru.effectivemobile.bankcards.entity.Role;
+import ru.effectivemobile.bankcards.entity.User;
+import ru.effectivemobile.bankcards.exception.InsufficientFundsException;
+import ru.effectivemobile.bankcards.repository.CardRepository;
+import ru.effectivemobile.bankcards.repository.UserRepository;
+import ru.effectivemobile.bankcards.security.CurrentUser;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Нагрузочный тест: тысячи параллельных переводов между небольшим набором «горячих» карт
+@SpringBootTest
+@ActiveProfiles("test")
+class CardTransferConcurrencyTest {
+
+    private static final int CARDS = 5;
+    private static final int THREADS = 16;
+    private static final int TRANSFERS = 3000;
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000.00");
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private User user;
+    private final List<Long> cardIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        user.setEmail("stress@test.com");
+        user.setPassword("$2a$10$testhashedpassword");
+        user.setRole(Role.USER);
+        user = userRepository.save(user);
+
+        for (int i = 0; i < CARDS; i++) {
+            Card card = new Card();
+            card.setUserId(user.getId());
+            card.setEncryptedPan("stress_pan_" + i);
+            card.setOwnerName("Stress Test");
+            card.setExpiryDate(YearMonth.now().plusYears(2));
+            card.setStatus(CardStatus.ACTIVE);
+            card.setBalance(INITIAL_BALANCE);
+            cardIds.add(cardRepository.save(card).getId());
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        cardRepository.deleteAllById(cardIds);
+        userRepository.delete(user);
+    }
+
+    @Test
+    void shouldPreserveBalanceInvariantsUnderConcurrentTransfers() throws InterruptedException {
+        // given
+        CurrentUser currentUser = new CurrentUser(user.getId(), user.getEmail(), Role.USER);
+        Map<Long, BigDecimal> expectedDeltas = new ConcurrentHashMap<>();
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        List<Throwable> unexpected = new ArrayList<>();
+        long lockedBefore = meterRegistry.get("card.lock.wait").timer().count();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+        // when
+        for (int i = 0; i < TRANSFERS; i++) {
+            executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                Long fromId = cardIds.get(random.nextInt(CARDS));
+                Long toId = cardIds.get(random.nextInt(CARDS));
+                while (toId.equals(fromId)) {
+                    toId = cardIds.get(random.nextInt(CARDS));
+                }
+                BigDecimal amount = BigDecimal.valueOf(random.nextInt(1, 30_000), 2);
+
+                SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                        currentUser, null, List.of(new SimpleGrantedAuthority("ROLE_USER"))));
+                try {
+                    start.await();
+                    cardService.transfer(new TransferRequest(fromId, toId, amount), null);
+                    expectedDeltas.merge(fromId, amount.negate(), BigDecimal::add);
+                    expectedDeltas.merge(toId, amount, BigDecimal::add);
+                    succeeded.incrementAndGet();
+                } catch (InsufficientFundsException e) {
+                    rejected.incrementAndGet();
+                } catch (Throwable e) {
+                    synchronized (unexpected) {
+                        unexpected.add(e);
+                    }
+                } finally {
+                    SecurityContextHolder.clearContext();
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(2, TimeUnit.MINUTES)).isTrue();
+
+        // then
+        assertThat(unexpected).isEmpty();
+        assertThat(succeeded.get() + rejected.get()).isEqualTo(TRANSFERS);
+        assertThat(succeeded.get()).isPositive();
+        assertThat(meterRegistry.get("card.lock.wait").timer().count() - lockedBefore).isEqualTo(TRANSFERS);
+
+        BigDecimal total = BigDecimal.ZERO;
+        for (Long cardId : cardIds) {
+            BigDecimal balance = cardRepository.findById(cardId).orElseThrow().getBalance();
+            BigDecimal expected = INITIAL_BALANCE.add(expectedDeltas.getOrDefault(cardId, BigDecimal.ZERO));
+            assertThat(balance).isGreaterThanOrEqualTo(BigDecimal.ZERO);
+            assertThat(balance).isEqualByComparingTo(expected);
+            total = total.add(balance);
+        }
+        assertThat(total).isEqualByComparingTo(INITIAL_BALANCE.multiply(BigDecimal.valueOf(CARDS)));
+    }
+}
@@ -0,0 +1,155 @@
+package ru.effectivemobile.bankcards.service.audit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import ru.effectivemobile.bankcards.config.AuditPartitionConfig;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AuditPartitionServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private AuditPartitionConfig config;
+    private AuditPartitionService service;
+
+    @BeforeEach
+    void setUp() {
+        config = new AuditPartitionConfig();
+        config.setLockTimeout(Duration.ofSeconds(3));
+        service = new AuditPartitionService(jdbcTemplate, transactionManager, config);
+    }
+
+    @Test
+    void shouldParsePartitionBoundsAndDetectOverlaps() {
+        // when
+        AuditPartitionService.Partition legacy = AuditPartitionService.parse("card_audit_legacy",
+                "FOR VALUES FROM (MINVALUE) TO ('2026-11-01 00:00:00')");
+        AuditPartitionService.Partition monthly = AuditPartitionService.parse("card_audit_p202611",
+                "FOR VALUES FROM ('2026-11-01 00:00:00') TO ('2026-12-01 00:00:00')");
+
+        // then
+        assertThat(legacy.from()).isNull();
+        assertThat(legacy.to()).isEqualTo(LocalDateTime.of(2026, 11, 1, 0, 0));
+        assertThat(monthly.from()).isEqualTo(LocalDateTime.of(2026, 11, 1, 0, 0));
+
+        LocalDateTime october = LocalDateTime.of(2026, 10, 1, 0, 0);
+        LocalDateTime november = LocalDateTime.of(2026, 11, 1, 0, 0);
+        LocalDateTime december = LocalDateTime.of(2026, 12, 1, 0, 0);
+        assertThat(legacy.overlaps(october, november)).isTrue();
+        assertThat(legacy.overlaps(november, december)).isFalse();
+        assertThat(monthly.overlaps(november, december)).isTrue();
+        assertThat(monthly.overlaps(december, december.plusMonths(1))).isFalse();
+    }
+
+    @Test
+    void shouldBuildMonthlyPartitionDdl() {
+        assertThat(AuditPartitionService.createPartitionSql(YearMonth.of(2026, 12))).isEqualTo(
+                "CREATE TABLE IF NOT EXISTS card_audit_p202612 PARTITION OF card_audit "
+                        + "FOR VALUES FROM ('2026-12-01 00:00:00') TO ('2027-01-01 00:00:00')");
+    }
+
+    @Test
+    void shouldCreateOnlyMissingFuturePartitions() {
+        // given: legacy-партиция до текущего месяца и партиция текущего месяца уже есть
+        YearMonth current = YearMonth.now();
+        givenPostgresWithPartitions(
+                partition("card_audit_legacy", null, current),
+                partition(AuditPartitionService.partitionName(current), current, current.plusMonths(1)));
+
+        // when
+        int created = service.ensureFuturePartitions();
+
+        // then
+        assertThat(created).isEqualTo(3);
+        for (int i = 1; i <= 3; i++) {
+            verify(jdbcTemplate).execute(AuditPartitionService.createPartitionSql(current.plusMonths(i)));
+        }
+        verify(jdbcTemplate, never()).execute(AuditPartitionService.createPartitionSql(current));
+    }
+
+    @Test
+    void shouldFoldDetachAndMoveExpiredPartitionInOneTransactionInOrder() {
+        // given
+        YearMonth expired = YearMonth.now().minusMonths(config.getRetentionMonths() + 1);
+        YearMonth kept = YearMonth.now().minusMonths(config.getRetentionMonths());
+        String expiredName = AuditPartitionService.partitionName(expired);
+        givenPostgresWithPartitions(
+                partition(expiredName, expired, expired.plusMonths(1)),
+                partition(AuditPartitionService.partitionName(kept), kept, kept.plusMonths(1)));
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+
+        // when
+        int archived = service.archiveExpired();
+
+        // then
+        assertThat(archived).isEqualTo(1);
+        InOrder order = inOrder(transactionManager, jdbcTemplate);
+        order.verify(transactionManager).getTransaction(any());
+        order.verify(jdbcTemplate).execute("SET LOCAL lock_timeout = '3000ms'");
+        order.verify(jdbcTemplate).execute(startsWith("INSERT INTO card_audit_archive_total"));
+        order.verify(jdbcTemplate).execute("ALTER TABLE card_audit DETACH PARTITION " + expiredName);
+        order.verify(jdbcTemplate).execute("CREATE SCHEMA IF NOT EXISTS audit_archive");
+        order.verify(jdbcTemplate).execute("ALTER TABLE " + expiredName + " SET SCHEMA audit_archive");
+        order.verify(transactionManager).commit(any());
+        verify(jdbcTemplate, never()).execute(AuditPartitionService.createPartitionSql(kept));
+        assertThat(service.archiveStatements(partition(expiredName, expired, expired.plusMonths(1))).get(1))
+                .contains("FROM " + expiredName);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldDoNothingOutsidePostgres() {
+        // given
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn("H2");
+
+        // when
+        int created = service.ensureFuturePartitions();
+        int archived = service.archiveExpired();
+
+        // then
+        assertThat(created).isZero();
+        assertThat(archived).isZero();
+        verify(jdbcTemplate, never()).execute(anyString());
+        verify(jdbcTemplate, never()).query(anyString(), any(RowMapper.class), any(Object[].class));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void givenPostgresWithPartitions(AuditPartitionService.Partition... partitions) {
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn("PostgreSQL");
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class), eq("card_audit"))).thenReturn(1L);
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), eq("card_audit"))).thenReturn(List.of(partitions));
+    }
+
+    private static AuditPartitionService.Partition partition(String name, YearMonth from, YearMonth to) {
+        return new AuditPartitionService.Partition(name,
+                from == null ? null : from.atDay(1).atStartOfDay(), to.atDay(1).atStartOfDay());
+    }
+}
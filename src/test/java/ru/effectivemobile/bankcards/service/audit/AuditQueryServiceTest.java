@@ -0,0 +1,130 @@
+package ru.effectivemobile.bankcards.service.audit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import ru.effectivemobile.bankcards.dto.AuditCursorRequest;
+import ru.effectivemobile.bankcards.dto.CursorPage;
+import ru.effectivemobile.bankcards.entity.AuditAction;
+import ru.effectivemobile.bankcards.entity.Card;
+import ru.effectivemobile.bankcards.entity.CardAudit;
+import ru.effectivemobile.bankcards.entity.CardStatus;
+import ru.effectivemobile.bankcards.entity.Role;
+import ru.effectivemobile.bankcards.exception.BusinessValidationException;
+import ru.effectivemobile.bankcards.exception.CardNotFoundException;
+import ru.effectivemobile.bankcards.repository.CardRepository;
+import ru.effectivemobile.bankcards.security.CurrentUser;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class AuditQueryServiceTest {
+
+    private static final long OWNER_ID = 9101L;
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    @Autowired
+    private AuditQueryService auditQueryService;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long cardId;
+
+    @BeforeEach
+    void setUp() {
+        Card card = new Card();
+        card.setUserId(OWNER_ID);
+        card.setEncryptedPan("encrypted_pan_audit_query");
+        card.setOwnerName("John Doe");
+        card.setExpiryDate(YearMonth.of(2030, 1));
+        card.setStatus(CardStatus.ACTIVE);
+        card.setBalance(BigDecimal.TEN);
+        cardId = cardRepository.save(card).getId();
+        authenticate(OWNER_ID, Role.USER);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        jdbcTemplate.update("DELETE FROM card_audit WHERE card_id = ?", cardId);
+        cardRepository.deleteById(cardId);
+    }
+
+    @Test
+    void shouldScrollFilteredAuditWithoutGapsOrDuplicates() {
+        // given: по две записи на каждую секунду, чтобы порядок внутри равных created_at задавал id
+        for (int i = 0; i < 10; i++) {
+            AuditAction action = i % 3 == 0 ? AuditAction.UPDATE_STATUS : AuditAction.UPDATE_BALANCE;
+            jdbcTemplate.update("INSERT INTO card_audit (card_id, user_id, action, performed_by, created_at) "
+                    + "VALUES (?, ?, ?, 'test', ?)", cardId, OWNER_ID, action.name(), START.plusSeconds(i / 2));
+        }
+        List<Long> expected = jdbcTemplate.queryForList("SELECT id FROM card_audit WHERE card_id = ? "
+                + "AND action = 'UPDATE_BALANCE' AND created_at >= ? AND created_at < ? "
+                + "ORDER BY created_at, id", Long.class, cardId, START.plusSeconds(1), START.plusSeconds(5));
+
+        // when
+        List<Long> ids = new ArrayList<>();
+        String after = null;
+        do {
+            CursorPage<CardAudit> page = auditQueryService.getCardAuditAfter(cardId, new AuditCursorRequest(
+                    AuditAction.UPDATE_BALANCE, START.plusSeconds(1), START.plusSeconds(5), 2, Sort.Direction.ASC, after));
+            page.items().forEach(audit -> ids.add(audit.getId()));
+            after = page.nextCursor();
+        } while (after != null);
+
+        // then
+        assertThat(expected).hasSize(5);
+        assertThat(ids).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    void shouldRejectCursorForOtherDirection() {
+        jdbcTemplate.update("INSERT INTO card_audit (card_id, user_id, action, performed_by, created_at) "
+                        + "VALUES (?, ?, 'CREATE', 'test', ?), (?, ?, 'CREATE', 'test', ?)",
+                cardId, OWNER_ID, START, cardId, OWNER_ID, START.plusSeconds(1));
+        String cursor = auditQueryService.getCardAuditAfter(cardId,
+                new AuditCursorRequest(null, null, null, 1, Sort.Direction.ASC, null)).nextCursor();
+
+        assertThatThrownBy(() -> auditQueryService.getCardAuditAfter(cardId,
+                new AuditCursorRequest(null, null, null, 1, Sort.Direction.DESC, cursor)))
+                .isInstanceOf(BusinessValidationException.class);
+    }
+
+    @Test
+    void shouldHideCardAuditFromOtherUsersButNotFromAdmin() {
+        AuditCursorRequest request = new AuditCursorRequest(null, null, null, 10, null, null);
+
+        authenticate(OWNER_ID + 1, Role.USER);
+        assertThatThrownBy(() -> auditQueryService.getCardAuditAfter(cardId, request))
+                .isInstanceOf(CardNotFoundException.class);
+
+        authenticate(OWNER_ID + 2, Role.ADMIN);
+        assertThat(auditQueryService.getCardAuditAfter(cardId, request).items()).isEmpty();
+    }
+
+    private void authenticate(Long userId, Role role) {
+        CurrentUser user = new CurrentUser(userId, "user" + userId + "@example.com", role);
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                user, null, List.of(new SimpleGrantedAuthority("ROLE_" + role.name()))));
+    }
+}
@@ -0,0 +1,99 @@
+package ru.effectivemobile.bankcards.service.audit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.effectivemobile.bankcards.entity.AuditAction;
+import ru.effectivemobile.bankcards.entity.Card;
+import ru.effectivemobile.bankcards.entity.CardAudit;
+import ru.effectivemobile.bankcards.entity.CardStatus;
+import ru.effectivemobile.bankcards.repository.CardAuditRepository;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class AuditWriterTest {
+
+    @Autowired
+    private AuditWriter auditWriter;
+
+    @Autowired
+    private AuditService auditService;
+
+    @Autowired
+    private CardAuditRepository cardAuditRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void shouldWriteAllEnqueuedRecordsInBatches() throws InterruptedException {
+        // given
+        long cardId = 9001L;
+        List<CardAudit> audits = new ArrayList<>();
+        for (int i = 0; i < 1200; i++) {
+            CardAudit audit = new CardAudit();
+            audit.setCardId(cardId);
+            audit.setUserId(1L);
+            audit.setAction(AuditAction.UPDATE_BALANCE);
+            audit.setOldBalance(new BigDecimal(i));
+            audit.setNewBalance(new BigDecimal(i + 1));
+            audit.setPerformedBy("test@example.com");
+            audits.add(audit);
+        }
+
+        // when
+        auditWriter.enqueueAll(audits);
+
+        // then
+        assertThat(awaitAuditCount(cardId, 1200)).isEqualTo(1200);
+    }
+
+    @Test
+    void shouldNotWriteAuditWhenBusinessTransactionRollsBack() throws InterruptedException {
+        // given
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("test@example.com", null, List.of()));
+        Card card = new Card();
+        card.setId(9002L);
+        card.setUserId(1L);
+        card.setStatus(CardStatus.BLOCKED);
+
+        // when
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            auditService.logBlockRequest(card);
+            status.setRollbackOnly();
+        });
+        auditService.logBlockRequest(card);
+
+        // then — сохраняется только запись, сделанная вне откатившейся транзакции
+        assertThat(awaitAuditCount(9002L, 1)).isEqualTo(1);
+        Thread.sleep(200);
+        assertThat(cardAuditRepository.findByCardId(9002L)).hasSize(1);
+    }
+
+    private int awaitAuditCount(long cardId, int expected) throws InterruptedException {
+        int count = 0;
+        for (int i = 0; i < 100 && count < expected; i++) {
+            Thread.sleep(50);
+            count = cardAuditRepository.findByCardId(cardId).size();
+        }
+        return count;
+    }
+}
@@ -0,0 +1,138 @@
+package ru.effectivemobile.bankcards.service.clusterlock;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.effectivemobile.bankcards.config.ClusterLockConfig;
+import ru.effectivemobile.bankcards.dto.SchedulerLockDto;
+import ru.effectivemobile.bankcards.repository.SchedulerLockRepository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Два экземпляра сервиса с разными nodeId имитируют два узла над общей БД
+@SpringBootTest
+@ActiveProfiles("test")
+class ClusterLockServiceTest {
+
+    private static final String JOB = "test-job";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private SchedulerLockRepository schedulerLockRepository;
+
+    private ClusterLockService nodeA;
+    private ClusterLockService nodeB;
+
+    @BeforeEach
+    void setUp() {
+        nodeA = newNode("node-a");
+        nodeB = newNode("node-b");
+    }
+
+    @AfterEach
+    void tearDown() {
+        nodeA.shutdown();
+        nodeB.shutdown();
+        schedulerLockRepository.deleteById(JOB);
+    }
+
+    @Test
+    void shouldGrantLockToOneNodeAtATime() {
+        assertThat(nodeA.tryAcquire(JOB)).isTrue();
+        assertThat(nodeB.tryAcquire(JOB)).isFalse();
+        assertThat(nodeA.tryAcquire(JOB)).isFalse();
+
+        nodeA.release(JOB);
+
+        assertThat(nodeB.tryAcquire(JOB)).isTrue();
+        assertThat(nodeB.getLocks()).filteredOn(lock -> lock.name().equals(JOB))
+                .singleElement()
+                .satisfies(lock -> {
+                    assertThat(lock.owner()).isEqualTo("node-b");
+                    assertThat(lock.held()).isTrue();
+                    assertThat(lock.heldByThisNode()).isTrue();
+                });
+        nodeB.release(JOB);
+    }
+
+    @Test
+    void shouldKeepLeaseWhileHeartbeatRenewsIt() throws InterruptedException {
+        assertThat(nodeA.tryAcquire(JOB)).isTrue();
+
+        // Без продления аренда истекла бы через 300 мс
+        Thread.sleep(700);
+        assertThat(nodeB.tryAcquire(JOB)).isFalse();
+
+        nodeA.release(JOB);
+        assertThat(nodeA.getLocks()).filteredOn(lock -> lock.name().equals(JOB))
+                .extracting(SchedulerLockDto::held)
+                .containsExactly(false);
+    }
+
+    @Test
+    void shouldHoldLeaseForLockAtLeastForAfterRelease() throws InterruptedException {
+        assertThat(nodeA.tryAcquire(JOB)).isTrue();
+        nodeA.release(JOB, Duration.ofMillis(500));
+
+        // Запуск на другом узле чуть позже по расписанию не выполняет задачу повторно
+        assertThat(nodeB.tryAcquire(JOB)).isFalse();
+
+        Thread.sleep(600);
+        assertThat(nodeB.tryAcquire(JOB)).isTrue();
+        nodeB.release(JOB);
+    }
+
+    @Test
+    void shouldGrantLockToOneThreadOfTheSameNode() throws Exception {
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return nodeA.tryAcquire(JOB);
+                }));
+            }
+            start.countDown();
+
+            int acquired = 0;
+            for (Future<Boolean> result : results) {
+                acquired += result.get() ? 1 : 0;
+            }
+            assertThat(acquired).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+            nodeA.release(JOB);
+        }
+        assertThat(nodeA.tryAcquire(JOB)).isTrue();
+        nodeA.release(JOB);
+    }
+
+    private ClusterLockService newNode(String nodeId) {
+        ClusterLockConfig config = new ClusterLockConfig();
+        config.setNodeId(nodeId);
+        config.setLease(Duration.ofMillis(300));
+        config.setHeartbeatInterval(Duration.ofMillis(50));
+        return new ClusterLockService(jdbcTemplate, transactionManager, schedulerLockRepository, config);
+    }
+}
@@ -0,0 +1,61 @@
+package ru.effectivemobile.bankcards.service.clusterlock;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.BeanCreationException;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ClusterLockedMethodValidatorTest {
+
+    private final ClusterLockedMethodValidator validator = new ClusterLockedMethodValidator();
+
+    @Test
+    void shouldAcceptVoidAndOptionalMethods() {
+        SupportedJob job = new SupportedJob();
+        assertThat(validator.postProcessBeforeInitialization(job, "supportedJob")).isSameAs(job);
+    }
+
+    @Test
+    void shouldRejectMethodReturningPrimitive() {
+        assertThatThrownBy(() -> validator.postProcessBeforeInitialization(new PrimitiveJob(), "primitiveJob"))
+                .isInstanceOf(BeanCreationException.class)
+                .hasMessageContaining("count");
+    }
+
+    @Test
+    void shouldRejectInvalidLockAtLeastFor() {
+        assertThatThrownBy(() -> validator.postProcessBeforeInitialization(new InvalidHoldJob(), "invalidHoldJob"))
+                .isInstanceOf(BeanCreationException.class)
+                .hasMessageContaining("lockAtLeastFor");
+    }
+
+    static class SupportedJob {
+
+        @ClusterLocked("void-job")
+        public void run() {
+        }
+
+        @ClusterLocked(value = "optional-job", lockAtLeastFor = "30s")
+        public Optional<String> runWithResult() {
+            return Optional.of("done");
+        }
+    }
+
+    static class PrimitiveJob {
+
+        @ClusterLocked("primitive-job")
+        public int count() {
+            return 1;
+        }
+    }
+
+    static class InvalidHoldJob {
+
+        @ClusterLocked(value = "invalid-hold-job", lockAtLeastFor = "soon")
+        public void run() {
+        }
+    }
+}
@@ -5,6 +5,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
@@ -43,6 +48,43 @@ class EncryptionServiceTest2 {
         assertThat(encrypted1).isNotEqualTo(encrypted2);
     }
 
+    @Test
+    void shouldEncryptAndDecryptByteBuffersInStringCompatibleFormat() {
+        // given
+        String originalPan = "4556737586899855";
+        ByteBuffer plain = ByteBuffer.wrap(originalPan.getBytes(StandardCharsets.UTF_8));
+        ByteBuffer encrypted = ByteBuffer.allocate(encryptionService.encryptedLength(originalPan.length()));
+
+        // when
+        int written = encryptionService.encrypt(plain, encrypted);
+        encrypted.flip();
+        String encryptedBase64 = Base64.getEncoder().encodeToString(
+                Arrays.copyOf(encrypted.array(), written));
+
+        ByteBuffer decrypted = ByteBuffer.allocate(originalPan.length());
+        int read = encryptionService.decrypt(encrypted, decrypted);
+
+        // then
+        assertThat(written).isEqualTo(encryptionService.encryptedLength(originalPan.length()));
+        assertThat(new String(decrypted.array(), 0, read, StandardCharsets.UTF_8)).isEqualTo(originalPan);
+        assertThat(encryptionService.decrypt(encryptedBase64)).isEqualTo(originalPan);
+    }
+
+    @Test
+    void shouldProduceSameBlindIndexForSamePan() {
+        // given
+        String pan = "4556737586899855";
+
+        // when
+        String hash1 = encryptionService.hashPan(pan);
+        String hash2 = encryptionService.hashPan(pan);
+        String otherHash = encryptionService.hashPan("5555555555554444");
+
+        // then
+        assertThat(hash1).isEqualTo(hash2).hasSize(64).doesNotContain(pan);
+        assertThat(otherHash).isNotEqualTo(hash1);
+    }
+
     @Test
     void shouldThrowExceptionForInvalidPanDuringEncryption() {
         // given
@@ -0,0 +1,117 @@
+package ru.effectivemobile.bankcards.service.expiry;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import ru.effectivemobile.bankcards.config.CardExpiryConfig;
+import ru.effectivemobile.bankcards.entity.Card;
+import ru.effectivemobile.bankcards.entity.CardStatus;
+import ru.effectivemobile.bankcards.entity.Role;
+import ru.effectivemobile.bankcards.entity.User;
+import ru.effectivemobile.bankcards.repository.CardRepository;
+import ru.effectivemobile.bankcards.repository.UserRepository;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class CardExpiryServiceTest {
+
+    @Autowired
+    private CardExpiryService cardExpiryService;
+
+    @Autowired
+    private CardExpiryConfig config;
+
+    @Autowired
+    private CardExpiryIndex cardExpiryIndex;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User user;
+    private int chunkSize;
+
+    @BeforeEach
+    void setUp() {
+        chunkSize = config.getChunkSize();
+        config.setChunkSize(1);
+
+        user = new User();
+        user.setEmail("expiry@test.com");
+        user.setPassword("$2a$10$testhashedpassword");
+        user.setRole(Role.USER);
+        user = userRepository.save(user);
+    }
+
+    @AfterEach
+    void tearDown() {
+        config.setChunkSize(chunkSize);
+        cardRepository.deleteAll(cardRepository.findByUserId(user.getId()));
+        userRepository.delete(user);
+    }
+
+    @Test
+    void shouldExpireOnlyActiveCardsPastTheirMonth() {
+        // given
+        Card expired = saveCard("expiry_pan_1", YearMonth.now().minusMonths(1), CardStatus.ACTIVE);
+        Card expiringThisMonth = saveCard("expiry_pan_2", YearMonth.now(), CardStatus.ACTIVE);
+        Card blocked = saveCard("expiry_pan_3", YearMonth.now().minusMonths(2), CardStatus.BLOCKED);
+        Card alsoExpired = saveCard("expiry_pan_4", YearMonth.now().minusYears(1), CardStatus.ACTIVE);
+
+        // when
+        int count = cardExpiryService.expireCards();
+
+        // then
+        assertThat(count).isGreaterThanOrEqualTo(2);
+        assertThat(statusOf(expired)).isEqualTo(CardStatus.EXPIRED);
+        assertThat(statusOf(alsoExpired)).isEqualTo(CardStatus.EXPIRED);
+        assertThat(statusOf(expiringThisMonth)).isEqualTo(CardStatus.ACTIVE);
+        assertThat(statusOf(blocked)).isEqualTo(CardStatus.BLOCKED);
+        assertThat(cardRepository.findById(expired.getId()).orElseThrow().getVersion())
+                .isEqualTo(expired.getVersion() + 1);
+        assertThat(cardExpiryService.expireCards()).isZero();
+    }
+
+    @Test
+    void shouldExpireDueMonthsFoundByIndex() {
+        // given
+        YearMonth lastMonth = YearMonth.now().minusMonths(1);
+        Card expired = saveCard("expiry_pan_5", lastMonth, CardStatus.ACTIVE);
+        Card valid = saveCard("expiry_pan_6", YearMonth.now().plusMonths(1), CardStatus.ACTIVE);
+
+        // when
+        int count = cardExpiryService.expireDueMonths();
+
+        // then
+        assertThat(count).isGreaterThanOrEqualTo(1);
+        assertThat(statusOf(expired)).isEqualTo(CardStatus.EXPIRED);
+        assertThat(statusOf(valid)).isEqualTo(CardStatus.ACTIVE);
+        assertThat(cardExpiryIndex.dueMonths(YearMonth.now())).doesNotContain(lastMonth);
+        assertThat(cardExpiryIndex.countActive(valid.getExpiryDate())).isPositive();
+    }
+
+    private CardStatus statusOf(Card card) {
+        return cardRepository.findById(card.getId()).orElseThrow().getStatus();
+    }
+
+    private Card saveCard(String encryptedPan, YearMonth expiryDate, CardStatus status) {
+        Card card = new Card();
+        card.setUserId(user.getId());
+        card.setEncryptedPan(encryptedPan);
+        card.setOwnerName("Expiry Test");
+        card.setExpiryDate(expiryDate);
+        card.setStatus(status);
+        card.setBalance(BigDecimal.ZERO);
+        return cardRepository.save(card);
+    }
+}
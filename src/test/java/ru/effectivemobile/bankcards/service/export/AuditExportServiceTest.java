@@ -0,0 +1,87 @@
+package ru.effectivemobile.bankcards.service.export;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import ru.effectivemobile.bankcards.dto.AuditExportRequest;
+import ru.effectivemobile.bankcards.entity.AuditAction;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class AuditExportServiceTest {
+
+    private static final long USER_ID = 9201L;
+    private static final LocalDateTime START = LocalDateTime.of(2024, 3, 1, 10, 0);
+
+    @Autowired
+    private AuditExportService auditExportService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < 5; i++) {
+            jdbcTemplate.update("INSERT INTO card_audit (card_id, user_id, action, description, new_balance, "
+                            + "performed_by, created_at) VALUES (?, ?, 'UPDATE_BALANCE', ?, ?, 'test', ?)",
+                    9301L, USER_ID, "Transfer, \"note\" " + i, 100 + i, START.plusMinutes(i));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM card_audit WHERE user_id = ?", USER_ID);
+    }
+
+    @Test
+    void shouldStreamFilteredRowsAsNdjson() throws Exception {
+        // when
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        auditExportService.export(new AuditExportRequest(USER_ID, null, AuditAction.UPDATE_BALANCE,
+                START.plusMinutes(1), START.plusMinutes(4), ExportFormat.NDJSON, false)).writeTo(out);
+
+        // then
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(lines).hasSize(3);
+        JsonNode first = objectMapper.readTree(lines[0]);
+        assertThat(first.get("userId").asLong()).isEqualTo(USER_ID);
+        assertThat(first.get("newBalance").decimalValue()).isEqualByComparingTo("101");
+        assertThat(first.get("createdAt").asText()).isEqualTo("2024-03-01T10:01");
+        assertThat(first.get("oldStatus").isNull()).isTrue();
+    }
+
+    @Test
+    void shouldStreamGzippedCsvWithEscapedFields() throws Exception {
+        // when
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        auditExportService.export(new AuditExportRequest(USER_ID, null, null, null, null,
+                ExportFormat.CSV, true)).writeTo(out);
+
+        // then
+        String csv;
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            csv = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        String[] lines = csv.split("\r\n");
+        assertThat(lines).hasSize(6);
+        assertThat(lines[0]).startsWith("id,cardId,userId,action,description,");
+        assertThat(lines[1]).endsWith(",UPDATE_BALANCE,\"Transfer, \"\"note\"\" 0\",,100.00,,,test,2024-03-01T10:00");
+    }
+}
@@ -0,0 +1,77 @@
+package ru.effectivemobile.bankcards.service.export;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import ru.effectivemobile.bankcards.dto.CardExportRequest;
+import ru.effectivemobile.bankcards.entity.Card;
+import ru.effectivemobile.bankcards.entity.CardStatus;
+import ru.effectivemobile.bankcards.repository.CardRepository;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.YearMonth;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class CardExportServiceTest {
+
+    private static final long USER_ID = 9401L;
+
+    @Autowired
+    private CardExportService cardExportService;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @AfterEach
+    void tearDown() {
+        cardRepository.deleteAll(cardRepository.findByUserId(USER_ID));
+    }
+
+    @Test
+    void shouldStreamFilteredCardsWithMaskedPan() throws Exception {
+        // given
+        for (int i = 0; i < 3; i++) {
+            Card card = new Card();
+            card.setUserId(USER_ID);
+            card.setEncryptedPan("encrypted_pan_export_" + i);
+            card.setPanLast4("123" + i);
+            card.setOwnerName("John Doe");
+            card.setExpiryDate(YearMonth.of(2030, 4));
+            card.setStatus(i == 2 ? CardStatus.BLOCKED : CardStatus.ACTIVE);
+            card.setBalance(new BigDecimal("10.50"));
+            cardRepository.save(card);
+        }
+        double rowsBefore = meterRegistry.counter("card.export.rows").count();
+
+        // when
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        cardExportService.export(new CardExportRequest(CardStatus.ACTIVE, USER_ID, ExportFormat.NDJSON, false))
+                .writeTo(out);
+
+        // then
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(lines).hasSize(2);
+        JsonNode first = objectMapper.readTree(lines[0]);
+        assertThat(first.get("maskedPan").asText()).isEqualTo("**** **** **** 1230");
+        assertThat(first.get("expiryDate").asText()).isEqualTo("04/30");
+        assertThat(first.get("balance").decimalValue()).isEqualByComparingTo("10.50");
+        assertThat(first.has("encryptedPan")).isFalse();
+        assertThat(meterRegistry.counter("card.export.rows").count() - rowsBefore).isEqualTo(2);
+    }
+}
@@ -0,0 +1,216 @@
+package ru.effectivemobile.bankcards.service.ledger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import ru.effectivemobile.bankcards.entity.Card;
+import ru.effectivemobile.bankcards.entity.CardStatus;
+import ru.effectivemobile.bankcards.entity.Role;
+import ru.effectivemobile.bankcards.entity.User;
+import ru.effectivemobile.bankcards.repository.CardRepository;
+import ru.effectivemobile.bankcards.repository.UserRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class LedgerServiceTest {
+
+    @Autowired
+    private LedgerService ledgerService;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User user;
+    private Card first;
+    private Card second;
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        user.setEmail("ledger@test.com");
+        user.setPassword("$2a$10$testhashedpassword");
+        user.setRole(Role.USER);
+        user = userRepository.save(user);
+
+        first = saveCard("ledger_pan_1", new BigDecimal("100.00"));
+        second = saveCard("ledger_pan_2", BigDecimal.ZERO);
+    }
+
+    @AfterEach
+    void tearDown() {
+        cardRepository.deleteAll(cardRepository.findByUserId(user.getId()));
+        userRepository.delete(user);
+    }
+
+    @Test
+    void shouldComputeBalanceFromSnapshotAndLaterPostings() {
+        // given: первая карта создана до появления книги, вторая — с начальным балансом в книге
+        ledgerService.backfillOpeningBalances(first.getId() - 1, 1);
+        ledgerService.postOpeningBalance(second);
+        ledgerService.postTransfer(user.getId(), first.getId(), second.getId(), new BigDecimal("30.00"));
+
+        // when
+        int written = ledgerService.takeSnapshots(LocalDateTime.now().plusMinutes(1));
+        ledgerService.postTransfer(user.getId(), second.getId(), first.getId(), new BigDecimal("10.00"));
+
+        // then
+        assertThat(written).isGreaterThanOrEqualTo(2);
+        assertThat(ledgerService.getBalance(first.getId())).isEqualByComparingTo("80.00");
+        assertThat(ledgerService.getBalance(second.getId())).isEqualByComparingTo("20.00");
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM card_balance_snapshot WHERE card_id IN (?, ?)",
+                Integer.class, first.getId(), second.getId())).isEqualTo(2);
+        // Сумма проводок каждой операции равна нулю
+        assertThat(jdbcTemplate.queryForObject("""
+                SELECT COUNT(*) FROM (
+                    SELECT transaction_id FROM ledger_entry
+                    GROUP BY transaction_id
+                    HAVING SUM(CASE WHEN direction = 'CREDIT' THEN amount ELSE -amount END) <> 0) unbalanced
+                """, Integer.class)).isZero();
+    }
+
+    @Test
+    void shouldComputeBalanceAsOfPointInTime() throws InterruptedException {
+        // given
+        LocalDateTime beforeOpening = LocalDateTime.now();
+        Thread.sleep(20);
+        ledgerService.postOpeningBalance(first);
+        ledgerService.postOpeningBalance(second);
+        ledgerService.postTransfer(user.getId(), first.getId(), second.getId(), new BigDecimal("30.00"));
+        Thread.sleep(20);
+        LocalDateTime afterFirstTransfer = LocalDateTime.now();
+        Thread.sleep(20);
+        ledgerService.takeSnapshots(LocalDateTime.now().plusMinutes(1));
+        ledgerService.postTransfer(user.getId(), second.getId(), first.getId(), new BigDecimal("10.00"));
+        Thread.sleep(20);
+        LocalDateTime afterSecondTransfer = LocalDateTime.now();
+
+        // then
+        assertThat(ledgerService.getBalanceAsOf(first.getId(), beforeOpening)).isEmpty();
+        assertThat(ledgerService.getBalanceAsOf(first.getId(), afterFirstTransfer)).hasValueSatisfying(
+                balance -> assertThat(balance).isEqualByComparingTo("70.00"));
+        assertThat(ledgerService.getBalanceAsOf(second.getId(), afterFirstTransfer)).hasValueSatisfying(
+                balance -> assertThat(balance).isEqualByComparingTo("30.00"));
+        assertThat(ledgerService.getBalanceAsOf(first.getId(), afterSecondTransfer)).hasValueSatisfying(
+                balance -> assertThat(balance).isEqualByComparingTo("80.00"));
+    }
+
+    @Test
+    void shouldFoldEntriesCommittedAfterTheirRangeWasSnapshotted() {
+        // given: проводки второго перевода «ещё не закоммичены» — их id уже выданы, но строк в таблице нет
+        ledgerService.postOpeningBalance(first);
+        ledgerService.postOpeningBalance(second);
+        ledgerService.postTransfer(user.getId(), first.getId(), second.getId(), new BigDecimal("30.00"));
+        ledgerService.postTransfer(user.getId(), first.getId(), second.getId(), new BigDecimal("5.00"));
+        List<Map<String, Object>> inFlight = removeEntries("5.00");
+        ledgerService.postTransfer(user.getId(), second.getId(), first.getId(), new BigDecimal("10.00"));
+        ledgerService.takeSnapshots(LocalDateTime.now().plusMinutes(1));
+
+        // when: транзакция коммитится после снимка, её id ниже watermark
+        restoreEntries(inFlight);
+        ledgerService.takeSnapshots(LocalDateTime.now().plusMinutes(1));
+
+        // then
+        assertThat(ledgerService.getBalance(first.getId())).isEqualByComparingTo("75.00");
+        assertThat(ledgerService.getBalance(second.getId())).isEqualByComparingTo("25.00");
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM ledger_snapshot_gap WHERE entry_id IN (?, ?)",
+                Integer.class, inFlight.get(0).get("ID"), inFlight.get(1).get("ID"))).isZero();
+    }
+
+    @Test
+    void shouldKeepLateEntryOfCardWithoutCoveringSnapshotInItsNextSnapshot() {
+        // given: у карт есть снимки, затем их единственный перевод в диапазоне «ещё не закоммичен»,
+        // а диапазон закрывает проводка третьей карты
+        ledgerService.postOpeningBalance(first);
+        ledgerService.postOpeningBalance(second);
+        ledgerService.takeSnapshots(LocalDateTime.now().plusMinutes(1));
+        ledgerService.postTransfer(user.getId(), first.getId(), second.getId(), new BigDecimal("5.00"));
+        List<Map<String, Object>> inFlight = removeEntries("5.00");
+        ledgerService.postOpeningBalance(saveCard("ledger_pan_3", new BigDecimal("1.00")));
+        ledgerService.takeSnapshots(LocalDateTime.now().plusMinutes(1));
+
+        // when: перевод коммитится, снимка с last_entry_id >= его id у карт нет; дальше новый перевод и снимок
+        restoreEntries(inFlight);
+        ledgerService.takeSnapshots(LocalDateTime.now().plusMinutes(1));
+        ledgerService.postTransfer(user.getId(), first.getId(), second.getId(), new BigDecimal("10.00"));
+        ledgerService.takeSnapshots(LocalDateTime.now().plusMinutes(1));
+        ledgerService.takeSnapshots(LocalDateTime.now().plusMinutes(1));
+
+        // then
+        assertThat(ledgerService.getBalance(first.getId())).isEqualByComparingTo("85.00");
+        assertThat(ledgerService.getBalance(second.getId())).isEqualByComparingTo("15.00");
+        assertThat(ledgerService.getBalanceAsOf(first.getId(), LocalDateTime.now())).hasValueSatisfying(
+                balance -> assertThat(balance).isEqualByComparingTo("85.00"));
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT balance FROM card_balance_snapshot WHERE card_id = ? ORDER BY last_entry_id DESC LIMIT 1",
+                BigDecimal.class, first.getId())).isEqualByComparingTo("85.00");
+    }
+
+    @Test
+    void shouldBackfillOpeningBalanceOnlyOnce() {
+        // given: перевод прошёл до заведения карт в книгу
+        ledgerService.postTransfer(user.getId(), first.getId(), second.getId(), new BigDecimal("40.00"));
+        first.setBalance(new BigDecimal("60.00"));
+        second.setBalance(new BigDecimal("40.00"));
+        cardRepository.save(first);
+        cardRepository.save(second);
+
+        // when
+        Long lastId = ledgerService.backfillOpeningBalances(first.getId() - 1, 10);
+        ledgerService.backfillOpeningBalances(first.getId() - 1, 10);
+
+        // then
+        assertThat(lastId).isGreaterThanOrEqualTo(second.getId());
+        assertThat(ledgerService.getBalance(first.getId())).isEqualByComparingTo("60.00");
+        assertThat(ledgerService.getBalance(second.getId())).isEqualByComparingTo("40.00");
+    }
+
+    // Проводки переводов на сумму amount между тестовыми картами пропадают из таблицы, как будто не закоммичены
+    private List<Map<String, Object>> removeEntries(String amount) {
+        List<Map<String, Object>> entries = jdbcTemplate.queryForList(
+                "SELECT * FROM ledger_entry WHERE card_id IN (?, ?) AND amount = ? ORDER BY id",
+                first.getId(), second.getId(), new BigDecimal(amount));
+        jdbcTemplate.update("DELETE FROM ledger_entry WHERE card_id IN (?, ?) AND amount = ?",
+                first.getId(), second.getId(), new BigDecimal(amount));
+        return entries;
+    }
+
+    // Коммит «долгой» транзакции: строки возвращаются с теми же id
+    private void restoreEntries(List<Map<String, Object>> entries) {
+        for (Map<String, Object> entry : entries) {
+            jdbcTemplate.update("INSERT INTO ledger_entry (id, transaction_id, card_id, user_id, direction, "
+                            + "entry_type, amount, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?)",
+                    entry.get("ID"), entry.get("TRANSACTION_ID"), entry.get("CARD_ID"), entry.get("USER_ID"),
+                    entry.get("DIRECTION"), entry.get("ENTRY_TYPE"), entry.get("AMOUNT"), entry.get("CREATED_AT"));
+        }
+    }
+
+    private Card saveCard(String encryptedPan, BigDecimal balance) {
+        Card card = new Card();
+        card.setUserId(user.getId());
+        card.setEncryptedPan(encryptedPan);
+        card.setOwnerName("Ledger Test");
+        card.setExpiryDate(YearMonth.now().plusYears(2));
+        card.setStatus(CardStatus.ACTIVE);
+        card.setBalance(balance);
+        return cardRepository.save(card);
+    }
+}
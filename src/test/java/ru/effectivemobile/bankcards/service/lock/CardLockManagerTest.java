@@ -0,0 +1,65 @@
+package ru.effectivemobile.bankcards.service.lock;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.effectivemobile.bankcards.config.CardLockConfig;
+import ru.effectivemobile.bankcards.exception.CardLockTimeoutException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CardLockManagerTest {
+
+    private CardLockManager cardLockManager;
+
+    @BeforeEach
+    void setUp() {
+        CardLockConfig config = new CardLockConfig();
+        config.setStripes(100);
+        config.setTimeout(Duration.ofMillis(100));
+        cardLockManager = new CardLockManager(config, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void shouldRoundStripeCountUpToPowerOfTwo() {
+        assertThat(cardLockManager.getStripeCount()).isEqualTo(128);
+    }
+
+    @Test
+    void shouldTimeOutWhileAnotherThreadHoldsCard() throws Exception {
+        // given
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> holder = CompletableFuture.runAsync(() -> {
+            CardLockManager.CardLocks locks = cardLockManager.lock(List.of(2L));
+            try {
+                locked.countDown();
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                locks.close();
+            }
+        });
+        assertThat(locked.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // when & then — карта 1 свободна, но вторая нога перевода занята
+        assertThatThrownBy(() -> cardLockManager.lock(List.of(1L, 2L)))
+                .isInstanceOf(CardLockTimeoutException.class);
+
+        release.countDown();
+        holder.get(5, TimeUnit.SECONDS);
+
+        // захваченная до таймаута полоса карты 1 освобождена
+        CardLockManager.CardLocks locks = cardLockManager.lock(List.of(1L, 2L));
+        assertThat(locks).isNotNull();
+        locks.close();
+    }
+}
@@ -0,0 +1,142 @@
+package ru.effectivemobile.bankcards.service.reconciliation;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import ru.effectivemobile.bankcards.config.ReconciliationConfig;
+import ru.effectivemobile.bankcards.entity.AuditAction;
+import ru.effectivemobile.bankcards.entity.Card;
+import ru.effectivemobile.bankcards.entity.CardAudit;
+import ru.effectivemobile.bankcards.entity.CardStatus;
+import ru.effectivemobile.bankcards.entity.ReconciliationMismatch;
+import ru.effectivemobile.bankcards.entity.ReconciliationRun;
+import ru.effectivemobile.bankcards.entity.ReconciliationStatus;
+import ru.effectivemobile.bankcards.entity.Role;
+import ru.effectivemobile.bankcards.entity.User;
+import ru.effectivemobile.bankcards.repository.CardAuditRepository;
+import ru.effectivemobile.bankcards.repository.CardRepository;
+import ru.effectivemobile.bankcards.repository.UserRepository;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ReconciliationServiceTest {
+
+    @Autowired
+    private ReconciliationService reconciliationService;
+
+    @Autowired
+    private ReconciliationConfig config;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private CardAuditRepository cardAuditRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User user;
+    private int chunkSize;
+    private Duration recheckDelay;
+
+    @BeforeEach
+    void setUp() {
+        chunkSize = config.getChunkSize();
+        recheckDelay = config.getRecheckDelay();
+        // Несколько карт на чанк, чтобы чанки сверялись параллельно
+        config.setChunkSize(2);
+        config.setRecheckDelay(Duration.ZERO);
+
+        user = new User();
+        user.setEmail("reconciliation@test.com");
+        user.setPassword("$2a$10$testhashedpassword");
+        user.setRole(Role.USER);
+        user = userRepository.save(user);
+    }
+
+    @AfterEach
+    void tearDown() {
+        config.setChunkSize(chunkSize);
+        config.setRecheckDelay(recheckDelay);
+        List<Card> cards = cardRepository.findByUserId(user.getId());
+        cards.forEach(card -> cardAuditRepository.deleteAll(cardAuditRepository.findByCardId(card.getId())));
+        cards.forEach(card -> jdbcTemplate.update("DELETE FROM card_audit_archive_total WHERE card_id = ?", card.getId()));
+        cardRepository.deleteAll(cards);
+        userRepository.delete(user);
+    }
+
+    @Test
+    void shouldReportOnlyCardsWhoseBalanceDiffersFromAuditHistory() {
+        // given
+        Card consistent = saveCard("reconciliation_pan_1", new BigDecimal("70.00"));
+        audit(consistent, AuditAction.CREATE, null, new BigDecimal("100.00"));
+        audit(consistent, AuditAction.UPDATE_BALANCE, new BigDecimal("100.00"), new BigDecimal("70.00"));
+        audit(consistent, AuditAction.TRANSFER, null, null);
+
+        Card drifted = saveCard("reconciliation_pan_2", new BigDecimal("80.00"));
+        audit(drifted, AuditAction.CREATE, null, new BigDecimal("50.00"));
+
+        // Запись CREATE ушла в архивированную партицию, её вклад хранится в итогах
+        Card archived = saveCard("reconciliation_pan_3", new BigDecimal("60.00"));
+        jdbcTemplate.update("INSERT INTO card_audit_archive_total (card_id, expected_delta, audit_rows, updated_at) "
+                + "VALUES (?, 100.00, 1, CURRENT_TIMESTAMP)", archived.getId());
+        audit(archived, AuditAction.UPDATE_BALANCE, new BigDecimal("100.00"), new BigDecimal("60.00"));
+
+        // when
+        ReconciliationRun run = reconciliationService.reconcile().orElseThrow();
+
+        // then
+        assertThat(run.getStatus()).isEqualTo(ReconciliationStatus.COMPLETED);
+        assertThat(run.getCardsChecked()).isGreaterThanOrEqualTo(3);
+        assertThat(run.getAuditRows()).isGreaterThanOrEqualTo(3);
+
+        List<ReconciliationMismatch> mismatches = reconciliationService.getMismatches(run.getId());
+        assertThat(mismatches).extracting(ReconciliationMismatch::getCardId)
+                .contains(drifted.getId())
+                .doesNotContain(consistent.getId(), archived.getId());
+        ReconciliationMismatch mismatch = mismatches.stream()
+                .filter(m -> m.getCardId().equals(drifted.getId()))
+                .findFirst().orElseThrow();
+        assertThat(mismatch.isConfirmed()).isTrue();
+        assertThat(mismatch.getCardBalance()).isEqualByComparingTo("80.00");
+        assertThat(mismatch.getAuditBalance()).isEqualByComparingTo("50.00");
+        assertThat(reconciliationService.hasUnfinishedRun()).isFalse();
+    }
+
+    private Card saveCard(String encryptedPan, BigDecimal balance) {
+        Card card = new Card();
+        card.setUserId(user.getId());
+        card.setEncryptedPan(encryptedPan);
+        card.setOwnerName("Reconciliation Test");
+        card.setExpiryDate(YearMonth.now().plusYears(2));
+        card.setStatus(CardStatus.ACTIVE);
+        card.setBalance(balance);
+        return cardRepository.save(card);
+    }
+
+    private void audit(Card card, AuditAction action, BigDecimal oldBalance, BigDecimal newBalance) {
+        CardAudit audit = new CardAudit();
+        audit.setCardId(card.getId());
+        audit.setUserId(user.getId());
+        audit.setAction(action);
+        audit.setOldBalance(oldBalance);
+        audit.setNewBalance(newBalance);
+        audit.setPerformedBy("test");
+        cardAuditRepository.save(audit);
+    }
+}
@@ -0,0 +1,90 @@
+package ru.effectivemobile.bankcards.service.retry;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
+import ru.effectivemobile.bankcards.config.ConflictRetryConfig;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ConflictRetryAspectTest {
+
+    private MeterRegistry meterRegistry;
+    private ConflictRetryConfig config;
+    private ConflictingOperation operation;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        config = new ConflictRetryConfig();
+        config.setMaxAttempts(3);
+        config.setInitialBackoff(Duration.ofMillis(1));
+        config.setMaxBackoff(Duration.ofMillis(2));
+
+        AspectJProxyFactory factory = new AspectJProxyFactory(new ConflictingOperation());
+        factory.addAspect(new ConflictRetryAspect(config, meterRegistry));
+        operation = factory.getProxy();
+    }
+
+    @Test
+    void shouldRetryUntilOperationSucceeds() {
+        // when
+        String result = operation.run(2);
+
+        // then
+        assertThat(result).isEqualTo("done");
+        assertThat(operation.calls()).isEqualTo(3);
+        assertThat(meterRegistry.get("card.conflicts").tag("operation", "test").counter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("card.conflict.retries").tag("operation", "test").counter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("card.conflict.attempts").tag("operation", "test").summary().max()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldRethrowConflictWhenAttemptsAreExhausted() {
+        // when & then
+        assertThatThrownBy(() -> operation.run(5))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+
+        assertThat(operation.calls()).isEqualTo(3);
+        assertThat(meterRegistry.get("card.conflict.exhausted").tag("operation", "test").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldKeepBackoffWithinConfiguredBounds() {
+        // given
+        config.setInitialBackoff(Duration.ofMillis(100));
+        config.setMaxBackoff(Duration.ofMillis(150));
+        config.setJitter(0.5);
+        ConflictRetryAspect aspect = new ConflictRetryAspect(config, meterRegistry);
+
+        // when & then
+        for (int i = 0; i < 100; i++) {
+            assertThat(aspect.backoffMillis(1)).isBetween(50L, 100L);
+            assertThat(aspect.backoffMillis(3)).isBetween(75L, 150L);
+        }
+    }
+
+    static class ConflictingOperation {
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        @RetryOnConflict("test")
+        public String run(int conflicts) {
+            if (calls.incrementAndGet() <= conflicts) {
+                throw new OptimisticLockingFailureException("conflict");
+            }
+            return "done";
+        }
+
+        int calls() {
+            return calls.get();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package ru.effectivemobile.bankcards.service.rules;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.effectivemobile.bankcards.config.BusinessRulesConfig;
+import ru.effectivemobile.bankcards.entity.BusinessRule;
+import ru.effectivemobile.bankcards.entity.BusinessRuleKey;
+import ru.effectivemobile.bankcards.entity.BusinessRuleScope;
+import ru.effectivemobile.bankcards.entity.Role;
+import ru.effectivemobile.bankcards.repository.BusinessRuleRepository;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BusinessRuleEngineTest {
+
+    @Mock
+    private BusinessRuleRepository businessRuleRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private BusinessRuleEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        BusinessRulesConfig defaults = new BusinessRulesConfig();
+        engine = new BusinessRuleEngine(businessRuleRepository, defaults, jdbcTemplate);
+    }
+
+    @Test
+    void shouldApplyGlobalRoleAndUserOverridesInOrder() {
+        // given
+        when(businessRuleRepository.findAll()).thenReturn(List.of(
+                rule(BusinessRuleKey.MAX_TRANSFER_AMOUNT, BusinessRuleScope.GLOBAL, "*", "5000.00"),
+                rule(BusinessRuleKey.MAX_TRANSFER_AMOUNT, BusinessRuleScope.ROLE, "ADMIN", "9000.00"),
+                rule(BusinessRuleKey.MAX_CARDS_PER_USER, BusinessRuleScope.USER, "42", "10")
+        ));
+
+        // when
+        BusinessRuleSet rules = engine.reload();
+
+        // then
+        BusinessLimits user = rules.limitsFor(1L, userId -> Role.USER);
+        assertThat(user.getMaxTransferAmount()).isEqualByComparingTo("5000.00");
+        assertThat(user.getMaxCardsPerUser()).isEqualTo(5);
+        assertThat(user.getMaxTransferAmountMessage()).isEqualTo("Transfer amount cannot exceed 5000.00");
+
+        BusinessLimits admin = rules.limitsFor(2L, userId -> Role.ADMIN);
+        assertThat(admin.getMaxTransferAmount()).isEqualByComparingTo("9000.00");
+
+        BusinessLimits overridden = rules.limitsFor(42L, userId -> Role.ADMIN);
+        assertThat(overridden.getMaxCardsPerUser()).isEqualTo(10);
+        assertThat(overridden.getMaxTransferAmount()).isEqualByComparingTo("9000.00");
+        assertThat(overridden.getMinCardBalance()).isEqualByComparingTo(BigDecimal.ZERO);
+    }
+
+    @Test
+    void shouldKeepPreviousRulesWhenStoredRuleIsInvalid() {
+        // given
+        when(businessRuleRepository.findAll()).thenReturn(List.of(
+                rule(BusinessRuleKey.MIN_TRANSFER_AMOUNT, BusinessRuleScope.GLOBAL, "*", "-1")
+        ));
+        BusinessRuleSet before = engine.current();
+
+        // when / then
+        assertThatThrownBy(() -> engine.reload()).isInstanceOf(IllegalArgumentException.class);
+        assertThat(engine.current()).isSameAs(before);
+        assertThat(engine.current().limitsFor(1L, userId -> Role.USER).getMinTransferAmount())
+                .isEqualByComparingTo("0.01");
+    }
+
+    @Test
+    void shouldReloadWhenRevisionChangesEvenIfRowCountDoesNot() {
+        // given: правка существующего правила — строк столько же, ревизия выросла
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenReturn(1L, 1L, 2L, 2L);
+        when(businessRuleRepository.findAll()).thenReturn(
+                List.of(rule(BusinessRuleKey.MAX_CARDS_PER_USER, BusinessRuleScope.GLOBAL, "*", "3")),
+                List.of(rule(BusinessRuleKey.MAX_CARDS_PER_USER, BusinessRuleScope.GLOBAL, "*", "7")));
+        engine.reload();
+
+        // when
+        engine.reloadIfChanged();
+        int beforeEdit = engine.current().limitsFor(1L, userId -> Role.USER).getMaxCardsPerUser();
+        engine.reloadIfChanged();
+
+        // then
+        assertThat(beforeEdit).isEqualTo(3);
+        assertThat(engine.current().limitsFor(1L, userId -> Role.USER).getMaxCardsPerUser()).isEqualTo(7);
+        verify(businessRuleRepository, times(2)).findAll();
+    }
+
+    private BusinessRule rule(BusinessRuleKey key, BusinessRuleScope scope, String scopeValue, String value) {
+        BusinessRule rule = new BusinessRule();
+        rule.setRuleKey(key);
+        rule.setScope(scope);
+        rule.setScopeValue(scopeValue);
+        rule.setValue(value);
+        return rule;
+    }
+}
@@ -9,20 +9,28 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import ru.effectivemobile.bankcards.config.BusinessRulesConfig;
 import ru.effectivemobile.bankcards.entity.Card;
 import ru.effectivemobile.bankcards.entity.CardStatus;
+import ru.effectivemobile.bankcards.entity.User;
 import ru.effectivemobile.bankcards.exception.BusinessValidationException;
 import ru.effectivemobile.bankcards.exception.CardNotActiveException;
 import ru.effectivemobile.bankcards.exception.InsufficientFundsException;
+import ru.effectivemobile.bankcards.repository.BusinessRuleRepository;
 import ru.effectivemobile.bankcards.repository.CardRepository;
 import ru.effectivemobile.bankcards.repository.UserRepository;
+import ru.effectivemobile.bankcards.security.CurrentUserResolver;
+import ru.effectivemobile.bankcards.service.rules.BusinessRuleEngine;
+import ru.effectivemobile.bankcards.service.velocity.VelocityLimiter;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.YearMonth;
-import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -31,12 +39,21 @@ class ValidationServiceTest {
     @Mock
     private BusinessRulesConfig businessRules;
 
+    @Mock
+    private BusinessRuleRepository businessRuleRepository;
+
+    @Mock
+    private CurrentUserResolver currentUserResolver;
+
     @Mock
     private CardRepository cardRepository;
 
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private VelocityLimiter velocityLimiter;
+
     private ValidationService validationService;
 
     @BeforeEach
@@ -48,7 +65,9 @@ class ValidationServiceTest {
         lenient().when(businessRules.getMaxCardsPerUser()).thenReturn(5);
         lenient().when(businessRules.getMinInitialBalance()).thenReturn(new BigDecimal("0.00"));
 
-        validationService = new ValidationService(businessRules, cardRepository, userRepository);
+        BusinessRuleEngine businessRuleEngine = new BusinessRuleEngine(businessRuleRepository, businessRules, null);
+        validationService = new ValidationService(businessRuleEngine, currentUserResolver, cardRepository, userRepository,
+                new CardCountCache(Duration.ofMinutes(5), 100), velocityLimiter);
     }
 
     @Test
@@ -224,9 +243,8 @@ class ValidationServiceTest {
     void shouldValidateCardCreationWithinLimit() {
         Long userId = 1L;
 
-        when(cardRepository.findByUserId(userId)).thenReturn(Arrays.asList(
-                new Card(), new Card(), new Card(), new Card() // 4 карты
-        ));
+        when(userRepository.findByIdForUpdate(userId)).thenReturn(Optional.of(new User()));
+        when(cardRepository.countByUserId(userId)).thenReturn(4L); // 4 карты
 
         validationService.validateCardCreation(userId, new BigDecimal("100.00"));
     }
@@ -235,13 +253,44 @@ class ValidationServiceTest {
     void shouldThrowExceptionWhenExceedingCardLimit() {
         Long userId = 1L;
 
-        when(cardRepository.findByUserId(userId)).thenReturn(Arrays.asList(
-                new Card(), new Card(), new Card(), new Card(), new Card() // 5 карт = лимит
-        ));
+        when(userRepository.findByIdForUpdate(userId)).thenReturn(Optional.of(new User()));
+        when(cardRepository.countByUserId(userId)).thenReturn(5L); // 5 карт = лимит
+
+        assertThatThrownBy(() -> validationService.validateCardCreation(userId, new BigDecimal("100.00")))
+                .isInstanceOf(BusinessValidationException.class)
+                .hasMessageContaining("cannot have more than");
+    }
+
+    @Test
+    void shouldAllowCardCreationAgainAfterCardsWereDeleted() {
+        Long userId = 1L;
+
+        when(userRepository.findByIdForUpdate(userId)).thenReturn(Optional.of(new User()));
+        when(cardRepository.countByUserId(userId)).thenReturn(5L, 4L);
+        assertThatThrownBy(() -> validationService.validateCardCreation(userId, new BigDecimal("100.00")))
+                .isInstanceOf(BusinessValidationException.class);
+
+        // Карту удалили (в том числе на другом узле) — подсказка кэша не подтверждается,
+        // решение принимает подсчёт под блокировкой
+        validationService.validateCardCreation(userId, new BigDecimal("100.00"));
+        verify(cardRepository, times(3)).countByUserId(userId);
+        verify(userRepository, times(2)).findByIdForUpdate(userId);
+    }
+
+    @Test
+    void shouldRejectFromConfirmedCachedCountWithoutLockingUser() {
+        Long userId = 1L;
+
+        when(userRepository.findByIdForUpdate(userId)).thenReturn(Optional.of(new User()));
+        when(cardRepository.countByUserId(userId)).thenReturn(5L);
+        assertThatThrownBy(() -> validationService.validateCardCreation(userId, new BigDecimal("100.00")))
+                .isInstanceOf(BusinessValidationException.class);
 
+        // Повторная попытка: кэш указывает на лимит, подсчёт подтверждает, блокировка не берётся
         assertThatThrownBy(() -> validationService.validateCardCreation(userId, new BigDecimal("100.00")))
                 .isInstanceOf(BusinessValidationException.class)
                 .hasMessageContaining("cannot have more than");
+        verify(userRepository, times(1)).findByIdForUpdate(userId);
     }
 
     // Вспомогательный метод для создания активной карты
@@ -0,0 +1,123 @@
+package ru.effectivemobile.bankcards.service.velocity;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.effectivemobile.bankcards.config.VelocityConfig;
+import ru.effectivemobile.bankcards.exception.VelocityLimitExceededException;
+import ru.effectivemobile.bankcards.repository.VelocityBucketRepository;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class VelocityLimiterTest {
+
+    private static final Long USER_ID = 900_001L;
+    private static final Long CARD_ID = 900_101L;
+    private static final Long OTHER_CARD_ID = 900_102L;
+
+    @Autowired
+    private VelocityConfig config;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private VelocityBucketRepository velocityBucketRepository;
+
+    private VelocityConfig.Limits cardLimits;
+    private VelocityConfig.Limits userLimits;
+    private VelocityLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        cardLimits = config.getCard();
+        userLimits = config.getUser();
+        config.setEnabled(true);
+        config.setCard(new VelocityConfig.Limits(new BigDecimal("100.00"), new BigDecimal("1000.00"), 10));
+        config.setUser(new VelocityConfig.Limits(new BigDecimal("150.00"), null, null));
+        limiter = newLimiter();
+    }
+
+    @AfterEach
+    void tearDown() {
+        config.setEnabled(false);
+        config.setCard(cardLimits);
+        config.setUser(userLimits);
+        config.setUserOverrides(Map.of());
+        velocityBucketRepository.deleteAll();
+    }
+
+    @Test
+    void shouldRejectTransfersOverCardAndUserDailyLimits() {
+        limiter.reserve(USER_ID, CARD_ID, new BigDecimal("60.00"));
+        limiter.reserve(USER_ID, CARD_ID, new BigDecimal("40.00"));
+
+        assertThatThrownBy(() -> limiter.reserve(USER_ID, CARD_ID, new BigDecimal("0.01")))
+                .isInstanceOf(VelocityLimitExceededException.class)
+                .hasMessageContaining("Card daily");
+
+        // Другая карта того же пользователя упирается в лимит пользователя
+        limiter.reserve(USER_ID, OTHER_CARD_ID, new BigDecimal("50.00"));
+        assertThatThrownBy(() -> limiter.reserve(USER_ID, OTHER_CARD_ID, new BigDecimal("0.01")))
+                .isInstanceOf(VelocityLimitExceededException.class)
+                .hasMessageContaining("User daily");
+
+        // Персональный лимит пользователя заменяет общий
+        VelocityConfig.UserOverride override = new VelocityConfig.UserOverride();
+        override.setUser(new VelocityConfig.Limits(new BigDecimal("500.00"), null, null));
+        config.setUserOverrides(Map.of(USER_ID, override));
+        limiter.reserve(USER_ID, OTHER_CARD_ID, new BigDecimal("10.00"));
+    }
+
+    @Test
+    void shouldReleaseReservationOnRollback() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.executeWithoutResult(status -> {
+            limiter.reserve(USER_ID, CARD_ID, new BigDecimal("100.00"));
+            status.setRollbackOnly();
+        });
+
+        limiter.reserve(USER_ID, CARD_ID, new BigDecimal("100.00"));
+    }
+
+    @Test
+    void shouldRestoreCountersFromFlushedBuckets() {
+        limiter.reserve(USER_ID, CARD_ID, new BigDecimal("70.00"));
+        limiter.flush();
+        limiter.flush();
+
+        assertThat(velocityBucketRepository.count()).isEqualTo(2);
+
+        // Новый экземпляр, как после рестарта узла, видит записанные суммы
+        VelocityLimiter restarted = newLimiter();
+        restarted.loadOnStartup();
+        assertThatThrownBy(() -> restarted.reserve(USER_ID, CARD_ID, new BigDecimal("30.01")))
+                .isInstanceOf(VelocityLimitExceededException.class);
+
+        // Запись на другом узле подтягивается при следующем flush
+        restarted.reserve(USER_ID, CARD_ID, new BigDecimal("30.00"));
+        restarted.flush();
+        limiter.flush();
+        assertThatThrownBy(() -> limiter.reserve(USER_ID, CARD_ID, new BigDecimal("0.01")))
+                .isInstanceOf(VelocityLimitExceededException.class);
+    }
+
+    private VelocityLimiter newLimiter() {
+        return new VelocityLimiter(jdbcTemplate, transactionManager, velocityBucketRepository, config);
+    }
+}